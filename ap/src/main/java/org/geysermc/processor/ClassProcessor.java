@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Lists every class annotated with the given annotation in {@code META-INF/<annotation class name>}, one class name
+ * per line, so the classes can be loaded at runtime without scanning the classpath.
+ */
+public class ClassProcessor extends AbstractProcessor {
+    private final String annotationClassName;
+    private final Set<String> classes = new TreeSet<>();
+    /**
+     * If the annotation itself was compiled, which means every class was - otherwise only the changed classes are
+     * seen, and the classes listed by the previous build have to be kept
+     */
+    private boolean fullBuild = false;
+
+    public ClassProcessor(String annotationClassName) {
+        this.annotationClassName = annotationClassName;
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(annotationClassName);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            if (!fullBuild) {
+                addPreviousClasses();
+            }
+            if (!classes.isEmpty()) {
+                writeClasses();
+            }
+            return false;
+        }
+
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(annotationClassName);
+        if (annotation == null) {
+            return false;
+        }
+        if (roundEnv.getRootElements().contains(annotation)) {
+            fullBuild = true;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element instanceof TypeElement) {
+                classes.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keep the classes listed by the previous build that still exist and are still annotated, as an incremental build
+     * only sees the classes that changed.
+     */
+    private void addPreviousClasses() {
+        TypeElement annotation = processingEnv.getElementUtils().getTypeElement(annotationClassName);
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", getPath());
+            try (BufferedReader reader = new BufferedReader(existing.openReader(true))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty() && isAnnotated(line, annotation)) {
+                        classes.add(line);
+                    }
+                }
+            }
+        } catch (IOException ignored) {
+            // No previous list
+        }
+    }
+
+    /**
+     * @return false if the class was removed or renamed, or no longer has the annotation
+     */
+    private boolean isAnnotated(String binaryName, TypeElement annotation) {
+        // Nested classes are listed by their binary name, but looked up by their canonical name
+        TypeElement element = processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+        if (element == null || annotation == null) {
+            return false;
+        }
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (mirror.getAnnotationType().asElement().equals(annotation)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeClasses() {
+        String path = getPath();
+        try {
+            FileObject output = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", path);
+            try (Writer writer = output.openWriter()) {
+                for (String className : classes) {
+                    writer.write(className);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write " + path + ": " + e.getMessage());
+        }
+    }
+
+    private String getPath() {
+        return "META-INF/" + annotationClassName;
+    }
+}
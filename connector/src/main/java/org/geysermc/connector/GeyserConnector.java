@@ -44,6 +44,8 @@ import org.geysermc.connector.configuration.GeyserConfiguration;
 import org.geysermc.connector.metrics.Metrics;
 import org.geysermc.connector.network.ConnectorServerEventHandler;
 import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.SessionManager;
+import org.geysermc.connector.network.session.SessionTickEngine;
 import org.geysermc.connector.network.translators.BiomeTranslator;
 import org.geysermc.connector.network.translators.EntityIdentifierRegistry;
 import org.geysermc.connector.network.translators.PacketTranslatorRegistry;
@@ -55,10 +57,13 @@ import org.geysermc.connector.network.translators.item.PotionMixRegistry;
 import org.geysermc.connector.network.translators.item.RecipeRegistry;
 import org.geysermc.connector.network.translators.sound.SoundHandlerRegistry;
 import org.geysermc.connector.network.translators.sound.SoundRegistry;
+import org.geysermc.connector.network.translators.world.MapImageCache;
 import org.geysermc.connector.network.translators.world.WorldManager;
 import org.geysermc.connector.network.translators.world.block.BlockTranslator;
 import org.geysermc.connector.network.translators.world.block.entity.BlockEntityTranslator;
 import org.geysermc.connector.network.translators.world.block.entity.SkullBlockEntityTranslator;
+import org.geysermc.connector.network.translators.world.chunk.ChunkPayloadCache;
+import org.geysermc.connector.network.translators.world.chunk.ChunkTranslationExecutor;
 import org.geysermc.connector.skin.FloodgateSkinUploader;
 import org.geysermc.connector.utils.*;
 import org.geysermc.floodgate.crypto.AesCipher;
@@ -105,7 +110,7 @@ public class GeyserConnector {
 
     private static final String IP_REGEX = "\\b\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\.\\d{1,3}\\b";
 
-    private final List<GeyserSession> players = new ArrayList<>();
+    private final SessionManager sessionManager = new SessionManager();
 
     private static GeyserConnector instance;
 
@@ -127,6 +132,11 @@ public class GeyserConnector {
 
     private final ScheduledExecutorService generalThreadPool;
 
+    private final ChunkPayloadCache chunkPayloadCache;
+    private final MapImageCache mapImageCache;
+    private final ChunkTranslationExecutor chunkTranslationExecutor;
+    private final SessionTickEngine sessionTickEngine;
+
     private final BedrockServer bedrockServer;
     private final PlatformType platformType;
     private final GeyserBootstrap bootstrap;
@@ -174,6 +184,11 @@ public class GeyserConnector {
 
         ResourcePack.loadPacks();
 
+        chunkPayloadCache = new ChunkPayloadCache(config.getChunkPayloadCacheSize() * 1024L * 1024L);
+        mapImageCache = new MapImageCache(config.getMapImageCacheSize() * 1024L * 1024L);
+        chunkTranslationExecutor = new ChunkTranslationExecutor(Runtime.getRuntime().availableProcessors());
+        sessionTickEngine = new SessionTickEngine(Runtime.getRuntime().availableProcessors());
+
         if (platformType != PlatformType.STANDALONE && config.getRemote().getAddress().equals("auto")) {
             // Set the remote address to localhost since that is where we are always connecting
             try {
@@ -288,7 +303,7 @@ public class GeyserConnector {
 
         if (config.getMetrics().isEnabled()) {
             metrics = new Metrics(this, "GeyserMC", config.getMetrics().getUniqueId(), false, java.util.logging.Logger.getLogger(""));
-            metrics.addCustomChart(new Metrics.SingleLineChart("players", players::size));
+            metrics.addCustomChart(new Metrics.SingleLineChart("players", sessionManager::size));
             // Prevent unwanted words best we can
             metrics.addCustomChart(new Metrics.SimplePie("authMode", () -> AuthType.getByName(config.getRemote().getAuthType()).toString().toLowerCase()));
             metrics.addCustomChart(new Metrics.SimplePie("platform", platformType::getPlatformName));
@@ -296,7 +311,7 @@ public class GeyserConnector {
             metrics.addCustomChart(new Metrics.SimplePie("version", () -> GeyserConnector.VERSION));
             metrics.addCustomChart(new Metrics.AdvancedPie("playerPlatform", () -> {
                 Map<String, Integer> valueMap = new HashMap<>();
-                for (GeyserSession session : players) {
+                for (GeyserSession session : sessionManager.getSessions()) {
                     if (session == null) continue;
                     if (session.getClientData() == null) continue;
                     String os = session.getClientData().getDeviceOs().toString();
@@ -310,7 +325,7 @@ public class GeyserConnector {
             }));
             metrics.addCustomChart(new Metrics.AdvancedPie("playerVersion", () -> {
                 Map<String, Integer> valueMap = new HashMap<>();
-                for (GeyserSession session : players) {
+                for (GeyserSession session : sessionManager.getSessions()) {
                     if (session == null) continue;
                     if (session.getClientData() == null) continue;
                     String version = session.getClientData().getGameVersion();
@@ -403,12 +418,10 @@ public class GeyserConnector {
         bootstrap.getGeyserLogger().info(LanguageUtils.getLocaleStringLog("geyser.core.shutdown"));
         shuttingDown = true;
 
-        if (players.size() >= 1) {
-            bootstrap.getGeyserLogger().info(LanguageUtils.getLocaleStringLog("geyser.core.shutdown.kick.log", players.size()));
+        if (sessionManager.size() >= 1) {
+            bootstrap.getGeyserLogger().info(LanguageUtils.getLocaleStringLog("geyser.core.shutdown.kick.log", sessionManager.size()));
 
-            // Make a copy to prevent ConcurrentModificationException
-            final List<GeyserSession> tmpPlayers = new ArrayList<>(players);
-            for (GeyserSession playerSession : tmpPlayers) {
+            for (GeyserSession playerSession : sessionManager.getSessions()) {
                 playerSession.disconnect(LanguageUtils.getPlayerLocaleString("geyser.core.shutdown.kick.message", playerSession.getLocale()));
             }
 
@@ -418,7 +431,7 @@ public class GeyserConnector {
                     // Simulate a long-running Job
                     try {
                         while (true) {
-                            if (players.size() == 0) {
+                            if (sessionManager.size() == 0) {
                                 return;
                             }
 
@@ -440,6 +453,9 @@ public class GeyserConnector {
         }
 
         generalThreadPool.shutdown();
+        chunkTranslationExecutor.shutdown();
+        sessionTickEngine.shutdown();
+        PacketTranslatorRegistry.shutdown();
         bedrockServer.close();
         if (timeSyncer != null) {
             timeSyncer.shutdown();
@@ -448,7 +464,7 @@ public class GeyserConnector {
             skinUploader.close();
         }
         newsHandler.shutdown();
-        players.clear();
+        sessionManager.clear();
         defaultAuthType = null;
         this.getCommandManager().getCommands().clear();
 
@@ -456,11 +472,20 @@ public class GeyserConnector {
     }
 
     public void addPlayer(GeyserSession player) {
-        players.add(player);
+        sessionManager.addSession(player);
     }
 
     public void removePlayer(GeyserSession player) {
-        players.remove(player);
+        sessionManager.removeSession(player);
+    }
+
+    /**
+     * Gets every connected player. The list can't be modified, and can be iterated over while players join or leave.
+     *
+     * @return the connected players
+     */
+    public List<GeyserSession> getPlayers() {
+        return sessionManager.getSessions();
     }
 
     /**
@@ -471,17 +496,7 @@ public class GeyserConnector {
      */
     @Contract("null -> null")
     public GeyserSession getPlayerByUuid(UUID uuid) {
-        if (uuid == null) {
-            return null;
-        }
-
-        for (GeyserSession session : players) {
-            if (uuid.equals(session.getPlayerEntity().getUuid())) {
-                return session;
-            }
-        }
-
-        return null;
+        return sessionManager.getSessionByUuid(uuid);
     }
 
     /**
@@ -492,13 +507,7 @@ public class GeyserConnector {
      */
     @SuppressWarnings("unused") // API usage
     public GeyserSession getPlayerByXuid(String xuid) {
-        for (GeyserSession session : players) {
-            if (session.getAuthData() != null && session.getAuthData().getXboxUUID().equals(xuid)) {
-                return session;
-            }
-        }
-
-        return null;
+        return sessionManager.getSessionByXuid(xuid);
     }
 
     public static GeyserConnector start(PlatformType platformType, GeyserBootstrap bootstrap) {
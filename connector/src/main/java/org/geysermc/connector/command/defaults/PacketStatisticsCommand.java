@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.command.defaults;
+
+import org.geysermc.connector.command.CommandSender;
+import org.geysermc.connector.command.GeyserCommand;
+import org.geysermc.connector.common.ChatColor;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.translators.PacketTranslatorRegistry;
+import org.geysermc.connector.network.translators.PacketTypeStatistics;
+import org.geysermc.connector.utils.LanguageUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class PacketStatisticsCommand extends GeyserCommand {
+    /**
+     * How many packet types to show per direction
+     */
+    private static final int SHOWN_PACKETS = 10;
+
+    public PacketStatisticsCommand(String name, String description, String permission) {
+        super(name, description, permission);
+    }
+
+    @Override
+    public void execute(GeyserSession session, CommandSender sender, String[] args) {
+        if (args.length > 0) {
+            switch (args[0].toLowerCase()) {
+                case "enable":
+                case "disable":
+                    boolean enabled = args[0].equalsIgnoreCase("enable");
+                    PacketTranslatorRegistry.JAVA_TRANSLATOR.setStatisticsEnabled(enabled);
+                    PacketTranslatorRegistry.BEDROCK_TRANSLATOR.setStatisticsEnabled(enabled);
+                    sender.sendMessage(LanguageUtils.getPlayerLocaleString(enabled ? "geyser.commands.packetstats.enabled"
+                            : "geyser.commands.packetstats.disabled", sender.getLocale()));
+                    return;
+                case "reset":
+                    PacketTranslatorRegistry.JAVA_TRANSLATOR.getStatistics().reset();
+                    PacketTranslatorRegistry.BEDROCK_TRANSLATOR.getStatistics().reset();
+                    sender.sendMessage(LanguageUtils.getPlayerLocaleString("geyser.commands.packetstats.reset", sender.getLocale()));
+                    return;
+            }
+        }
+
+        if (!PacketTranslatorRegistry.JAVA_TRANSLATOR.isStatisticsEnabled()) {
+            sender.sendMessage(ChatColor.YELLOW + LanguageUtils.getPlayerLocaleString("geyser.commands.packetstats.not_enabled", sender.getLocale()));
+        }
+        sendStatistics(sender, "geyser.commands.packetstats.java", PacketTranslatorRegistry.JAVA_TRANSLATOR.getStatistics().getSortedStatistics());
+        sendStatistics(sender, "geyser.commands.packetstats.bedrock", PacketTranslatorRegistry.BEDROCK_TRANSLATOR.getStatistics().getSortedStatistics());
+    }
+
+    private void sendStatistics(CommandSender sender, String headerKey, List<PacketTypeStatistics> statistics) {
+        // Lists count, total ms and avg/p50/p99/max us
+        sender.sendMessage(ChatColor.BOLD + LanguageUtils.getPlayerLocaleString(headerKey, sender.getLocale()));
+        for (int i = 0; i < Math.min(SHOWN_PACKETS, statistics.size()); i++) {
+            PacketTypeStatistics packet = statistics.get(i);
+            if (packet.getCount() == 0) {
+                break;
+            }
+            sender.sendMessage(String.format("%s%s%s: %d, %.1f, %.1f/%.1f/%.1f/%.1f", ChatColor.AQUA, packet.getPacket(), ChatColor.RESET,
+                    packet.getCount(), packet.getTotalNanos() / 1_000_000d, packet.getAverageNanos() / 1000d,
+                    packet.getP50Nanos() / 1000d, packet.getP99Nanos() / 1000d, packet.getMaximumNanos() / 1000d));
+        }
+    }
+
+    @Override
+    public List<String> getSubCommands() {
+        return Arrays.asList("enable", "disable", "reset");
+    }
+}
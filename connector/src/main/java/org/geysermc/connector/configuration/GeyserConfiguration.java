@@ -61,6 +61,8 @@ public interface GeyserConfiguration {
 
     int getPingPassthroughInterval();
 
+    int getPingRateLimit();
+
     boolean isForwardPlayerPing();
 
     int getMaxPlayers();
@@ -89,12 +91,16 @@ public interface GeyserConfiguration {
 
     boolean isForceResourcePacks();
 
+    int getResourcePackChunkSize();
+
     boolean isXboxAchievementsEnabled();
 
     int getCacheImages();
 
     boolean isAllowCustomSkulls();
 
+    int getEntityCullingDistance();
+
     IMetricsInfo getMetrics();
 
     interface IBedrockConfiguration {
@@ -163,6 +169,18 @@ public interface GeyserConfiguration {
 
     int getScoreboardPacketThreshold();
 
+    int getChunkPayloadCacheSize();
+
+    int getMapImageCacheSize();
+
+    boolean isClientChunkCaching();
+
+    boolean isCompactChunkCache();
+
+    boolean isSharedChunkColumns();
+
+    boolean isPacketStatistics();
+
     // if u have offline mode enabled pls be safe
     boolean isEnableProxyConnections();
 
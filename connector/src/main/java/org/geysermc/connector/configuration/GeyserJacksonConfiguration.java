@@ -80,6 +80,9 @@ public abstract class GeyserJacksonConfiguration implements GeyserConfiguration
     @JsonProperty("ping-passthrough-interval")
     private int pingPassthroughInterval = 3;
 
+    @JsonProperty("ping-rate-limit")
+    private int pingRateLimit = 10;
+
     @JsonProperty("forward-player-ping")
     private boolean forwardPlayerPing = false;
 
@@ -117,6 +120,9 @@ public abstract class GeyserJacksonConfiguration implements GeyserConfiguration
     @JsonProperty("allow-custom-skulls")
     private boolean allowCustomSkulls = true;
 
+    @JsonProperty("entity-culling-distance")
+    private int entityCullingDistance = 0;
+
     @JsonProperty("add-non-bedrock-items")
     private boolean addNonBedrockItems = true;
 
@@ -126,6 +132,9 @@ public abstract class GeyserJacksonConfiguration implements GeyserConfiguration
     @JsonProperty("force-resource-packs")
     private boolean forceResourcePacks = true;
 
+    @JsonProperty("resource-pack-chunk-size")
+    private int resourcePackChunkSize = 100;
+
     @JsonProperty("xbox-achievements-enabled")
     private boolean xboxAchievementsEnabled = false;
 
@@ -229,6 +238,24 @@ public abstract class GeyserJacksonConfiguration implements GeyserConfiguration
     @JsonProperty("scoreboard-packet-threshold")
     private int scoreboardPacketThreshold = 10;
 
+    @JsonProperty("chunk-payload-cache-size")
+    private int chunkPayloadCacheSize = 32;
+
+    @JsonProperty("map-image-cache-size")
+    private int mapImageCacheSize = 32;
+
+    @JsonProperty("client-chunk-caching")
+    private boolean clientChunkCaching = true;
+
+    @JsonProperty("compact-chunk-cache")
+    private boolean compactChunkCache = false;
+
+    @JsonProperty("shared-chunk-columns")
+    private boolean sharedChunkColumns = false;
+
+    @JsonProperty("packet-statistics")
+    private boolean packetStatistics = false;
+
     @JsonProperty("enable-proxy-connections")
     private boolean enableProxyConnections = false;
 
@@ -27,6 +27,7 @@ package org.geysermc.connector.dump;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.github.steveice10.mc.protocol.MinecraftConstants;
+import com.google.common.cache.CacheStats;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteSource;
 import com.google.common.io.Files;
@@ -39,6 +40,13 @@ import org.geysermc.connector.common.serializer.AsteriskSerializer;
 import org.geysermc.connector.configuration.GeyserConfiguration;
 import org.geysermc.connector.network.BedrockProtocol;
 import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.SessionTickEngine;
+import org.geysermc.connector.network.session.cache.ChunkCache;
+import org.geysermc.connector.network.translators.PacketTranslatorRegistry;
+import org.geysermc.connector.network.translators.PacketTypeStatistics;
+import org.geysermc.connector.network.translators.item.ItemTranslationCache;
+import org.geysermc.connector.network.translators.world.chunk.ChunkPayloadCache;
+import org.geysermc.connector.network.translators.world.chunk.ChunkTranslationExecutor;
 import org.geysermc.connector.utils.DockerCheck;
 import org.geysermc.connector.utils.FileUtils;
 import org.geysermc.floodgate.util.DeviceOs;
@@ -50,6 +58,8 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 @Getter
@@ -64,6 +74,12 @@ public class DumpInfo {
     private final Object2IntMap<DeviceOs> userPlatforms;
     private final HashInfo hashInfo;
     private final RamInfo ramInfo;
+    private final ChunkPayloadCacheInfo chunkPayloadCacheInfo;
+    private final ChunkTranslationInfo chunkTranslationInfo;
+    private final ChunkCacheInfo chunkCacheInfo;
+    private final PacketStatisticsInfo packetStatisticsInfo;
+    private final ItemTranslationCacheInfo itemTranslationCacheInfo;
+    private final SessionTickInfo sessionTickInfo;
     private final BootstrapDumpInfo bootstrapInfo;
 
     public DumpInfo() {
@@ -98,6 +114,12 @@ public class DumpInfo {
         this.hashInfo = new HashInfo(md5Hash, sha256Hash);
 
         this.ramInfo = new DumpInfo.RamInfo();
+        this.chunkPayloadCacheInfo = new ChunkPayloadCacheInfo();
+        this.chunkTranslationInfo = new ChunkTranslationInfo();
+        this.chunkCacheInfo = new ChunkCacheInfo();
+        this.packetStatisticsInfo = new PacketStatisticsInfo();
+        this.itemTranslationCacheInfo = new ItemTranslationCacheInfo();
+        this.sessionTickInfo = new SessionTickInfo();
 
         this.userPlatforms = new Object2IntOpenHashMap<>();
         for (GeyserSession session : GeyserConnector.getInstance().getPlayers()) {
@@ -207,4 +229,158 @@ public class DumpInfo {
             this.max = Runtime.getRuntime().maxMemory() / MEGABYTE;
         }
     }
+
+    @Getter
+    public static class ChunkPayloadCacheInfo {
+        private final boolean enabled;
+        private final long size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        ChunkPayloadCacheInfo() {
+            ChunkPayloadCache cache = GeyserConnector.getInstance().getChunkPayloadCache();
+            CacheStats stats = cache.getStats();
+            this.enabled = cache.isEnabled();
+            this.size = cache.getSize();
+            this.hits = stats != null ? stats.hitCount() : 0;
+            this.misses = stats != null ? stats.missCount() : 0;
+            this.evictions = stats != null ? stats.evictionCount() : 0;
+        }
+    }
+
+    @Getter
+    public static class ChunkTranslationInfo {
+        private final int queuedChunks;
+        private final long translatedChunks;
+        private final double averageLatency;
+        private final double maximumLatency;
+
+        ChunkTranslationInfo() {
+            ChunkTranslationExecutor executor = GeyserConnector.getInstance().getChunkTranslationExecutor();
+            this.queuedChunks = executor.getQueuedChunks();
+            this.translatedChunks = executor.getTranslatedChunks().get();
+            this.averageLatency = executor.getAverageLatency();
+            this.maximumLatency = executor.getMaximumLatency();
+        }
+    }
+
+    @Getter
+    public static class SessionTickInfo {
+        private final int sessions;
+        private final long ticks;
+        private final long overruns;
+        private final long skippedTicks;
+        private final double averageDuration;
+        private final double maximumDuration;
+        private final double lastDuration;
+
+        SessionTickInfo() {
+            SessionTickEngine engine = GeyserConnector.getInstance().getSessionTickEngine();
+            this.sessions = engine.getSessionCount();
+            this.ticks = engine.getTicks();
+            this.overruns = engine.getOverruns();
+            this.skippedTicks = engine.getSkippedTicks();
+            this.averageDuration = engine.getAverageDuration();
+            this.maximumDuration = engine.getMaximumDuration();
+            this.lastDuration = engine.getLastDuration();
+        }
+    }
+
+    @Getter
+    public static class ChunkCacheInfo {
+        private final boolean compact;
+        private final boolean sharedColumns;
+        private final List<SessionChunkCacheInfo> sessions = new ArrayList<>();
+
+        ChunkCacheInfo() {
+            this.compact = GeyserConnector.getInstance().getConfig().isCompactChunkCache();
+            this.sharedColumns = GeyserConnector.getInstance().getConfig().isSharedChunkColumns();
+            for (GeyserSession session : GeyserConnector.getInstance().getPlayers()) {
+                ChunkCache chunkCache = session.getChunkCache();
+                if (chunkCache != null) {
+                    sessions.add(new SessionChunkCacheInfo(chunkCache));
+                }
+            }
+        }
+    }
+
+    @Getter
+    public static class ItemTranslationCacheInfo {
+        private final long size;
+        private final long hits;
+        private final long itemStackHits;
+        private final long misses;
+        private final double hitRate;
+
+        ItemTranslationCacheInfo() {
+            CacheStats stats = ItemTranslationCache.getStats();
+            this.size = ItemTranslationCache.getSize();
+            this.hits = stats.hitCount();
+            this.itemStackHits = ItemTranslationCache.getItemStackHits();
+            this.misses = stats.missCount();
+            long total = hits + itemStackHits + misses;
+            this.hitRate = total == 0 ? 0 : (double) (hits + itemStackHits) / total;
+        }
+    }
+
+    @Getter
+    public static class PacketStatisticsInfo {
+        private final boolean enabled;
+        private final List<PacketTypeInfo> javaPackets = new ArrayList<>();
+        private final List<PacketTypeInfo> bedrockPackets = new ArrayList<>();
+
+        PacketStatisticsInfo() {
+            this.enabled = PacketTranslatorRegistry.JAVA_TRANSLATOR.isStatisticsEnabled();
+            for (PacketTypeStatistics statistics : PacketTranslatorRegistry.JAVA_TRANSLATOR.getStatistics().getSortedStatistics()) {
+                javaPackets.add(new PacketTypeInfo(statistics));
+            }
+            for (PacketTypeStatistics statistics : PacketTranslatorRegistry.BEDROCK_TRANSLATOR.getStatistics().getSortedStatistics()) {
+                bedrockPackets.add(new PacketTypeInfo(statistics));
+            }
+        }
+    }
+
+    /**
+     * Latencies are in microseconds
+     */
+    @Getter
+    public static class PacketTypeInfo {
+        private final String packet;
+        private final long count;
+        private final long total;
+        private final double average;
+        private final long p50;
+        private final long p99;
+        private final long maximum;
+
+        PacketTypeInfo(PacketTypeStatistics statistics) {
+            this.packet = statistics.getPacket();
+            this.count = statistics.getCount();
+            this.total = statistics.getTotalNanos() / 1000;
+            this.average = statistics.getAverageNanos() / 1000;
+            this.p50 = statistics.getP50Nanos() / 1000;
+            this.p99 = statistics.getP99Nanos() / 1000;
+            this.maximum = statistics.getMaximumNanos() / 1000;
+        }
+    }
+
+    @Getter
+    public static class SessionChunkCacheInfo {
+        private final int cachedChunks;
+        /**
+         * Memory used only by this session, in kilobytes
+         */
+        private final long memoryUsage;
+        /**
+         * Memory used by this session including sections shared with others, in kilobytes
+         */
+        private final long totalMemoryUsage;
+
+        SessionChunkCacheInfo(ChunkCache chunkCache) {
+            this.cachedChunks = chunkCache.getCachedChunks();
+            this.memoryUsage = chunkCache.getMemoryUsage(false) / 1024;
+            this.totalMemoryUsage = chunkCache.getMemoryUsage(true) / 1024;
+        }
+    }
 }
@@ -79,6 +79,7 @@ public class BoatEntity extends Entity {
         moveEntityPacket.setTeleported(teleported);
 
         session.sendUpstreamPacket(moveEntityPacket);
+        session.getEntityMovementCache().invalidate(this);
     }
 
     @Override
@@ -166,6 +167,8 @@ public class BoatEntity extends Entity {
         // As these indicate to reset rowing, remove them until it is time to send them out again.
         metadata.remove(EntityData.ROW_TIME_LEFT);
         metadata.remove(EntityData.ROW_TIME_RIGHT);
+        session.getEntityMetadataCache().forget(this, EntityData.ROW_TIME_LEFT);
+        session.getEntityMetadataCache().forget(this, EntityData.ROW_TIME_RIGHT);
     }
 
     private void updateLeftPaddle(GeyserSession session, Entity rower) {
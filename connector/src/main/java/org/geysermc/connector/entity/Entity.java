@@ -121,6 +121,7 @@ public class Entity {
 
         valid = true;
         session.sendUpstreamPacket(addEntityPacket);
+        session.getEntityMetadataCache().spawned(this);
 
         session.getConnector().getLogger().debug("Spawned entity " + entityType + " at location " + position + " with id " + geyserId + " (java id " + entityId + ")");
     }
@@ -132,6 +133,8 @@ public class Entity {
      * @return can be deleted
      */
     public boolean despawnEntity(GeyserSession session) {
+        session.getEntityMovementCache().invalidate(this);
+        session.getEntityMetadataCache().invalidate(this);
         if (!valid) return true;
 
         for (long passenger : passengers) { // Make sure all passengers on the despawned entity are updated
@@ -158,14 +161,7 @@ public class Entity {
         setOnGround(isOnGround);
         this.position = Vector3f.from(position.getX() + relX, position.getY() + relY, position.getZ() + relZ);
 
-        MoveEntityAbsolutePacket moveEntityPacket = new MoveEntityAbsolutePacket();
-        moveEntityPacket.setRuntimeEntityId(geyserId);
-        moveEntityPacket.setPosition(position);
-        moveEntityPacket.setRotation(getBedrockRotation());
-        moveEntityPacket.setOnGround(isOnGround);
-        moveEntityPacket.setTeleported(false);
-
-        session.sendUpstreamPacket(moveEntityPacket);
+        session.getEntityMovementCache().move(this);
     }
 
     public void moveAbsolute(GeyserSession session, Vector3f position, float yaw, float pitch, boolean isOnGround, boolean teleported) {
@@ -177,14 +173,11 @@ public class Entity {
         setRotation(rotation);
         setOnGround(isOnGround);
 
-        MoveEntityAbsolutePacket moveEntityPacket = new MoveEntityAbsolutePacket();
-        moveEntityPacket.setRuntimeEntityId(geyserId);
-        moveEntityPacket.setPosition(position);
-        moveEntityPacket.setRotation(getBedrockRotation());
-        moveEntityPacket.setOnGround(isOnGround);
-        moveEntityPacket.setTeleported(teleported);
-
-        session.sendUpstreamPacket(moveEntityPacket);
+        if (teleported) {
+            session.getEntityMovementCache().teleport(this);
+        } else {
+            session.getEntityMovementCache().move(this);
+        }
     }
 
     /**
@@ -315,16 +308,13 @@ public class Entity {
     }
 
     /**
-     * Sends the Bedrock metadata to the client
+     * Sends the Bedrock metadata that changed to the client, at the end of the tick
      * @param session GeyserSession
      */
     public void updateBedrockMetadata(GeyserSession session) {
         if (!valid) return;
 
-        SetEntityDataPacket entityDataPacket = new SetEntityDataPacket();
-        entityDataPacket.setRuntimeEntityId(geyserId);
-        entityDataPacket.getMetadata().putAll(metadata);
-        session.sendUpstreamPacket(entityDataPacket);
+        session.getEntityMetadataCache().update(this);
     }
 
     /**
@@ -437,5 +437,6 @@ public class ArmorStandEntity extends LivingEntity {
         moveEntityPacket.setOnGround(onGround);
         moveEntityPacket.setTeleported(false);
         session.sendUpstreamPacket(moveEntityPacket);
+        session.getEntityMovementCache().invalidate(this);
     }
 }
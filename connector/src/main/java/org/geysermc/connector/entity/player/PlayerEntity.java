@@ -115,6 +115,7 @@ public class PlayerEntity extends LivingEntity {
 
         valid = true;
         session.sendUpstreamPacket(addPlayerPacket);
+        session.getEntityMetadataCache().spawned(this);
 
         updateAllEquipment(session);
         updateBedrockAttributes(session);
@@ -28,10 +28,16 @@ package org.geysermc.connector.inventory;
 import com.github.steveice10.mc.protocol.data.game.entity.metadata.ItemStack;
 import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
 import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.item.ItemEntry;
 import org.geysermc.connector.network.translators.item.ItemRegistry;
+import org.geysermc.connector.network.translators.item.ItemTranslationCache;
 import org.geysermc.connector.network.translators.item.ItemTranslator;
 
 @Data
@@ -43,6 +49,38 @@ public class GeyserItemStack {
     private CompoundTag nbt;
     private int netId;
 
+    /**
+     * The last translation of this item, until the NBT or the session it was translated for changes
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private ItemData translatedItemData;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private GeyserSession translatedFor;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private String translatedLocale;
+    /**
+     * The NBT tag and its contents when it was translated, as translators and inventories change tags in place
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private CompoundTag translatedNbt;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private int translatedNbtHash;
+
     public GeyserItemStack(int javaId) {
         this(javaId, 1);
     }
@@ -98,8 +136,32 @@ public class GeyserItemStack {
         return isEmpty() ? null : new ItemStack(javaId, newAmount, nbt);
     }
 
+    public void setNbt(CompoundTag nbt) {
+        this.nbt = nbt;
+        this.translatedItemData = null;
+    }
+
     public ItemData getItemData(GeyserSession session) {
-        ItemData itemData = ItemTranslator.translateToBedrock(session, getItemStack());
+        ItemData itemData;
+        if (isEmpty()) {
+            itemData = ItemTranslator.translateToBedrock(session, null);
+        } else {
+            int nbtHash = ItemTranslationCache.hashNbt(nbt);
+            if (translatedItemData != null && translatedFor == session && translatedLocale.equals(session.getLocale())
+                    && translatedNbt == nbt && translatedNbtHash == nbtHash) {
+                ItemTranslationCache.onItemStackHit();
+                itemData = ItemTranslationCache.withCount(translatedItemData, amount);
+            } else {
+                itemData = ItemTranslator.translateToBedrock(session, getItemStack());
+                translatedItemData = itemData;
+                translatedFor = session;
+                translatedLocale = session.getLocale();
+                translatedNbt = nbt;
+                translatedNbtHash = nbtHash;
+                // The item that is returned is changed below, so keep a copy of its contents
+                itemData = ItemTranslationCache.withCount(itemData, amount);
+            }
+        }
         itemData.setNetId(getNetId());
         itemData.setUsingNetId(true); // Seems silly - this should probably be on the protocol level
         return itemData;
@@ -31,32 +31,19 @@ import com.nukkitx.protocol.bedrock.BedrockServerSession;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import org.geysermc.connector.GeyserConnector;
-import org.geysermc.connector.common.ping.GeyserPingInfo;
-import org.geysermc.connector.configuration.GeyserConfiguration;
 import org.geysermc.connector.network.session.GeyserSession;
-import org.geysermc.connector.network.translators.chat.MessageTranslator;
-import org.geysermc.connector.ping.IGeyserPingPassthrough;
 import org.geysermc.connector.utils.LanguageUtils;
 
 import java.net.InetSocketAddress;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class ConnectorServerEventHandler implements BedrockServerEventHandler {
-    /*
-    The following constants are all used to ensure the ping does not reach a length where it is unparsable by the Bedrock client
-     */
-    private static final int MINECRAFT_VERSION_BYTES_LENGTH = BedrockProtocol.DEFAULT_BEDROCK_CODEC.getMinecraftVersion().getBytes(StandardCharsets.UTF_8).length;
-    private static final int BRAND_BYTES_LENGTH = GeyserConnector.NAME.getBytes(StandardCharsets.UTF_8).length;
-    /**
-     * The MOTD, sub-MOTD and Minecraft version ({@link #MINECRAFT_VERSION_BYTES_LENGTH}) combined cannot reach this length.
-     */
-    private static final int MAGIC_RAKNET_LENGTH = 338;
-
     private final GeyserConnector connector;
+    private final PingResponseCache pingResponseCache;
 
     public ConnectorServerEventHandler(GeyserConnector connector) {
         this.connector = connector;
+        this.pingResponseCache = new PingResponseCache(connector);
     }
 
     @Override
@@ -82,78 +69,15 @@ public class ConnectorServerEventHandler implements BedrockServerEventHandler {
 
     @Override
     public BedrockPong onQuery(InetSocketAddress inetSocketAddress) {
-        connector.getLogger().debug(LanguageUtils.getLocaleStringLog("geyser.network.pinged", inetSocketAddress));
-
-        GeyserConfiguration config = connector.getConfig();
-
-        GeyserPingInfo pingInfo = null;
-        if (config.isPassthroughMotd() || config.isPassthroughPlayerCounts()) {
-            IGeyserPingPassthrough pingPassthrough = connector.getBootstrap().getGeyserPingPassthrough();
-            pingInfo = pingPassthrough.getPingInformation(inetSocketAddress);
-        }
-
-        BedrockPong pong = new BedrockPong();
-        pong.setEdition("MCPE");
-        pong.setGameType("Survival"); // Can only be Survival or Creative as of 1.16.210.59
-        pong.setNintendoLimited(false);
-        pong.setProtocolVersion(BedrockProtocol.DEFAULT_BEDROCK_CODEC.getProtocolVersion());
-        pong.setVersion(BedrockProtocol.DEFAULT_BEDROCK_CODEC.getMinecraftVersion()); // Required to not be empty as of 1.16.210.59. Can only contain . and numbers.
-        pong.setIpv4Port(config.getBedrock().getPort());
-
-        if (config.isPassthroughMotd() && pingInfo != null && pingInfo.getDescription() != null) {
-            String[] motd = MessageTranslator.convertMessageLenient(pingInfo.getDescription()).split("\n");
-            String mainMotd = motd[0]; // First line of the motd.
-            String subMotd = (motd.length != 1) ? motd[1] : GeyserConnector.NAME; // Second line of the motd if present, otherwise default.
-
-            pong.setMotd(mainMotd.trim());
-            pong.setSubMotd(subMotd.trim()); // Trimmed to shift it to the left, prevents the universe from collapsing on us just because we went 2 characters over the text box's limit.
-        } else {
-            pong.setMotd(config.getBedrock().getMotd1());
-            pong.setSubMotd(config.getBedrock().getMotd2());
-        }
-
-        if (config.isPassthroughPlayerCounts() && pingInfo != null) {
-            pong.setPlayerCount(pingInfo.getPlayers().getOnline());
-            pong.setMaximumPlayerCount(pingInfo.getPlayers().getMax());
-        } else {
-            pong.setPlayerCount(connector.getPlayers().size());
-            pong.setMaximumPlayerCount(config.getMaxPlayers());
+        if (connector.getLogger().isDebug()) {
+            connector.getLogger().debug(LanguageUtils.getLocaleStringLog("geyser.network.pinged", inetSocketAddress));
         }
 
-        // Fallbacks to prevent errors and allow Bedrock to see the server
-        if (pong.getMotd() == null || pong.getMotd().trim().isEmpty()) {
-            pong.setMotd(GeyserConnector.NAME);
+        if (!pingResponseCache.allowRequest(inetSocketAddress.getAddress())) {
+            // Don't answer at all
+            return null;
         }
-        if (pong.getSubMotd() == null || pong.getSubMotd().trim().isEmpty()) {
-            // Sub-MOTD cannot be empty as of 1.16.210.59
-            pong.setSubMotd(GeyserConnector.NAME);
-        }
-
-        // The ping will not appear if the MOTD + sub-MOTD is of a certain length.
-        // We don't know why, though
-        byte[] motdArray = pong.getMotd().getBytes(StandardCharsets.UTF_8);
-        int subMotdLength = pong.getSubMotd().getBytes(StandardCharsets.UTF_8).length;
-        if (motdArray.length + subMotdLength > (MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH)) {
-            // Shorten the sub-MOTD first since that only appears locally
-            if (subMotdLength > BRAND_BYTES_LENGTH) {
-                pong.setSubMotd(GeyserConnector.NAME);
-                subMotdLength = BRAND_BYTES_LENGTH;
-            }
-            if (motdArray.length > (MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH - subMotdLength)) {
-                // If the top MOTD is still too long, we chop it down
-                byte[] newMotdArray = new byte[MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH - subMotdLength];
-                System.arraycopy(motdArray, 0, newMotdArray, 0, newMotdArray.length);
-                pong.setMotd(new String(newMotdArray, StandardCharsets.UTF_8));
-            }
-        }
-
-        //Bedrock will not even attempt a connection if the client thinks the server is full
-        //so we have to fake it not being full
-        if (pong.getPlayerCount() >= pong.getMaximumPlayerCount()) {
-            pong.setMaximumPlayerCount(pong.getPlayerCount() + 1);
-        }
-
-        return pong;
+        return pingResponseCache.getPong();
     }
 
     @Override
@@ -167,6 +91,8 @@ public class ConnectorServerEventHandler implements BedrockServerEventHandler {
 
     @Override
     public void onUnhandledDatagram(ChannelHandlerContext ctx, DatagramPacket packet) {
-        new QueryPacketHandler(connector, packet.sender(), packet.content());
+        if (pingResponseCache.allowRequest(packet.sender().getAddress())) {
+            new QueryPacketHandler(connector, pingResponseCache, packet.sender(), packet.content());
+        }
     }
 }
\ No newline at end of file
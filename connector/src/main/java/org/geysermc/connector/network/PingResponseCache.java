@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.nukkitx.protocol.bedrock.BedrockPong;
+import org.geysermc.connector.GeyserConnector;
+import org.geysermc.connector.common.ping.GeyserPingInfo;
+import org.geysermc.connector.configuration.GeyserConfiguration;
+import org.geysermc.connector.network.translators.chat.MessageTranslator;
+import org.geysermc.connector.ping.IGeyserPingPassthrough;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds the responses to Bedrock pings and queries, so they can be answered straight from the network thread.
+ * <p>
+ * The responses are rebuilt on the general thread pool every {@link GeyserConfiguration#getPingPassthroughInterval()}
+ * seconds; getting the ping information from the proxy or the remote server can take a while, and server list
+ * sites ping far more often than that.
+ */
+public class PingResponseCache {
+    /*
+    The following constants are all used to ensure the ping does not reach a length where it is unparsable by the Bedrock client
+     */
+    private static final int MINECRAFT_VERSION_BYTES_LENGTH = BedrockProtocol.DEFAULT_BEDROCK_CODEC.getMinecraftVersion().getBytes(StandardCharsets.UTF_8).length;
+    private static final int BRAND_BYTES_LENGTH = GeyserConnector.NAME.getBytes(StandardCharsets.UTF_8).length;
+    /**
+     * The MOTD, sub-MOTD and Minecraft version ({@link #MINECRAFT_VERSION_BYTES_LENGTH}) combined cannot reach this length.
+     */
+    private static final int MAGIC_RAKNET_LENGTH = 338;
+
+    private final GeyserConnector connector;
+    /**
+     * How many pings and queries each address has sent in the last second. Bounded, so a flood from spoofed
+     * addresses can't grow it without limit.
+     */
+    private final Cache<InetAddress, AtomicInteger> recentRequests = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.SECONDS)
+            .maximumSize(10000)
+            .build();
+
+    private volatile BedrockPong pong;
+    private volatile byte[] queryGameData;
+    private volatile byte[] queryPlayers;
+
+    public PingResponseCache(GeyserConnector connector) {
+        this.connector = connector;
+        // Answer with the configured MOTD until the first refresh has finished
+        update(null);
+
+        // Ensure delay is not zero
+        int interval = Math.max(1, connector.getConfig().getPingPassthroughInterval());
+        connector.getGeneralThreadPool().scheduleAtFixedRate(this::refresh, 0, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return false if this address has sent too many pings and queries in the last second
+     */
+    public boolean allowRequest(InetAddress address) {
+        int limit = connector.getConfig().getPingRateLimit();
+        if (limit <= 0) {
+            return true;
+        }
+        return recentRequests.asMap().computeIfAbsent(address, key -> new AtomicInteger()).incrementAndGet() <= limit;
+    }
+
+    public BedrockPong getPong() {
+        return pong;
+    }
+
+    public byte[] getQueryGameData() {
+        return queryGameData;
+    }
+
+    public byte[] getQueryPlayers() {
+        return queryPlayers;
+    }
+
+    private void refresh() {
+        try {
+            GeyserConfiguration config = connector.getConfig();
+            GeyserPingInfo pingInfo = null;
+            if (config.isPassthroughMotd() || config.isPassthroughPlayerCounts()) {
+                IGeyserPingPassthrough pingPassthrough = connector.getBootstrap().getGeyserPingPassthrough();
+                if (pingPassthrough != null) {
+                    pingInfo = pingPassthrough.getPingInformation();
+                }
+            }
+            update(pingInfo);
+        } catch (Throwable t) {
+            connector.getLogger().error("Error while refreshing the ping response", t);
+        }
+    }
+
+    private void update(GeyserPingInfo pingInfo) {
+        this.pong = createPong(pingInfo);
+        this.queryGameData = QueryPacketHandler.createGameData(connector, pingInfo);
+        this.queryPlayers = QueryPacketHandler.createPlayers(pingInfo);
+    }
+
+    private BedrockPong createPong(GeyserPingInfo pingInfo) {
+        GeyserConfiguration config = connector.getConfig();
+
+        BedrockPong pong = new BedrockPong();
+        pong.setEdition("MCPE");
+        pong.setGameType("Survival"); // Can only be Survival or Creative as of 1.16.210.59
+        pong.setNintendoLimited(false);
+        pong.setProtocolVersion(BedrockProtocol.DEFAULT_BEDROCK_CODEC.getProtocolVersion());
+        pong.setVersion(BedrockProtocol.DEFAULT_BEDROCK_CODEC.getMinecraftVersion()); // Required to not be empty as of 1.16.210.59. Can only contain . and numbers.
+        pong.setIpv4Port(config.getBedrock().getPort());
+
+        if (config.isPassthroughMotd() && pingInfo != null && pingInfo.getDescription() != null) {
+            String[] motd = MessageTranslator.convertMessageLenient(pingInfo.getDescription()).split("\n");
+            String mainMotd = motd[0]; // First line of the motd.
+            String subMotd = (motd.length != 1) ? motd[1] : GeyserConnector.NAME; // Second line of the motd if present, otherwise default.
+
+            pong.setMotd(mainMotd.trim());
+            pong.setSubMotd(subMotd.trim()); // Trimmed to shift it to the left, prevents the universe from collapsing on us just because we went 2 characters over the text box's limit.
+        } else {
+            pong.setMotd(config.getBedrock().getMotd1());
+            pong.setSubMotd(config.getBedrock().getMotd2());
+        }
+
+        if (config.isPassthroughPlayerCounts() && pingInfo != null) {
+            pong.setPlayerCount(pingInfo.getPlayers().getOnline());
+            pong.setMaximumPlayerCount(pingInfo.getPlayers().getMax());
+        } else {
+            pong.setPlayerCount(connector.getPlayers().size());
+            pong.setMaximumPlayerCount(config.getMaxPlayers());
+        }
+
+        // Fallbacks to prevent errors and allow Bedrock to see the server
+        if (pong.getMotd() == null || pong.getMotd().trim().isEmpty()) {
+            pong.setMotd(GeyserConnector.NAME);
+        }
+        if (pong.getSubMotd() == null || pong.getSubMotd().trim().isEmpty()) {
+            // Sub-MOTD cannot be empty as of 1.16.210.59
+            pong.setSubMotd(GeyserConnector.NAME);
+        }
+
+        // The ping will not appear if the MOTD + sub-MOTD is of a certain length.
+        // We don't know why, though
+        byte[] motdArray = pong.getMotd().getBytes(StandardCharsets.UTF_8);
+        int subMotdLength = pong.getSubMotd().getBytes(StandardCharsets.UTF_8).length;
+        if (motdArray.length + subMotdLength > (MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH)) {
+            // Shorten the sub-MOTD first since that only appears locally
+            if (subMotdLength > BRAND_BYTES_LENGTH) {
+                pong.setSubMotd(GeyserConnector.NAME);
+                subMotdLength = BRAND_BYTES_LENGTH;
+            }
+            if (motdArray.length > (MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH - subMotdLength)) {
+                // If the top MOTD is still too long, we chop it down
+                byte[] newMotdArray = new byte[MAGIC_RAKNET_LENGTH - MINECRAFT_VERSION_BYTES_LENGTH - subMotdLength];
+                System.arraycopy(motdArray, 0, newMotdArray, 0, newMotdArray.length);
+                pong.setMotd(new String(newMotdArray, StandardCharsets.UTF_8));
+            }
+        }
+
+        //Bedrock will not even attempt a connection if the client thinks the server is full
+        //so we have to fake it not being full
+        if (pong.getPlayerCount() >= pong.getMaximumPlayerCount()) {
+            pong.setMaximumPlayerCount(pong.getPlayerCount() + 1);
+        }
+
+        return pong;
+    }
+}
@@ -51,6 +51,7 @@ public class QueryPacketHandler {
     public static final byte STATISTICS = 0x00;
 
     private GeyserConnector connector;
+    private PingResponseCache pingResponseCache;
     private InetSocketAddress sender;
     private byte type;
     private int sessionId;
@@ -60,14 +61,16 @@ public class QueryPacketHandler {
      * The Query packet handler instance
      *
      * @param connector Geyser Connector
+     * @param pingResponseCache The cache holding the game data and players
      * @param sender The Sender IP/Port for the Query
      * @param buffer The Query data
      */
-    public QueryPacketHandler(GeyserConnector connector, InetSocketAddress sender, ByteBuf buffer) {
+    public QueryPacketHandler(GeyserConnector connector, PingResponseCache pingResponseCache, InetSocketAddress sender, ByteBuf buffer) {
         if (!isQueryPacket(buffer))
             return;
 
         this.connector = connector;
+        this.pingResponseCache = pingResponseCache;
         this.sender = sender;
         this.type = buffer.readByte();
         this.sessionId = buffer.readInt();
@@ -120,10 +123,10 @@ public class QueryPacketHandler {
         reply.writeInt(sessionId);
 
         // Game Info
-        reply.writeBytes(getGameData());
+        reply.writeBytes(pingResponseCache.getQueryGameData());
 
         // Players
-        reply.writeBytes(getPlayers());
+        reply.writeBytes(pingResponseCache.getQueryPlayers());
 
         sendPacket(reply);
     }
@@ -131,21 +134,18 @@ public class QueryPacketHandler {
     /**
      * Gets the game data for the query
      *
+     * @param connector Geyser Connector
+     * @param pingInfo the ping information of the Java server, or null if ping passthrough is disabled
      * @return the game data for the query
      */
-    private byte[] getGameData() {
+    static byte[] createGameData(GeyserConnector connector, GeyserPingInfo pingInfo) {
         ByteArrayOutputStream query = new ByteArrayOutputStream();
 
-        GeyserPingInfo pingInfo = null;
         String motd;
         String currentPlayerCount;
         String maxPlayerCount;
         String map;
 
-        if (connector.getConfig().isPassthroughMotd() || connector.getConfig().isPassthroughPlayerCounts()) {
-            pingInfo = connector.getBootstrap().getGeyserPingPassthrough().getPingInformation();
-        }
-
         if (connector.getConfig().isPassthroughMotd() && pingInfo != null) {
             String[] javaMotd = MessageTranslator.convertMessageLenient(pingInfo.getDescription()).split("\n");
             motd = javaMotd[0].trim(); // First line of the motd.
@@ -209,16 +209,12 @@ public class QueryPacketHandler {
     /**
      * Generate a byte[] storing the player names
      *
+     * @param pingInfo the ping information of the Java server, or null if ping passthrough is disabled
      * @return The byte[] representation of players
      */
-    private byte[] getPlayers() {
+    static byte[] createPlayers(GeyserPingInfo pingInfo) {
         ByteArrayOutputStream query = new ByteArrayOutputStream();
 
-        GeyserPingInfo pingInfo = null;
-        if (connector.getConfig().isPassthroughMotd() || connector.getConfig().isPassthroughPlayerCounts()) {
-            pingInfo = connector.getBootstrap().getGeyserPingPassthrough().getPingInformation();
-        }
-
         try {
             // Start the player section
             query.write("player_".getBytes());
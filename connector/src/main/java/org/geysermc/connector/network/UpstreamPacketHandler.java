@@ -44,8 +44,6 @@ import org.geysermc.connector.network.translators.world.block.BlockTranslator1_1
 import org.geysermc.connector.network.translators.world.block.BlockTranslator1_16_210;
 import org.geysermc.connector.utils.*;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.Map;
 
 public class UpstreamPacketHandler extends LoggingPacketHandler {
@@ -92,7 +90,7 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
         for (ResourcePack resourcePack : ResourcePack.PACKS.values()) {
             ResourcePackManifest.Header header = resourcePack.getManifest().getHeader();
             resourcePacksInfo.getResourcePackInfos().add(new ResourcePacksInfoPacket.Entry(
-                    header.getUuid().toString(), header.getVersionString(), resourcePack.getFile().length(),
+                    header.getUuid().toString(), header.getVersionString(), resourcePack.getSize(),
                             "", "", "", false, false));
         }
         ResourcePackCache cache = RECONNECTING_CLIENTS.get(session.getAuthData().getXboxUUID());
@@ -102,13 +100,12 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
             ResourcePack translatedResourcePack = session.getResourcePackCache().getBedrockResourcePack();
             ResourcePackManifest.Header header = translatedResourcePack.getManifest().getHeader();
             resourcePacksInfo.getResourcePackInfos().add(new ResourcePacksInfoPacket.Entry(header.getUuid().toString(),
-                    header.getVersionString(), translatedResourcePack.getFile().length(), "", "", header.getUuid().toString(), false, false));
+                    header.getVersionString(), translatedResourcePack.getSize(), "", "", header.getUuid().toString(), false, false));
             if (!session.getResourcePackCache().getJavaToCustomModelDataToBedrockId().isEmpty()) {
                 session.getResourcePackCache().setCustomModelDataActive(true);
             }
         }
         resourcePacksInfo.setForcedToAccept(GeyserConnector.getInstance().getConfig().isForceResourcePacks() || cache != null);
-        System.out.println(resourcePacksInfo);
         session.sendUpstreamPacket(resourcePacksInfo);
         return true;
     }
@@ -138,9 +135,8 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
                     ResourcePackManifest.Header header = pack.getManifest().getHeader();
 
                     data.setPackId(header.getUuid());
-                    int chunkCount = (int) Math.ceil((int) pack.getFile().length() / (double) ResourcePack.CHUNK_SIZE);
-                    data.setChunkCount(chunkCount);
-                    data.setCompressedPackSize(pack.getFile().length());
+                    data.setChunkCount(pack.getChunkCount());
+                    data.setCompressedPackSize(pack.getSize());
                     data.setMaxChunkSize(ResourcePack.CHUNK_SIZE);
                     data.setHash(pack.getSha256());
                     data.setPackVersion(packID[1]);
@@ -148,7 +144,6 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
                     data.setType(ResourcePackType.RESOURCE);
 
                     session.sendUpstreamPacket(data);
-                    System.out.println(data);
                 }
                 break;
 
@@ -268,7 +263,6 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
 
     @Override
     public boolean handle(ResourcePackChunkRequestPacket packet) {
-        System.out.println(packet);
         ResourcePackChunkDataPacket data = new ResourcePackChunkDataPacket();
         ResourcePack pack = null;
         ResourcePack translatedResourcePack = session.getResourcePackCache().getBedrockResourcePack();
@@ -282,23 +276,10 @@ public class UpstreamPacketHandler extends LoggingPacketHandler {
         }
 
         data.setChunkIndex(packet.getChunkIndex());
-        data.setProgress(packet.getChunkIndex() * ResourcePack.CHUNK_SIZE);
+        data.setProgress((long) packet.getChunkIndex() * ResourcePack.CHUNK_SIZE);
         data.setPackVersion(packet.getPackVersion());
         data.setPackId(packet.getPackId());
-
-        int offset = packet.getChunkIndex() * ResourcePack.CHUNK_SIZE;
-        byte[] packData = new byte[(int) MathUtils.constrain(pack.getFile().length() - offset, 0, ResourcePack.CHUNK_SIZE)];
-
-        try (InputStream inputStream = new FileInputStream(pack.getFile())) {
-            //noinspection ResultOfMethodCallIgnored
-            inputStream.skip(offset);
-            //noinspection ResultOfMethodCallIgnored
-            inputStream.read(packData, 0, packData.length);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-
-        data.setData(packData);
+        data.setData(pack.getChunk(packet.getChunkIndex()));
 
         session.sendUpstreamPacket(data);
         return true;
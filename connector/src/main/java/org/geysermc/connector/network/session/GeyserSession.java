@@ -57,6 +57,7 @@ import com.nukkitx.protocol.bedrock.data.*;
 import com.nukkitx.protocol.bedrock.data.command.CommandPermission;
 import com.nukkitx.protocol.bedrock.packet.*;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import io.netty.channel.EventLoop;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
@@ -94,7 +95,10 @@ import org.geysermc.connector.network.translators.chat.MessageTranslator;
 import org.geysermc.connector.network.translators.collision.CollisionManager;
 import org.geysermc.connector.network.translators.inventory.InventoryTranslator;
 import org.geysermc.connector.network.translators.item.ItemRegistry;
+import org.geysermc.connector.network.translators.world.BlockUpdateBatch;
+import org.geysermc.connector.network.translators.world.MapImageCache;
 import org.geysermc.connector.network.translators.world.block.BlockTranslator;
+import org.geysermc.connector.network.translators.world.chunk.ChunkTranslationQueue;
 import org.geysermc.connector.skin.SkinManager;
 import org.geysermc.connector.utils.*;
 import org.geysermc.floodgate.util.BedrockData;
@@ -116,6 +120,12 @@ public class GeyserSession implements CommandSender {
 
     private final GeyserConnector connector;
     private final UpstreamSession upstream;
+    /**
+     * Java packets are translated and the session is ticked on this event loop, so the caches of the session don't
+     * have to be thread-safe. Work from other threads that touches them should go through
+     * {@link #executeInEventLoop(Runnable)}.
+     */
+    private final EventLoop eventLoop;
     private Client downstream;
     @Setter
     private AuthData authData;
@@ -140,10 +150,17 @@ public class GeyserSession implements CommandSender {
     private AdvancementsCache advancementsCache;
     private BookEditCache bookEditCache;
     private ChunkCache chunkCache;
+    private final ChunkBlobCache chunkBlobCache;
+    private final ChunkTranslationQueue chunkTranslationQueue;
+    private final BlockUpdateBatch blockUpdateBatch;
     private EntityCache entityCache;
     private EntityEffectCache effectCache;
     private WorldCache worldCache;
     private WindowCache windowCache;
+    private final InventorySlotCache inventorySlotCache;
+    private final EntityMovementCache entityMovementCache;
+    private final EntityMetadataCache entityMetadataCache;
+    private final EntityInterestManager entityInterestManager;
     private final Int2ObjectMap<TeleportCache> teleportMap = new Int2ObjectOpenHashMap<>();
 
     @Setter
@@ -184,7 +201,10 @@ public class GeyserSession implements CommandSender {
     private BlockTranslator blockTranslator;
 
     private final Map<Vector3i, SkullPlayerEntity> skullCache = new ConcurrentHashMap<>();
-    private final Long2ObjectMap<ClientboundMapItemDataPacket> storedMaps = Long2ObjectMaps.synchronize(new Long2ObjectOpenHashMap<>());
+    /**
+     * The full map images the client may ask for, by map ID
+     */
+    private final Long2ObjectMap<MapImageCache.StoredMap> storedMaps = Long2ObjectMaps.synchronize(new Long2ObjectOpenHashMap<>());
 
     /**
      * A map of Vector3i positions to Java entity IDs.
@@ -416,31 +436,38 @@ public class GeyserSession implements CommandSender {
     private final Set<UUID> emotes = new HashSet<>();
 
     /**
-     * The thread that will run every 50 milliseconds - one Minecraft tick.
+     * Run at the end of every tick, after the entities are ticked.
      */
-    private ScheduledFuture<?> tickThread = null;
+    @Getter(AccessLevel.NONE)
+    private final List<Runnable> tickListeners = new CopyOnWriteArrayList<>();
 
     private MinecraftProtocol protocol;
 
     public GeyserSession(GeyserConnector connector, BedrockServerSession bedrockServerSession) {
         this.connector = connector;
         this.upstream = new UpstreamSession(bedrockServerSession);
+        this.eventLoop = connector.getSessionTickEngine().nextEventLoop();
 
         this.advancementsCache = new AdvancementsCache(this);
         this.bookEditCache = new BookEditCache(this);
         this.chunkCache = new ChunkCache(this);
+        this.chunkBlobCache = new ChunkBlobCache(this);
+        this.chunkTranslationQueue = new ChunkTranslationQueue(this);
+        this.blockUpdateBatch = new BlockUpdateBatch(this);
         this.entityCache = new EntityCache(this);
         this.effectCache = new EntityEffectCache();
         this.worldCache = new WorldCache(this);
         this.windowCache = new WindowCache(this);
+        this.inventorySlotCache = new InventorySlotCache(this);
+        this.entityMovementCache = new EntityMovementCache(this);
+        this.entityMetadataCache = new EntityMetadataCache(this);
+        this.entityInterestManager = new EntityInterestManager(this);
 
         this.resourcePackCache = new ResourcePackCache();
 
         this.collisionManager = new CollisionManager(this);
 
         this.playerEntity = new SessionPlayerEntity(this);
-        this.worldCache = new WorldCache(this);
-        this.windowCache = new WindowCache(this);
 
         this.playerInventory = new PlayerInventory();
         this.openInventory = null;
@@ -452,9 +479,7 @@ public class GeyserSession implements CommandSender {
         this.spawned = false;
         this.loggedIn = false;
 
-        // Make a copy to prevent ConcurrentModificationException
-        final List<GeyserSession> tmpPlayers = new ArrayList<>(connector.getPlayers());
-        tmpPlayers.forEach(player -> this.emotes.addAll(player.getEmotes()));
+        connector.getPlayers().forEach(player -> this.emotes.addAll(player.getEmotes()));
 
         bedrockServerSession.addDisconnectHandler(disconnectReason -> {
             InetAddress address = bedrockServerSession.getRealAddress().getAddress();
@@ -660,7 +685,7 @@ public class GeyserSession implements CommandSender {
         }
 
         // Start ticking
-        tickThread = connector.getGeneralThreadPool().scheduleAtFixedRate(this::tick, 50, 50, TimeUnit.MILLISECONDS);
+        connector.getSessionTickEngine().register(this);
 
         downstream = new Client(this.remoteAddress, this.remotePort, protocol, new TcpSessionFactory());
         disableSrvResolving();
@@ -723,6 +748,7 @@ public class GeyserSession implements CommandSender {
                 }
                 playerEntity.setUuid(uuid);
                 playerEntity.setUsername(protocol.getProfile().getName());
+                connector.getSessionManager().updateSession(GeyserSession.this);
 
                 String locale = clientData.getLanguageCode();
 
@@ -751,12 +777,14 @@ public class GeyserSession implements CommandSender {
 
             @Override
             public void packetReceived(PacketReceivedEvent event) {
-                if (!closed) {
+                Packet packet = event.getPacket();
+                executeInEventLoop(() -> {
                     // Required, or else Floodgate players break with Bukkit chunk caching
-                    if (event.getPacket() instanceof LoginSuccessPacket) {
-                        GameProfile profile = ((LoginSuccessPacket) event.getPacket()).getProfile();
+                    if (packet instanceof LoginSuccessPacket) {
+                        GameProfile profile = ((LoginSuccessPacket) packet).getProfile();
                         playerEntity.setUsername(profile.getName());
                         playerEntity.setUuid(profile.getId());
+                        connector.getSessionManager().updateSession(GeyserSession.this);
 
                         // Check if they are not using a linked account
                         if (remoteAuthType == AuthType.OFFLINE || playerEntity.getUuid().getMostSignificantBits() == 0) {
@@ -764,8 +792,8 @@ public class GeyserSession implements CommandSender {
                         }
                     }
 
-                    PacketTranslatorRegistry.JAVA_TRANSLATOR.translate(event.getPacket().getClass(), event.getPacket(), GeyserSession.this);
-                }
+                    PacketTranslatorRegistry.JAVA_TRANSLATOR.translate(packet.getClass(), packet, GeyserSession.this);
+                });
             }
 
             @Override
@@ -794,14 +822,15 @@ public class GeyserSession implements CommandSender {
                 downstream.getSession().disconnect(reason);
             }
             if (upstream != null && !upstream.isClosed()) {
-                connector.getPlayers().remove(this);
+                connector.removePlayer(this);
                 upstream.disconnect(reason);
             }
         }
 
-        if (tickThread != null) {
-            tickThread.cancel(true);
-        }
+        connector.getSessionTickEngine().unregister(this);
+        tickListeners.clear();
+
+        chunkTranslationQueue.clear();
 
         this.advancementsCache = null;
         this.bookEditCache = null;
@@ -819,9 +848,52 @@ public class GeyserSession implements CommandSender {
     }
 
     /**
-     * Called every 50 milliseconds - one Minecraft tick.
+     * Run something on the event loop of this session, unless the session is closed by then.
+     */
+    public void executeInEventLoop(Runnable runnable) {
+        eventLoop.execute(() -> {
+            if (closed) {
+                return;
+            }
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                connector.getLogger().error("Error in the event loop of " + getName(), t);
+            }
+        });
+    }
+
+    /**
+     * Run something on the event loop of this session - right away if this is already the event loop.
+     */
+    public void ensureInEventLoop(Runnable runnable) {
+        if (eventLoop.inEventLoop()) {
+            runnable.run();
+        } else {
+            executeInEventLoop(runnable);
+        }
+    }
+
+    /**
+     * Add something that should run every tick, until the session is closed.
+     */
+    public void addTickListener(Runnable listener) {
+        tickListeners.add(listener);
+    }
+
+    public void removeTickListener(Runnable listener) {
+        tickListeners.remove(listener);
+    }
+
+    /**
+     * Called every 50 milliseconds - one Minecraft tick - by the {@link SessionTickEngine}.
      */
     public void tick() {
+        blockUpdateBatch.flush();
+        entityInterestManager.tick();
+        entityMetadataCache.flush();
+        entityMovementCache.flush();
+
         // Check to see if the player's position needs updating - a position update should be sent once every 3 seconds
         if (spawned && (System.currentTimeMillis() - lastMovementTimestamp) > 3000) {
             // Recalculate in case something else changed position
@@ -838,6 +910,10 @@ public class GeyserSession implements CommandSender {
         for (Tickable entity : entityCache.getTickableEntities()) {
             entity.tick(this);
         }
+
+        for (Runnable listener : tickListeners) {
+            listener.run();
+        }
     }
 
     public void setAuthenticationData(AuthData authData) {
@@ -1091,6 +1167,7 @@ public class GeyserSession implements CommandSender {
      */
     public void sendUpstreamPacket(BedrockPacket packet) {
         if (upstream != null) {
+            entityMetadataCache.flushBefore(packet);
             upstream.sendPacket(packet);
         } else {
             connector.getLogger().debug("Tried to send upstream packet " + packet.getClass().getSimpleName() + " but the session was null");
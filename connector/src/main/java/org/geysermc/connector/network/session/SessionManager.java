@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.session;
+
+import org.geysermc.connector.network.session.auth.AuthData;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps track of every connected session.
+ * <p>
+ * Sessions are looked up by their Java UUID, XUID, Bedrock username or address without scanning every session, and
+ * iterating over {@link #getSessions()} works on a snapshot, so sessions may join or leave while doing so.
+ * Joining and leaving is much rarer than looking up sessions, so changes copy the session list and are serialized.
+ */
+public class SessionManager {
+    private final List<GeyserSession> sessions = new CopyOnWriteArrayList<>();
+    private final List<GeyserSession> sessionsView = Collections.unmodifiableList(sessions);
+
+    private final Map<UUID, GeyserSession> sessionsByUuid = new ConcurrentHashMap<>();
+    private final Map<String, GeyserSession> sessionsByXuid = new ConcurrentHashMap<>();
+    private final Map<String, GeyserSession> sessionsByName = new ConcurrentHashMap<>();
+    private final Map<InetSocketAddress, GeyserSession> sessionsByAddress = new ConcurrentHashMap<>();
+
+    /**
+     * The keys each session is currently indexed under, so they can be removed even after the session changed them
+     */
+    private final Map<GeyserSession, IndexKeys> indexKeys = new ConcurrentHashMap<>();
+
+    public synchronized void addSession(GeyserSession session) {
+        if (indexKeys.containsKey(session)) {
+            return;
+        }
+        sessions.add(session);
+        indexKeys.put(session, new IndexKeys());
+        updateSession(session);
+    }
+
+    public synchronized void removeSession(GeyserSession session) {
+        IndexKeys keys = indexKeys.remove(session);
+        if (keys == null) {
+            return;
+        }
+        sessions.remove(session);
+        removeKey(sessionsByUuid, keys.uuid, session);
+        removeKey(sessionsByXuid, keys.xuid, session);
+        removeKey(sessionsByName, keys.name, session);
+        removeKey(sessionsByAddress, keys.address, session);
+    }
+
+    /**
+     * Update the indexes of a session after its Java UUID or authentication data changed
+     */
+    public synchronized void updateSession(GeyserSession session) {
+        IndexKeys keys = indexKeys.get(session);
+        if (keys == null) {
+            // Not connected (anymore)
+            return;
+        }
+
+        UUID uuid = session.getPlayerEntity() != null ? session.getPlayerEntity().getUuid() : null;
+        AuthData authData = session.getAuthData();
+        String xuid = authData != null ? authData.getXboxUUID() : null;
+        String name = authData != null ? authData.getName().toLowerCase(Locale.ROOT) : null;
+        InetSocketAddress address = session.getSocketAddress();
+
+        keys.uuid = updateKey(sessionsByUuid, keys.uuid, uuid, session);
+        keys.xuid = updateKey(sessionsByXuid, keys.xuid, xuid, session);
+        keys.name = updateKey(sessionsByName, keys.name, name, session);
+        keys.address = updateKey(sessionsByAddress, keys.address, address, session);
+    }
+
+    /**
+     * @return every connected session. Iterating over it never throws a
+     * {@link java.util.ConcurrentModificationException}; sessions that join or leave while iterating may not be seen.
+     */
+    public List<GeyserSession> getSessions() {
+        return sessionsView;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public GeyserSession getSessionByUuid(UUID uuid) {
+        return uuid != null ? sessionsByUuid.get(uuid) : null;
+    }
+
+    public GeyserSession getSessionByXuid(String xuid) {
+        return xuid != null ? sessionsByXuid.get(xuid) : null;
+    }
+
+    /**
+     * @param name the Bedrock username, ignoring case
+     */
+    public GeyserSession getSessionByName(String name) {
+        return name != null ? sessionsByName.get(name.toLowerCase(Locale.ROOT)) : null;
+    }
+
+    public GeyserSession getSessionByAddress(InetSocketAddress address) {
+        return address != null ? sessionsByAddress.get(address) : null;
+    }
+
+    public synchronized void clear() {
+        sessions.clear();
+        indexKeys.clear();
+        sessionsByUuid.clear();
+        sessionsByXuid.clear();
+        sessionsByName.clear();
+        sessionsByAddress.clear();
+    }
+
+    private static <K> K updateKey(Map<K, GeyserSession> index, K oldKey, K newKey, GeyserSession session) {
+        if (!Objects.equals(oldKey, newKey)) {
+            removeKey(index, oldKey, session);
+        }
+        if (newKey != null) {
+            // The newest session wins if two sessions share a key, e.g. while a player reconnects
+            index.put(newKey, session);
+        }
+        return newKey;
+    }
+
+    private static <K> void removeKey(Map<K, GeyserSession> index, K key, GeyserSession session) {
+        if (key != null) {
+            // Don't remove another session that took over this key
+            index.remove(key, session);
+        }
+    }
+
+    private static class IndexKeys {
+        private UUID uuid;
+        private String xuid;
+        private String name;
+        private InetSocketAddress address;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.session;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.geysermc.connector.GeyserConnector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Ticks every session, every 50 milliseconds - one Minecraft tick.
+ * <p>
+ * A single timer starts each tick, and every session is ticked on its own event loop - the one its Java packets are
+ * translated on - so the tick never runs alongside a packet of the same session. The sessions are spread over a fixed
+ * set of event loops, so one slow session only holds up the sessions sharing its loop. The timer doesn't wait for the
+ * event loops; a session that is still busy with its previous tick skips the next one. Per-session work that should
+ * happen every tick is added with {@link GeyserSession#addTickListener(Runnable)}.
+ */
+public class SessionTickEngine {
+    public static final long TICK_MILLIS = 50;
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS);
+
+    private final ScheduledExecutorService timer;
+    private final EventLoopGroup eventLoops;
+    /**
+     * Every session, and whether it is being ticked right now
+     */
+    private final Map<GeyserSession, AtomicBoolean> sessions = new ConcurrentHashMap<>();
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong overruns = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong totalDuration = new AtomicLong();
+    private final LongAccumulator maximumDuration = new LongAccumulator(Math::max, 0);
+    private volatile long lastDuration;
+
+    public SessionTickEngine(int threads) {
+        this.timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("Geyser Tick Timer")
+                .setDaemon(true)
+                .build());
+        this.eventLoops = new DefaultEventLoopGroup(threads, new DefaultThreadFactory("Geyser Session", true));
+
+        timer.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the event loop a new session should do its work on
+     */
+    public EventLoop nextEventLoop() {
+        return eventLoops.next();
+    }
+
+    public void register(GeyserSession session) {
+        sessions.put(session, new AtomicBoolean());
+    }
+
+    public void unregister(GeyserSession session) {
+        sessions.remove(session);
+    }
+
+    private void tick() {
+        long start = System.nanoTime();
+        List<SessionTick> due = new ArrayList<>(sessions.size());
+        for (Map.Entry<GeyserSession, AtomicBoolean> entry : sessions.entrySet()) {
+            if (entry.getValue().compareAndSet(false, true)) {
+                due.add(new SessionTick(entry.getKey(), entry.getValue()));
+            } else {
+                // The previous tick of this session hasn't finished yet
+                skippedTicks.incrementAndGet();
+            }
+        }
+
+        if (due.isEmpty()) {
+            onTickDone(start);
+            return;
+        }
+        TickRun run = new TickRun(start, due.size());
+        for (SessionTick sessionTick : due) {
+            sessionTick.session.getEventLoop().execute(() -> {
+                tickSession(sessionTick);
+                run.onSessionTicked();
+            });
+        }
+    }
+
+    private void onTickDone(long start) {
+        long duration = System.nanoTime() - start;
+        ticks.incrementAndGet();
+        totalDuration.addAndGet(duration);
+        maximumDuration.accumulate(duration);
+        lastDuration = duration;
+        if (duration > TICK_NANOS) {
+            // Sessions that were still busy have skipped the next tick
+            overruns.incrementAndGet();
+        }
+    }
+
+    private static void tickSession(SessionTick sessionTick) {
+        GeyserSession session = sessionTick.session;
+        try {
+            if (!session.isClosed()) {
+                session.tick();
+            }
+        } catch (Throwable t) {
+            GeyserConnector.getInstance().getLogger().error("Error while ticking session " + session.getName(), t);
+        } finally {
+            sessionTick.inProgress.set(false);
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    /**
+     * @return the amount of ticks that took longer than {@link #TICK_MILLIS}
+     */
+    public long getOverruns() {
+        return overruns.get();
+    }
+
+    /**
+     * @return the amount of times a session wasn't ticked because its previous tick was still running
+     */
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+
+    /**
+     * @return the average time, in milliseconds, it took to tick every session
+     */
+    public double getAverageDuration() {
+        long ticks = this.ticks.get();
+        return ticks == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalDuration.get() / ticks) / 1000D;
+    }
+
+    /**
+     * @return the longest time, in milliseconds, it took to tick every session
+     */
+    public double getMaximumDuration() {
+        return TimeUnit.NANOSECONDS.toMicros(maximumDuration.get()) / 1000D;
+    }
+
+    /**
+     * @return the time, in milliseconds, the last tick took
+     */
+    public double getLastDuration() {
+        return TimeUnit.NANOSECONDS.toMicros(lastDuration) / 1000D;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        eventLoops.shutdownGracefully();
+        sessions.clear();
+    }
+
+    private static class SessionTick {
+        private final GeyserSession session;
+        private final AtomicBoolean inProgress;
+
+        SessionTick(GeyserSession session, AtomicBoolean inProgress) {
+            this.session = session;
+            this.inProgress = inProgress;
+        }
+    }
+
+    /**
+     * One tick of all sessions, which is done once the last session has been ticked
+     */
+    private class TickRun {
+        private final long start;
+        private final AtomicInteger remaining;
+
+        TickRun(long start, int sessions) {
+            this.start = start;
+            this.remaining = new AtomicInteger(sessions);
+        }
+
+        void onSessionTicked() {
+            if (remaining.decrementAndGet() == 0) {
+                onTickDone(start);
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.session.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import lombok.Setter;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.translators.world.chunk.ChunkPayloadCache;
+import org.geysermc.connector.utils.MathUtils;
+
+/**
+ * Keeps track of the chunk blobs that have been sent to a client supporting the client blob cache, until the client
+ * tells us whether it needs the blob's data or already has it cached.
+ * <p>
+ * A blob is only forgotten once the client has responded to it, or once every chunk it was sent in is unloaded -
+ * otherwise the client could ask for a blob we no longer have, and be left with a hole in its world.
+ */
+public class ChunkBlobCache {
+    /**
+     * If a client leaves this many blobs unanswered, chunks are sent to it in full from then on
+     */
+    private static final int MAXIMUM_PENDING_BLOBS = 8192;
+
+    private final GeyserSession session;
+    private final boolean allowed;
+    /**
+     * Set through the ClientCacheStatusPacket sent by the client while logging in.
+     */
+    @Setter
+    private volatile boolean supported;
+    /**
+     * Set once the client has too many unanswered blobs
+     */
+    private volatile boolean overflowed;
+
+    private final Long2ObjectMap<PendingBlob> pendingBlobs = new Long2ObjectOpenHashMap<>();
+    /**
+     * The blobs still waiting for a response, by the position of the chunk they were sent in
+     */
+    private final Long2ObjectMap<LongList> chunkBlobs = new Long2ObjectOpenHashMap<>();
+    private int pendingReferences = 0;
+
+    public ChunkBlobCache(GeyserSession session) {
+        this.session = session;
+        this.allowed = session.getConnector().getConfig().isClientChunkCaching();
+    }
+
+    /**
+     * @return true if chunks should be sent as blob IDs to this client
+     */
+    public boolean isEnabled() {
+        return allowed && supported && !overflowed;
+    }
+
+    /**
+     * Store all blobs of this chunk until the client has responded to them, or the chunk is unloaded.
+     */
+    public synchronized void addBlobs(int chunkX, int chunkZ, ChunkPayloadCache.TranslatedChunk chunk) {
+        long chunkPosition = MathUtils.chunkPositionToLong(chunkX, chunkZ);
+        LongList blobIds = chunkBlobs.get(chunkPosition);
+        if (blobIds == null) {
+            blobIds = new LongArrayList();
+            chunkBlobs.put(chunkPosition, blobIds);
+        }
+
+        long[] chunkBlobIds = chunk.getBlobIds();
+        for (int i = 0; i < chunkBlobIds.length; i++) {
+            PendingBlob blob = pendingBlobs.get(chunkBlobIds[i]);
+            if (blob == null) {
+                blob = new PendingBlob(chunk, i);
+                pendingBlobs.put(chunkBlobIds[i], blob);
+            }
+            // Identical sub chunks are common - the client will respond to each of them
+            blob.chunkPositions.add(chunkPosition);
+            blobIds.add(chunkBlobIds[i]);
+        }
+
+        pendingReferences += chunkBlobIds.length;
+        if (pendingReferences > MAXIMUM_PENDING_BLOBS && !overflowed) {
+            // Dropping unanswered blobs could leave holes in the client's world, so stop sending new ones instead
+            overflowed = true;
+            session.getConnector().getLogger().debug(session.getName() + " left too many chunk blobs unanswered; " +
+                    "sending chunks in full from now on");
+        }
+    }
+
+    /**
+     * The client does not have this blob cached, so it needs to be sent.
+     *
+     * @return the data of the blob, or null if it was never sent or every chunk it was sent in has been unloaded
+     */
+    public synchronized byte[] getMissingBlob(long blobId) {
+        PendingBlob blob = pendingBlobs.get(blobId);
+        if (blob == null) {
+            return null;
+        }
+        release(blobId, blob);
+        return blob.chunk.getBlob(blob.index);
+    }
+
+    /**
+     * The client already has this blob cached.
+     */
+    public synchronized void acknowledgeBlob(long blobId) {
+        PendingBlob blob = pendingBlobs.get(blobId);
+        if (blob != null) {
+            release(blobId, blob);
+        }
+    }
+
+    /**
+     * Forget the unanswered blobs of a chunk the client no longer has.
+     */
+    public synchronized void removeChunk(int chunkX, int chunkZ) {
+        long chunkPosition = MathUtils.chunkPositionToLong(chunkX, chunkZ);
+        LongList blobIds = chunkBlobs.remove(chunkPosition);
+        if (blobIds == null) {
+            return;
+        }
+        for (int i = 0; i < blobIds.size(); i++) {
+            long blobId = blobIds.getLong(i);
+            PendingBlob blob = pendingBlobs.get(blobId);
+            if (blob != null && blob.chunkPositions.rem(chunkPosition)) {
+                pendingReferences--;
+                if (blob.chunkPositions.isEmpty()) {
+                    pendingBlobs.remove(blobId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget every unanswered blob, such as when the player switches dimension and the client drops its chunks.
+     */
+    public synchronized void clear() {
+        pendingBlobs.clear();
+        chunkBlobs.clear();
+        pendingReferences = 0;
+    }
+
+    private void release(long blobId, PendingBlob blob) {
+        // The client doesn't say which chunk it is responding for; any chunk that sent this blob will do
+        long chunkPosition = blob.chunkPositions.removeLong(0);
+        pendingReferences--;
+        if (blob.chunkPositions.isEmpty()) {
+            pendingBlobs.remove(blobId);
+        }
+
+        LongList blobIds = chunkBlobs.get(chunkPosition);
+        if (blobIds != null) {
+            blobIds.rem(blobId);
+            if (blobIds.isEmpty()) {
+                chunkBlobs.remove(chunkPosition);
+            }
+        }
+    }
+
+    /**
+     * References the chunk the blob is a part of, so the data is only copied out if the client actually asks for it.
+     */
+    private static class PendingBlob {
+        private final ChunkPayloadCache.TranslatedChunk chunk;
+        private final int index;
+        /**
+         * The position of each chunk this blob was sent in that the client has yet to respond to
+         */
+        private final LongList chunkPositions = new LongArrayList(1);
+
+        PendingBlob(ChunkPayloadCache.TranslatedChunk chunk, int index) {
+            this.chunk = chunk;
+            this.index = index;
+        }
+    }
+}
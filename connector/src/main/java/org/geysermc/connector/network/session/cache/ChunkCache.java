@@ -29,29 +29,83 @@ import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
 import com.github.steveice10.mc.protocol.data.game.chunk.Column;
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import lombok.Getter;
 import lombok.Setter;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.world.block.BlockTranslator;
+import org.geysermc.connector.network.translators.world.chunk.CompactChunkColumn;
+import org.geysermc.connector.network.translators.world.chunk.CompactChunkSection;
 import org.geysermc.connector.utils.MathUtils;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ChunkCache {
+    private final GeyserSession session;
     private final boolean cache;
+    /**
+     * If only the block states of each section are kept, with identical sections shared between sessions
+     */
+    @Getter
+    private final boolean compact;
+    /**
+     * If identical columns of a compact cache are shared between sessions as well
+     */
+    private final boolean sharedColumns;
     private final Long2ObjectMap<Column> chunks;
+    private final Long2ObjectMap<CompactChunkColumn> compactChunks;
+
+    /**
+     * Counts the changes made to cached columns, once before and once after each change, so work that reads a column
+     * off the event loop of the session can tell whether the column was changed while it was being read
+     */
+    private final AtomicInteger blockChanges = new AtomicInteger();
 
     @Setter
     private int minY;
 
     public ChunkCache(GeyserSession session) {
+        this.session = session;
         this.cache = !session.getConnector().getWorldManager().hasOwnChunkCache(); // To prevent Spigot from initializing
-        chunks = cache ? new Long2ObjectOpenHashMap<>() : null;
+        this.compact = cache && session.getConnector().getConfig().isCompactChunkCache();
+        this.sharedColumns = compact && session.getConnector().getConfig().isSharedChunkColumns();
+        chunks = cache && !compact ? new Long2ObjectOpenHashMap<>() : null;
+        compactChunks = compact ? new Long2ObjectOpenHashMap<>() : null;
     }
 
     public Column addToCache(Column chunk) {
+        // Batched block changes would be sent on top of the newer column
+        session.getBlockUpdateBatch().removeChunk(chunk.getX(), chunk.getZ());
+
         if (!cache) {
             return chunk;
         }
 
         long chunkPosition = MathUtils.chunkPositionToLong(chunk.getX(), chunk.getZ());
+        if (compact) {
+            CompactChunkColumn existingColumn;
+            if (chunk.getBiomeData() == null // Same as below; since 1.17 servers only send full columns, though
+                    && (existingColumn = compactChunks.get(chunkPosition)) != null) {
+                if (existingColumn.isShared()) {
+                    existingColumn = existingColumn.copy();
+                    compactChunks.put(chunkPosition, existingColumn);
+                }
+                boolean changed = false;
+                for (int i = 0; i < chunk.getChunks().length && i < existingColumn.getSectionCount(); i++) {
+                    if (chunk.getChunks()[i] != null) {
+                        existingColumn.setSection(i, CompactChunkSection.intern(chunk.getChunks()[i]));
+                        changed = true;
+                    }
+                }
+                // The Java sections of the other sections are gone, so only the new ones can be translated
+                return changed ? chunk : null;
+            }
+            compactChunks.put(chunkPosition, CompactChunkColumn.create(chunk.getChunks(), sharedColumns));
+            return chunk;
+        }
+
         Column existingChunk;
         if (chunk.getBiomeData() == null // Only consider merging columns if the new chunk isn't a full chunk
             && (existingChunk = chunks.getOrDefault(chunkPosition, null)) != null) { // Column is already present in cache, we can merge with existing
@@ -69,7 +123,13 @@ public class ChunkCache {
         }
     }
 
+    /**
+     * @return the cached column, or null if it isn't cached or the cache is {@link #isCompact() compact}
+     */
     public Column getChunk(int chunkX, int chunkZ)  {
+        if (chunks == null) {
+            return null;
+        }
         long chunkPosition = MathUtils.chunkPositionToLong(chunkX, chunkZ);
         return chunks.getOrDefault(chunkPosition, null);
     }
@@ -79,6 +139,35 @@ public class ChunkCache {
             return;
         }
 
+        if (compact) {
+            long chunkPosition = MathUtils.chunkPositionToLong(x >> 4, z >> 4);
+            CompactChunkColumn column = compactChunks.get(chunkPosition);
+            if (column == null) {
+                return;
+            }
+
+            int sectionY = (y >> 4) - getChunkMinY();
+            if (y < minY || sectionY >= column.getSectionCount()) {
+                // Y likely goes above or below the height limit of this world
+                return;
+            }
+
+            CompactChunkSection section = column.getSection(sectionY);
+            if (section != null) {
+                // Other sessions may be looking at this column and section too, so this session gets its own copies
+                if (column.isShared()) {
+                    column = column.copy();
+                    compactChunks.put(chunkPosition, column);
+                }
+                if (section.isShared()) {
+                    section = section.copy();
+                    column.setSection(sectionY, section);
+                }
+                section.set(x & 0xF, y & 0xF, z & 0xF, block);
+            }
+            return;
+        }
+
         Column column = this.getChunk(x >> 4, z >> 4);
         if (column == null) {
             return;
@@ -91,15 +180,41 @@ public class ChunkCache {
 
         Chunk chunk = column.getChunks()[(y >> 4) - getChunkMinY()];
         if (chunk != null) {
+            blockChanges.incrementAndGet();
             chunk.set(x & 0xF, y & 0xF, z & 0xF, block);
+            blockChanges.incrementAndGet();
         }
     }
 
+    /**
+     * @return a number that changes whenever a block of a cached column is changed. Compact caches never change the
+     * columns that are passed to {@link #addToCache(Column)}, so for them it stays the same.
+     */
+    public int getBlockChanges() {
+        return blockChanges.get();
+    }
+
     public int getBlockAt(int x, int y, int z) {
         if (!cache) {
             return BlockTranslator.JAVA_AIR_ID;
         }
 
+        if (compact) {
+            CompactChunkColumn column = compactChunks.get(MathUtils.chunkPositionToLong(x >> 4, z >> 4));
+            if (column == null) {
+                return BlockTranslator.JAVA_AIR_ID;
+            }
+
+            int sectionY = (y >> 4) - getChunkMinY();
+            if (y < minY || sectionY >= column.getSectionCount()) {
+                // Y likely goes above or below the height limit of this world
+                return BlockTranslator.JAVA_AIR_ID;
+            }
+
+            CompactChunkSection section = column.getSection(sectionY);
+            return section != null ? section.get(x & 0xF, y & 0xF, z & 0xF) : BlockTranslator.JAVA_AIR_ID;
+        }
+
         Column column = this.getChunk(x >> 4, z >> 4);
         if (column == null) {
             return BlockTranslator.JAVA_AIR_ID;
@@ -119,12 +234,83 @@ public class ChunkCache {
     }
 
     public void removeChunk(int chunkX, int chunkZ) {
+        // Don't bother translating a chunk that the client won't keep anyway
+        session.getChunkTranslationQueue().cancel(chunkX, chunkZ);
+        session.getChunkBlobCache().removeChunk(chunkX, chunkZ);
+        session.getBlockUpdateBatch().removeChunk(chunkX, chunkZ);
+
         if (!cache) {
             return;
         }
 
         long chunkPosition = MathUtils.chunkPositionToLong(chunkX, chunkZ);
-        chunks.remove(chunkPosition);
+        if (compact) {
+            compactChunks.remove(chunkPosition);
+        } else {
+            chunks.remove(chunkPosition);
+        }
+    }
+
+    /**
+     * @return how many columns are cached for this session
+     */
+    public int getCachedChunks() {
+        if (!cache) {
+            return 0;
+        }
+        return compact ? compactChunks.size() : chunks.size();
+    }
+
+    /**
+     * Estimate the heap used by this session's chunk cache.
+     *
+     * @param includeShared if sections that may be shared with other sessions should be counted as well
+     * @return a rough estimate in bytes; tile entities and height maps of non-compact caches are not counted
+     */
+    public long getMemoryUsage(boolean includeShared) {
+        if (!cache) {
+            return 0;
+        }
+
+        long memoryUsage = 0;
+        if (compact) {
+            // Shared columns and sections can appear several times in the same session, so only count them once
+            Set<Object> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (CompactChunkColumn column : compactChunks.values()) {
+                if (!counted.add(column)) {
+                    continue;
+                }
+                if (includeShared || !column.isShared()) {
+                    memoryUsage += column.getMemoryUsage();
+                }
+                for (int i = 0; i < column.getSectionCount(); i++) {
+                    CompactChunkSection section = column.getSection(i);
+                    if (section != null && (includeShared || !section.isShared()) && counted.add(section)) {
+                        memoryUsage += section.getMemoryUsage();
+                    }
+                }
+            }
+            return memoryUsage;
+        }
+
+        for (Column column : chunks.values()) {
+            for (Chunk chunk : column.getChunks()) {
+                if (chunk != null) {
+                    memoryUsage += ((long) chunk.getStorage().getData().length << 3) + ((long) chunk.getPalette().size() << 2);
+                }
+            }
+            if (column.getBiomeData() != null) {
+                memoryUsage += (long) column.getBiomeData().length << 2;
+            }
+        }
+        return memoryUsage;
+    }
+
+    /**
+     * @return if Geyser keeps track of chunks itself, rather than the platform
+     */
+    public boolean isEnabled() {
+        return cache;
     }
 
     public int getChunkMinY() {
@@ -64,7 +64,8 @@ public class EntityCache {
 
     public void spawnEntity(Entity entity) {
         if (cacheEntity(entity)) {
-            entity.spawnEntity(session);
+            // Only spawned on the client if it's close enough
+            session.getEntityInterestManager().spawnEntity(entity);
 
             if (entity instanceof Tickable) {
                 // Start ticking it
@@ -84,16 +85,28 @@ public class EntityCache {
     }
 
     public boolean removeEntity(Entity entity, boolean force) {
-        if (entity != null && entity.isValid() && (force || entity.despawnEntity(session))) {
-            long geyserId = entityIdTranslations.remove(entity.getEntityId());
-            entities.remove(geyserId);
-
-            if (entity instanceof Tickable) {
-                tickableEntities.remove(entity);
+        if (entity == null) {
+            return false;
+        }
+        EntityInterestManager interestManager = session.getEntityInterestManager();
+        // Prevents the entity from being shown or hidden while it's removed
+        synchronized (interestManager) {
+            // The client doesn't have an entity that is hidden, so there is nothing to despawn
+            boolean hidden = interestManager.isHidden(entity);
+            if ((hidden || entity.isValid()) && (force || hidden || entity.despawnEntity(session))) {
+                long geyserId = entityIdTranslations.remove(entity.getEntityId());
+                entities.remove(geyserId);
+                interestManager.removeEntity(entity);
+                session.getEntityMovementCache().invalidate(entity);
+                session.getEntityMetadataCache().invalidate(entity);
+
+                if (entity instanceof Tickable) {
+                    tickableEntities.remove(entity);
+                }
+                return true;
             }
-            return true;
+            return false;
         }
-        return false;
     }
 
     public void removeAllEntities() {
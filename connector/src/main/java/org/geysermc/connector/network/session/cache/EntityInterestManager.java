@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.session.cache;
+
+import com.nukkitx.math.vector.Vector3f;
+import com.nukkitx.protocol.bedrock.data.entity.EntityFlag;
+import com.nukkitx.protocol.bedrock.data.entity.EntityLinkData;
+import com.nukkitx.protocol.bedrock.packet.MobEffectPacket;
+import com.nukkitx.protocol.bedrock.packet.SetEntityLinkPacket;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import org.geysermc.connector.entity.Entity;
+import org.geysermc.connector.entity.ItemEntity;
+import org.geysermc.connector.entity.LivingEntity;
+import org.geysermc.connector.entity.Tickable;
+import org.geysermc.connector.entity.living.ArmorStandEntity;
+import org.geysermc.connector.entity.living.monster.WitherEntity;
+import org.geysermc.connector.entity.player.PlayerEntity;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.SessionTickEngine;
+import org.geysermc.connector.utils.MathUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which entities are shown to the Bedrock client, based on how far away they are.
+ * <p>
+ * Mobs and items further away than the configured culling distance are kept in the {@link EntityCache} and updated
+ * like any other entity, but aren't spawned on the client until they come closer. Entities are tracked in a grid of
+ * 16x16 block columns, so only the columns along the edge of the culling distance have to be checked one by one.
+ * <p>
+ * The tick runs on the event loop of the session, where the packets that change entities are translated, so an entity
+ * is never spawned or despawned halfway through an update to its metadata, passengers or position. Entities are also
+ * spawned and despawned while holding this object's lock, which {@link EntityCache#removeEntity(Entity, boolean)}
+ * takes too, so an entity can't be shown again after it was removed.
+ * <p>
+ * Links between entities and mob effects aren't part of the spawn packet, so they are sent again when an entity is
+ * shown. Entities that are linked to others are never hidden.
+ */
+public class EntityInterestManager {
+    /**
+     * How often, in ticks, entities are checked for coming in or going out of range
+     */
+    private static final int UPDATE_INTERVAL = 10;
+    /**
+     * Entities are only hidden again once they are this many blocks further away than the culling distance, so an
+     * entity moving along the edge isn't spawned and removed over and over
+     */
+    private static final int HIDE_MARGIN = 8;
+    private static final int CELL_SHIFT = 4;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * Entities closer than this, in blocks, have their movement sent every tick.
+     * Further away than that, it is sent every other tick, and further than twice this every fourth tick.
+     */
+    private static final int FULL_RATE_DISTANCE = 24;
+
+    private final GeyserSession session;
+    /**
+     * The culling distance in blocks, or 0 if every entity is shown
+     */
+    private final int distance;
+
+    private final Long2ObjectMap<Set<Entity>> cells = new Long2ObjectOpenHashMap<>();
+    private final Object2LongMap<Entity> entityCells = new Object2LongOpenHashMap<>();
+    private final Set<Entity> hiddenEntities = new ObjectOpenHashSet<>();
+    /**
+     * The active mob effects of tracked entities, by Bedrock effect ID
+     */
+    private final Map<Entity, Int2ObjectMap<ActiveEffect>> effects = new Object2ObjectOpenHashMap<>();
+    private int ticks = 0;
+
+    public EntityInterestManager(GeyserSession session) {
+        this.session = session;
+        this.distance = Math.max(0, session.getConnector().getConfig().getEntityCullingDistance());
+    }
+
+    /**
+     * Spawn this entity on the client if it is close enough, and start tracking it.
+     */
+    public synchronized void spawnEntity(Entity entity) {
+        if (distance == 0 || !isCullable(entity)) {
+            entity.spawnEntity(session);
+            return;
+        }
+
+        long cell = getCell(entity.getPosition());
+        entityCells.put(entity, cell);
+        addToCell(cell, entity);
+
+        if (session.getPlayerEntity() == null || getDistanceSquared(entity.getPosition()) <= distance * distance) {
+            entity.spawnEntity(session);
+        } else {
+            hiddenEntities.add(entity);
+        }
+    }
+
+    /**
+     * Stop tracking this entity. The caller is responsible for despawning it if it isn't hidden.
+     */
+    public synchronized void removeEntity(Entity entity) {
+        hiddenEntities.remove(entity);
+        effects.remove(entity);
+        if (entityCells.containsKey(entity)) {
+            long cell = entityCells.removeLong(entity);
+            Set<Entity> entities = cells.get(cell);
+            if (entities != null) {
+                entities.remove(entity);
+                if (entities.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether this entity is being kept from the client because it is too far away
+     */
+    public synchronized boolean isHidden(Entity entity) {
+        return hiddenEntities.contains(entity);
+    }
+
+    /**
+     * Send a mob effect being added to or removed from an entity, unless the entity is hidden. The effects of tracked
+     * entities are remembered, so they can be applied again when the entity is shown.
+     */
+    public synchronized void sendEffect(Entity entity, MobEffectPacket packet) {
+        if (entityCells.containsKey(entity)) {
+            Int2ObjectMap<ActiveEffect> entityEffects = effects.get(entity);
+            if (packet.getEvent() == MobEffectPacket.Event.REMOVE) {
+                if (entityEffects != null) {
+                    entityEffects.remove(packet.getEffectId());
+                    if (entityEffects.isEmpty()) {
+                        effects.remove(entity);
+                    }
+                }
+            } else {
+                if (entityEffects == null) {
+                    entityEffects = new Int2ObjectOpenHashMap<>();
+                    effects.put(entity, entityEffects);
+                }
+                entityEffects.put(packet.getEffectId(), new ActiveEffect(packet, System.currentTimeMillis()));
+            }
+        }
+
+        if (!hiddenEntities.contains(entity)) {
+            session.sendUpstreamPacket(packet);
+        }
+    }
+
+    /**
+     * Move a tracked entity to the grid cell of its current position.
+     */
+    public synchronized void updatePosition(Entity entity) {
+        if (entityCells.isEmpty() || !entityCells.containsKey(entity)) {
+            return;
+        }
+        long cell = getCell(entity.getPosition());
+        long oldCell = entityCells.getLong(entity);
+        if (oldCell == cell) {
+            return;
+        }
+        Set<Entity> entities = cells.get(oldCell);
+        if (entities != null) {
+            entities.remove(entity);
+            if (entities.isEmpty()) {
+                cells.remove(oldCell);
+            }
+        }
+        entityCells.put(entity, cell);
+        addToCell(cell, entity);
+    }
+
+    /**
+     * Show the entities that came into range and hide the ones that went out of range. Called every tick.
+     */
+    public synchronized void tick() {
+        if (distance == 0 || cells.isEmpty() || ++ticks % UPDATE_INTERVAL != 0 || session.getPlayerEntity() == null) {
+            return;
+        }
+
+        Vector3f playerPosition = session.getPlayerEntity().getPosition();
+        int playerCellX = (int) Math.floor(playerPosition.getX()) >> CELL_SHIFT;
+        int playerCellZ = (int) Math.floor(playerPosition.getZ()) >> CELL_SHIFT;
+        int showDistanceSquared = distance * distance;
+        int hideDistance = distance + HIDE_MARGIN;
+        int hideDistanceSquared = hideDistance * hideDistance;
+        // Shown entities in cells up to this many cells away are never far enough away horizontally to be hidden,
+        // and every entity in cells further away than outerCells is
+        int innerCells = (int) (hideDistance / (CELL_SIZE * MathUtils.SQRT_OF_TWO)) - 1;
+        int outerCells = hideDistance / CELL_SIZE + 1;
+
+        for (Long2ObjectMap.Entry<Set<Entity>> entry : cells.long2ObjectEntrySet()) {
+            long cell = entry.getLongKey();
+            int cellDistance = Math.max(Math.abs(getCellX(cell) - playerCellX), Math.abs(getCellZ(cell) - playerCellZ));
+
+            for (Entity entity : entry.getValue()) {
+                boolean hidden = hiddenEntities.contains(entity);
+                if (cellDistance > outerCells) {
+                    if (!hidden) {
+                        hide(entity);
+                    }
+                    continue;
+                }
+                if (!hidden && cellDistance <= innerCells) {
+                    continue;
+                }
+
+                double distanceSquared = getDistanceSquared(entity.getPosition());
+                if (hidden && distanceSquared <= showDistanceSquared) {
+                    show(entity);
+                } else if (!hidden && distanceSquared > hideDistanceSquared) {
+                    hide(entity);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return every how many ticks the movement of an entity at this position should be sent
+     */
+    public int getMovementInterval(Vector3f position) {
+        if (distance == 0 || session.getPlayerEntity() == null) {
+            return 1;
+        }
+        double distanceSquared = getDistanceSquared(position);
+        if (distanceSquared <= FULL_RATE_DISTANCE * FULL_RATE_DISTANCE) {
+            return 1;
+        }
+        if (distanceSquared <= 4 * FULL_RATE_DISTANCE * FULL_RATE_DISTANCE) {
+            return 2;
+        }
+        return 4;
+    }
+
+    /**
+     * Forget every entity, such as when the player switches dimension.
+     */
+    public synchronized void clear() {
+        cells.clear();
+        entityCells.clear();
+        hiddenEntities.clear();
+        effects.clear();
+    }
+
+    public synchronized int getHiddenEntityCount() {
+        return hiddenEntities.size();
+    }
+
+    private void show(Entity entity) {
+        hiddenEntities.remove(entity);
+        entity.spawnEntity(session);
+        if (entity instanceof LivingEntity) {
+            // Not part of the spawn packet
+            ((LivingEntity) entity).updateAllEquipment(session);
+            entity.updateBedrockAttributes(session);
+        }
+        sendLinks(entity);
+        sendEffects(entity);
+    }
+
+    /**
+     * Send the links of an entity that became linked while it was hidden
+     */
+    private void sendLinks(Entity entity) {
+        boolean rider = true;
+        for (long passengerId : entity.getPassengers()) {
+            Entity passenger = getEntityByJavaId(passengerId);
+            // A hidden passenger is linked once it is shown itself
+            if (passenger != null && !hiddenEntities.contains(passenger)) {
+                sendLink(entity, passenger, rider ? EntityLinkData.Type.RIDER : EntityLinkData.Type.PASSENGER);
+            }
+            rider = false;
+        }
+
+        if (entity.getMetadata().getFlags().getFlag(EntityFlag.RIDING)) {
+            Long2ObjectMap<Entity> entities = session.getEntityCache().getEntities();
+            synchronized (entities) {
+                for (Entity vehicle : entities.values()) {
+                    if (vehicle.getPassengers().contains(entity.getEntityId())) {
+                        if (!hiddenEntities.contains(vehicle)) {
+                            sendLink(vehicle, entity, getFirstPassenger(vehicle) == entity.getEntityId() ?
+                                    EntityLinkData.Type.RIDER : EntityLinkData.Type.PASSENGER);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void sendLink(Entity vehicle, Entity passenger, EntityLinkData.Type type) {
+        SetEntityLinkPacket linkPacket = new SetEntityLinkPacket();
+        linkPacket.setEntityLink(new EntityLinkData(vehicle.getGeyserId(), passenger.getGeyserId(), type, false));
+        session.sendUpstreamPacket(linkPacket);
+    }
+
+    /**
+     * Apply the effects of an entity again, with the time they have left
+     */
+    private void sendEffects(Entity entity) {
+        Int2ObjectMap<ActiveEffect> entityEffects = effects.get(entity);
+        if (entityEffects == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ActiveEffect effect : entityEffects.values()) {
+            int duration = effect.packet.getDuration() - (int) ((now - effect.time) / SessionTickEngine.TICK_MILLIS);
+            if (duration <= 0) {
+                continue;
+            }
+            MobEffectPacket mobEffectPacket = new MobEffectPacket();
+            mobEffectPacket.setAmplifier(effect.packet.getAmplifier());
+            mobEffectPacket.setDuration(duration);
+            mobEffectPacket.setEvent(MobEffectPacket.Event.ADD);
+            mobEffectPacket.setRuntimeEntityId(entity.getGeyserId());
+            mobEffectPacket.setParticles(effect.packet.isParticles());
+            mobEffectPacket.setEffectId(effect.packet.getEffectId());
+            session.sendUpstreamPacket(mobEffectPacket);
+        }
+    }
+
+    private Entity getEntityByJavaId(long javaId) {
+        if (session.getPlayerEntity() != null && javaId == session.getPlayerEntity().getEntityId()) {
+            return session.getPlayerEntity();
+        }
+        return session.getEntityCache().getEntityByJavaId(javaId);
+    }
+
+    private static long getFirstPassenger(Entity vehicle) {
+        return vehicle.getPassengers().iterator().nextLong();
+    }
+
+    private void hide(Entity entity) {
+        // Entities that are linked to others would lose their link
+        if (!entity.getPassengers().isEmpty() || entity.getMetadata().getFlags().getFlag(EntityFlag.RIDING)) {
+            return;
+        }
+        if (entity.despawnEntity(session)) {
+            hiddenEntities.add(entity);
+        }
+    }
+
+    private void addToCell(long cell, Entity entity) {
+        Set<Entity> entities = cells.get(cell);
+        if (entities == null) {
+            entities = new ObjectOpenHashSet<>();
+            cells.put(cell, entities);
+        }
+        entities.add(entity);
+    }
+
+    private double getDistanceSquared(Vector3f position) {
+        return session.getPlayerEntity().getPosition().distanceSquared(position);
+    }
+
+    /**
+     * Only mobs and items are worth hiding. Players, bosses and entities that work differently are always shown.
+     */
+    private static boolean isCullable(Entity entity) {
+        if (entity instanceof Tickable) {
+            return false;
+        }
+        if (entity instanceof ItemEntity) {
+            return true;
+        }
+        return entity instanceof LivingEntity && !(entity instanceof PlayerEntity) && !(entity instanceof ArmorStandEntity)
+                && !(entity instanceof WitherEntity);
+    }
+
+    private static long getCell(Vector3f position) {
+        return MathUtils.chunkPositionToLong((int) Math.floor(position.getX()) >> CELL_SHIFT, (int) Math.floor(position.getZ()) >> CELL_SHIFT);
+    }
+
+    private static int getCellX(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    private static int getCellZ(long cell) {
+        return (int) cell;
+    }
+
+    private static class ActiveEffect {
+        private final MobEffectPacket packet;
+        /**
+         * When the effect was added, in milliseconds
+         */
+        private final long time;
+
+        ActiveEffect(MobEffectPacket packet, long time) {
+            this.packet = packet;
+            this.time = time;
+        }
+    }
+}
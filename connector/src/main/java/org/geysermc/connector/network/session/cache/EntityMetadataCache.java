@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.session.cache;
+
+import com.nukkitx.protocol.bedrock.data.entity.EntityData;
+import com.nukkitx.protocol.bedrock.data.entity.EntityDataMap;
+import com.nukkitx.protocol.bedrock.data.entity.EntityFlag;
+import com.nukkitx.protocol.bedrock.data.entity.EntityFlags;
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.packet.AnimatePacket;
+import com.nukkitx.protocol.bedrock.packet.EntityEventPacket;
+import com.nukkitx.protocol.bedrock.packet.MobArmorEquipmentPacket;
+import com.nukkitx.protocol.bedrock.packet.MobEffectPacket;
+import com.nukkitx.protocol.bedrock.packet.MobEquipmentPacket;
+import com.nukkitx.protocol.bedrock.packet.MoveEntityAbsolutePacket;
+import com.nukkitx.protocol.bedrock.packet.MoveEntityDeltaPacket;
+import com.nukkitx.protocol.bedrock.packet.SetEntityDataPacket;
+import com.nukkitx.protocol.bedrock.packet.SetEntityMotionPacket;
+import com.nukkitx.protocol.bedrock.packet.UpdateAttributesPacket;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.geysermc.connector.entity.Entity;
+import org.geysermc.connector.network.session.GeyserSession;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Sends entity metadata to the client once per tick, with only the entries that changed since the client last
+ * received this entity's metadata. An armor stand whose name is changed every tick sends its name, and nothing else.
+ * <p>
+ * The changes are worked out when {@link Entity#updateBedrockMetadata(GeyserSession)} is called, so entries that an
+ * entity removes right after sending them - such as boat paddle times - are still sent. Updates in the same tick are
+ * merged into one packet.
+ * <p>
+ * Other packets about an entity, such as animations, equipment and movement, are sent right away. So that the client
+ * still sees everything in the order it happened, {@link #flushBefore(BedrockPacket)} sends the pending update of an
+ * entity before any of those packets for it.
+ * <p>
+ * Everything here runs on the event loop of the session, where the packets that change metadata are translated and
+ * where the session is ticked.
+ * <p>
+ * The session's own player is always sent in full and straight away: the client changes some of its own flags by
+ * itself, such as sneaking, so what it has may not be what we sent last.
+ */
+public class EntityMetadataCache {
+    private static final EntityFlag[] FLAGS = EntityFlag.values();
+
+    private final GeyserSession session;
+    /**
+     * The metadata the client has, or will have once the pending updates are sent, by Geyser ID
+     */
+    private final Long2ObjectMap<EntityDataMap> sentMetadata = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectLinkedOpenHashMap<EntityDataMap> pendingMetadata = new Long2ObjectLinkedOpenHashMap<>();
+
+    public EntityMetadataCache(GeyserSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Queue the entries of this entity's metadata that changed to be sent at the end of the tick.
+     */
+    public synchronized void update(Entity entity) {
+        if (entity == session.getPlayerEntity()) {
+            SetEntityDataPacket entityDataPacket = new SetEntityDataPacket();
+            entityDataPacket.setRuntimeEntityId(entity.getGeyserId());
+            entityDataPacket.getMetadata().putAll(entity.getMetadata());
+            session.sendUpstreamPacket(entityDataPacket);
+            return;
+        }
+
+        EntityDataMap metadata = entity.getMetadata();
+        EntityDataMap sent = sentMetadata.get(entity.getGeyserId());
+        if (sent == null) {
+            // Nothing is known about what the client has
+            sent = new EntityDataMap();
+            sentMetadata.put(entity.getGeyserId(), sent);
+        }
+
+        EntityDataMap pending = null;
+        for (Map.Entry<EntityData, Object> entry : metadata.entrySet()) {
+            Object value = entry.getValue();
+            Object sentValue = sent.get(entry.getKey());
+            if (value instanceof EntityFlags) {
+                if (sentValue instanceof EntityFlags && isSameFlags((EntityFlags) value, (EntityFlags) sentValue)) {
+                    continue;
+                }
+                // Flags are changed in place, so keep what they are now
+                value = ((EntityFlags) value).copy();
+            } else if (Objects.equals(value, sentValue)) {
+                continue;
+            }
+
+            sent.put(entry.getKey(), value);
+            if (pending == null) {
+                pending = pendingMetadata.get(entity.getGeyserId());
+                if (pending == null) {
+                    pending = new EntityDataMap();
+                    pendingMetadata.put(entity.getGeyserId(), pending);
+                }
+            }
+            pending.put(entry.getKey(), value);
+        }
+        // Entries that were removed must be sent again once they are back, even with the same value
+        sent.keySet().retainAll(metadata.keySet());
+    }
+
+    /**
+     * Remember that the client was just sent all of this entity's metadata, such as in its spawn packet.
+     */
+    public synchronized void spawned(Entity entity) {
+        pendingMetadata.remove(entity.getGeyserId());
+        EntityDataMap sent = new EntityDataMap();
+        for (Map.Entry<EntityData, Object> entry : entity.getMetadata().entrySet()) {
+            Object value = entry.getValue();
+            sent.put(entry.getKey(), value instanceof EntityFlags ? ((EntityFlags) value).copy() : value);
+        }
+        sentMetadata.put(entity.getGeyserId(), sent);
+    }
+
+    /**
+     * Forget that this entry was sent, so it is sent again the next time the entity has it, even with the same value.
+     */
+    public synchronized void forget(Entity entity, EntityData data) {
+        EntityDataMap sent = sentMetadata.get(entity.getGeyserId());
+        if (sent != null) {
+            sent.remove(data);
+        }
+    }
+
+    /**
+     * Forget what was sent for this entity and drop its pending update, because it was removed.
+     */
+    public synchronized void invalidate(Entity entity) {
+        sentMetadata.remove(entity.getGeyserId());
+        pendingMetadata.remove(entity.getGeyserId());
+    }
+
+    /**
+     * Send every pending update to the client. Called every tick.
+     */
+    public synchronized void flush() {
+        if (pendingMetadata.isEmpty()) {
+            return;
+        }
+        for (Long2ObjectMap.Entry<EntityDataMap> entry : pendingMetadata.long2ObjectEntrySet()) {
+            send(entry.getLongKey(), entry.getValue());
+        }
+        pendingMetadata.clear();
+    }
+
+    /**
+     * Send the pending update of the entity this packet is about, if it has one, so it doesn't arrive after the packet.
+     * Called for every packet sent to the client.
+     */
+    public void flushBefore(BedrockPacket packet) {
+        long runtimeEntityId;
+        if (packet instanceof MoveEntityDeltaPacket) {
+            runtimeEntityId = ((MoveEntityDeltaPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof MoveEntityAbsolutePacket) {
+            runtimeEntityId = ((MoveEntityAbsolutePacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof SetEntityMotionPacket) {
+            runtimeEntityId = ((SetEntityMotionPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof AnimatePacket) {
+            runtimeEntityId = ((AnimatePacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof EntityEventPacket) {
+            runtimeEntityId = ((EntityEventPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof MobEquipmentPacket) {
+            runtimeEntityId = ((MobEquipmentPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof MobArmorEquipmentPacket) {
+            runtimeEntityId = ((MobArmorEquipmentPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof MobEffectPacket) {
+            runtimeEntityId = ((MobEffectPacket) packet).getRuntimeEntityId();
+        } else if (packet instanceof UpdateAttributesPacket) {
+            runtimeEntityId = ((UpdateAttributesPacket) packet).getRuntimeEntityId();
+        } else {
+            return;
+        }
+        flush(runtimeEntityId);
+    }
+
+    private synchronized void flush(long geyserId) {
+        if (pendingMetadata.isEmpty()) {
+            return;
+        }
+        EntityDataMap pending = pendingMetadata.remove(geyserId);
+        if (pending != null) {
+            send(geyserId, pending);
+        }
+    }
+
+    private void send(long geyserId, EntityDataMap metadata) {
+        SetEntityDataPacket entityDataPacket = new SetEntityDataPacket();
+        entityDataPacket.setRuntimeEntityId(geyserId);
+        entityDataPacket.getMetadata().putAll(metadata);
+        session.sendUpstreamPacket(entityDataPacket);
+    }
+
+    /**
+     * Forget everything, such as when the player switches dimension.
+     */
+    public synchronized void clear() {
+        sentMetadata.clear();
+        pendingMetadata.clear();
+    }
+
+    private static boolean isSameFlags(EntityFlags flags, EntityFlags sentFlags) {
+        for (EntityFlag flag : FLAGS) {
+            if (flags.getFlag(flag) != sentFlags.getFlag(flag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
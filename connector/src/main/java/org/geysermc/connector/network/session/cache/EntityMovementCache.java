@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.session.cache;
+
+import com.nukkitx.math.vector.Vector3f;
+import com.nukkitx.protocol.bedrock.packet.MoveEntityAbsolutePacket;
+import com.nukkitx.protocol.bedrock.packet.MoveEntityDeltaPacket;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.geysermc.connector.entity.Entity;
+import org.geysermc.connector.network.session.GeyserSession;
+
+import java.util.List;
+
+/**
+ * Collects the movement of entities and sends it once per tick. A mob that moves, turns and looks around in one tick
+ * produces one packet instead of one for every Java packet.
+ * <p>
+ * Each movement is sent as a {@link MoveEntityDeltaPacket} with only the values that changed since the last movement
+ * the client received from this cache. The first movement of an entity, and teleports, are sent as a
+ * {@link MoveEntityAbsolutePacket}.
+ * <p>
+ * Entities that send their own movement packets must call {@link #invalidate(Entity)} afterwards, so the next delta
+ * isn't based on a position the client no longer has.
+ */
+public class EntityMovementCache {
+    private final GeyserSession session;
+    private final Long2ObjectMap<Movement> movements = new Long2ObjectOpenHashMap<>();
+    private final List<Movement> pendingMovements = new ObjectArrayList<>();
+    private int ticks = 0;
+
+    public EntityMovementCache(GeyserSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Queue the current position and rotation of this entity to be sent at the end of the tick.
+     * Nothing is sent for entities the client doesn't have, such as entities hidden for being far away.
+     */
+    public void move(Entity entity) {
+        // Not done while holding this lock, since the interest manager takes ours while despawning entities
+        session.getEntityInterestManager().updatePosition(entity);
+        if (entity.isValid()) {
+            queue(entity);
+        }
+    }
+
+    private synchronized void queue(Entity entity) {
+        Movement movement = getMovement(entity);
+        movement.position = entity.getPosition();
+        movement.rotation = entity.getBedrockRotation();
+        movement.onGround = entity.isOnGround();
+        if (!movement.pending) {
+            movement.pending = true;
+            pendingMovements.add(movement);
+        }
+    }
+
+    /**
+     * Send the current position and rotation of this entity right away, as a teleport.
+     */
+    public void teleport(Entity entity) {
+        session.getEntityInterestManager().updatePosition(entity);
+        if (entity.isValid()) {
+            sendTeleport(entity);
+        }
+    }
+
+    private synchronized void sendTeleport(Entity entity) {
+        Movement movement = getMovement(entity);
+        movement.position = entity.getPosition();
+        movement.rotation = entity.getBedrockRotation();
+        movement.onGround = entity.isOnGround();
+        // Anything still pending is now the same as what was sent
+        sendAbsolute(movement, true);
+    }
+
+    /**
+     * Forget what was sent for this entity and drop its pending movement, because it was removed or moved by another
+     * packet.
+     */
+    public synchronized void invalidate(Entity entity) {
+        Movement movement = movements.remove(entity.getGeyserId());
+        if (movement != null) {
+            movement.pending = false;
+        }
+    }
+
+    /**
+     * Send every pending movement to the client. Called every tick.
+     * The movement of distant entities is held back for a few ticks, see {@link EntityInterestManager#getMovementInterval(Vector3f)}.
+     */
+    public synchronized void flush() {
+        ticks++;
+        if (pendingMovements.isEmpty()) {
+            return;
+        }
+        int remaining = 0;
+        for (int i = 0; i < pendingMovements.size(); i++) {
+            Movement movement = pendingMovements.get(i);
+            if (!movement.pending) {
+                // Invalidated after it was queued
+                continue;
+            }
+
+            if (movement.sentPosition == null) {
+                sendAbsolute(movement, false);
+            } else if (ticks % session.getEntityInterestManager().getMovementInterval(movement.position) == 0) {
+                sendDelta(movement);
+            } else {
+                // Keep it for a later tick
+                pendingMovements.set(remaining++, movement);
+                continue;
+            }
+            movement.pending = false;
+        }
+        pendingMovements.subList(remaining, pendingMovements.size()).clear();
+    }
+
+    /**
+     * Forget everything, such as when the player switches dimension.
+     */
+    public synchronized void clear() {
+        movements.clear();
+        pendingMovements.clear();
+    }
+
+    private Movement getMovement(Entity entity) {
+        Movement movement = movements.get(entity.getGeyserId());
+        if (movement == null) {
+            movement = new Movement(entity.getGeyserId());
+            movements.put(entity.getGeyserId(), movement);
+        }
+        return movement;
+    }
+
+    private void sendAbsolute(Movement movement, boolean teleported) {
+        MoveEntityAbsolutePacket moveEntityPacket = new MoveEntityAbsolutePacket();
+        moveEntityPacket.setRuntimeEntityId(movement.geyserId);
+        moveEntityPacket.setPosition(movement.position);
+        moveEntityPacket.setRotation(movement.rotation);
+        moveEntityPacket.setOnGround(movement.onGround);
+        moveEntityPacket.setTeleported(teleported);
+        session.sendUpstreamPacket(moveEntityPacket);
+
+        movement.sent();
+    }
+
+    private void sendDelta(Movement movement) {
+        MoveEntityDeltaPacket moveEntityDeltaPacket = new MoveEntityDeltaPacket();
+        moveEntityDeltaPacket.setRuntimeEntityId(movement.geyserId);
+
+        boolean changed = movement.onGround != movement.sentOnGround;
+        if (movement.onGround) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.ON_GROUND);
+        }
+
+        Vector3f position = movement.position;
+        Vector3f sentPosition = movement.sentPosition;
+        if (position.getX() != sentPosition.getX()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_X);
+            moveEntityDeltaPacket.setX(position.getX());
+            changed = true;
+        }
+        if (position.getY() != sentPosition.getY()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_Y);
+            moveEntityDeltaPacket.setY(position.getY());
+            changed = true;
+        }
+        if (position.getZ() != sentPosition.getZ()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_Z);
+            moveEntityDeltaPacket.setZ(position.getZ());
+            changed = true;
+        }
+
+        // Bedrock rotations are (pitch, yaw, head yaw)
+        Vector3f rotation = movement.rotation;
+        Vector3f sentRotation = movement.sentRotation;
+        if (rotation.getX() != sentRotation.getX()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_PITCH);
+            moveEntityDeltaPacket.setPitch(rotation.getX());
+            changed = true;
+        }
+        if (rotation.getY() != sentRotation.getY()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_YAW);
+            moveEntityDeltaPacket.setYaw(rotation.getY());
+            changed = true;
+        }
+        if (rotation.getZ() != sentRotation.getZ()) {
+            moveEntityDeltaPacket.getFlags().add(MoveEntityDeltaPacket.Flag.HAS_HEAD_YAW);
+            moveEntityDeltaPacket.setHeadYaw(rotation.getZ());
+            changed = true;
+        }
+
+        if (changed) {
+            session.sendUpstreamPacket(moveEntityDeltaPacket);
+            movement.sent();
+        }
+    }
+
+    private static class Movement {
+        private final long geyserId;
+
+        private Vector3f position;
+        private Vector3f rotation;
+        private boolean onGround;
+        private boolean pending;
+
+        /**
+         * What the client last received, or null if it hasn't received a movement from this cache yet
+         */
+        private Vector3f sentPosition;
+        private Vector3f sentRotation;
+        private boolean sentOnGround;
+
+        Movement(long geyserId) {
+            this.geyserId = geyserId;
+        }
+
+        void sent() {
+            sentPosition = position;
+            sentRotation = rotation;
+            sentOnGround = onGround;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.session.cache;
+
+import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
+import com.nukkitx.protocol.bedrock.packet.InventoryContentPacket;
+import com.nukkitx.protocol.bedrock.packet.InventorySlotPacket;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.geysermc.connector.network.session.GeyserSession;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Remembers the items that were last sent to the Bedrock client for each slot of the open containers.
+ * <p>
+ * Many plugin menus resend the whole window to change a single slot; with this cache only the slots that actually
+ * changed are sent, unless sending the whole container would be smaller.
+ * <p>
+ * The Bedrock client predicts the outcome of its own inventory actions, so whatever it has may not be what we sent
+ * last. The cache must be cleared whenever the client could have changed its inventory by itself.
+ */
+public class InventorySlotCache {
+    /**
+     * Rough size of the packet header of each packet in a batch, in bytes
+     */
+    private static final int PACKET_OVERHEAD = 4;
+
+    private final GeyserSession session;
+    private final Int2ObjectMap<ItemData[]> sentContents = new Int2ObjectOpenHashMap<>();
+
+    public InventorySlotCache(GeyserSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Send the contents of a container, either as one {@link InventoryContentPacket} or as an
+     * {@link InventorySlotPacket} for each slot that changed - whichever is smaller.
+     */
+    public synchronized void sendContents(int containerId, ItemData[] contents) {
+        ItemData[] previous = sentContents.get(containerId);
+        sentContents.put(containerId, contents.clone());
+
+        if (previous != null && previous.length == contents.length) {
+            int contentSize = PACKET_OVERHEAD;
+            int changedSize = 0;
+            for (int i = 0; i < contents.length; i++) {
+                int itemSize = estimateSize(contents[i]);
+                contentSize += itemSize;
+                if (!isSameItem(previous[i], contents[i])) {
+                    changedSize += PACKET_OVERHEAD + itemSize;
+                }
+            }
+
+            if (changedSize < contentSize) {
+                for (int i = 0; i < contents.length; i++) {
+                    if (!isSameItem(previous[i], contents[i])) {
+                        sendSlotPacket(containerId, i, contents[i]);
+                    }
+                }
+                return;
+            }
+        }
+
+        InventoryContentPacket contentPacket = new InventoryContentPacket();
+        contentPacket.setContainerId(containerId);
+        contentPacket.setContents(Arrays.asList(contents));
+        session.sendUpstreamPacket(contentPacket);
+    }
+
+    /**
+     * Send a single slot to the client.
+     */
+    public synchronized void sendSlot(int containerId, int slot, ItemData item) {
+        ItemData[] previous = sentContents.get(containerId);
+        if (previous != null && slot < previous.length) {
+            previous[slot] = item;
+        }
+        sendSlotPacket(containerId, slot, item);
+    }
+
+    /**
+     * Send a single slot to the client, but only if it isn't what we sent last.
+     * Used for containers that cannot be sent with an {@link InventoryContentPacket}.
+     *
+     * @param size the number of slots of the container
+     */
+    public synchronized void sendSlotIfChanged(int containerId, int size, int slot, ItemData item) {
+        if (slot >= size) {
+            sendSlotPacket(containerId, slot, item);
+            return;
+        }
+        ItemData[] previous = sentContents.get(containerId);
+        if (previous == null || previous.length != size) {
+            previous = new ItemData[size];
+            sentContents.put(containerId, previous);
+        } else if (isSameItem(previous[slot], item)) {
+            return;
+        }
+        previous[slot] = item;
+        sendSlotPacket(containerId, slot, item);
+    }
+
+    /**
+     * Forget what was sent for this container, so its next update is sent in full.
+     */
+    public synchronized void invalidate(int containerId) {
+        sentContents.remove(containerId);
+    }
+
+    /**
+     * Forget everything that was sent, so the next update of each container is sent in full.
+     */
+    public synchronized void clear() {
+        sentContents.clear();
+    }
+
+    private void sendSlotPacket(int containerId, int slot, ItemData item) {
+        InventorySlotPacket slotPacket = new InventorySlotPacket();
+        slotPacket.setContainerId(containerId);
+        slotPacket.setSlot(slot);
+        slotPacket.setItem(item);
+        session.sendUpstreamPacket(slotPacket);
+    }
+
+    private static boolean isSameItem(ItemData previous, ItemData item) {
+        if (previous == item) {
+            return true;
+        }
+        if (previous == null || item == null) {
+            return false;
+        }
+        // The net ID has to match too, or the client will reference the wrong item in its requests
+        return previous.getId() == item.getId() && previous.getDamage() == item.getDamage() &&
+                previous.getCount() == item.getCount() && previous.getNetId() == item.getNetId() &&
+                previous.getBlockRuntimeId() == item.getBlockRuntimeId() &&
+                Objects.equals(previous.getTag(), item.getTag()) &&
+                Arrays.equals(previous.getCanPlace(), item.getCanPlace()) &&
+                Arrays.equals(previous.getCanBreak(), item.getCanBreak());
+    }
+
+    /**
+     * @return a rough guess of how many bytes this item takes up in a packet
+     */
+    private static int estimateSize(ItemData item) {
+        if (item == null || item.getId() == 0) {
+            return 1;
+        }
+        int size = 8;
+        if (item.getTag() != null) {
+            // Display names and lore make up most tags
+            size += 16 + item.getTag().size() * 16;
+        }
+        if (item.getCanPlace() != null) {
+            size += item.getCanPlace().length * 16;
+        }
+        if (item.getCanBreak() != null) {
+            size += item.getCanBreak().length * 16;
+        }
+        return size;
+    }
+}
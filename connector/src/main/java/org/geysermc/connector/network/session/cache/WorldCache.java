@@ -46,7 +46,7 @@ public class WorldCache {
         this.session = session;
         this.scoreboard = new Scoreboard(session);
         scoreboardUpdater = new ScoreboardUpdater(this);
-        scoreboardUpdater.start();
+        session.addTickListener(scoreboardUpdater);
     }
 
     public void removeScoreboard() {
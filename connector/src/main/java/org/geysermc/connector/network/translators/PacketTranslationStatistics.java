@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators;
+
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.geysermc.connector.GeyserConnector;
+
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The translation statistics of all packet types of one direction. Each packet type is also registered as an MBean
+ * under {@code org.geysermc.connector:type=PacketTranslation}, so they can be scraped over JMX.
+ */
+public class PacketTranslationStatistics {
+    private final String direction;
+    private final Map<Class<?>, PacketTypeStatistics> packetTypes = new ConcurrentHashMap<>();
+
+    public PacketTranslationStatistics(String direction) {
+        this.direction = direction;
+    }
+
+    public void record(Class<?> packet, long nanos) {
+        PacketTypeStatistics statistics = packetTypes.get(packet);
+        if (statistics == null) {
+            statistics = packetTypes.computeIfAbsent(packet, this::createStatistics);
+        }
+        statistics.record(nanos);
+    }
+
+    public void reset() {
+        for (PacketTypeStatistics statistics : packetTypes.values()) {
+            statistics.reset();
+        }
+    }
+
+    /**
+     * @return the statistics of every packet type that has been translated, the most total time spent first
+     */
+    public List<PacketTypeStatistics> getSortedStatistics() {
+        // Take the totals up front, as they may change while sorting
+        Object2LongMap<PacketTypeStatistics> totals = new Object2LongOpenHashMap<>();
+        for (PacketTypeStatistics statistics : packetTypes.values()) {
+            totals.put(statistics, statistics.getTotalNanos());
+        }
+        List<PacketTypeStatistics> statistics = new ArrayList<>(totals.keySet());
+        statistics.sort(Comparator.comparingLong(totals::getLong).reversed());
+        return statistics;
+    }
+
+    /**
+     * Register the MBeans of every packet type translated so far, such as after a reload.
+     */
+    public void registerMBeans() {
+        for (PacketTypeStatistics statistics : packetTypes.values()) {
+            registerMBean(statistics);
+        }
+    }
+
+    /**
+     * Unregister the MBeans of every packet type, so they don't outlive Geyser on the server's MBean server.
+     */
+    public void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (PacketTypeStatistics statistics : packetTypes.values()) {
+            try {
+                ObjectName name = getObjectName(statistics);
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                GeyserConnector.getInstance().getLogger().debug("Could not unregister packet statistics from JMX: " + e.getMessage());
+            }
+        }
+    }
+
+    private PacketTypeStatistics createStatistics(Class<?> packet) {
+        PacketTypeStatistics statistics = new PacketTypeStatistics(packet.getSimpleName(), direction);
+        registerMBean(statistics);
+        return statistics;
+    }
+
+    private void registerMBean(PacketTypeStatistics statistics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = getObjectName(statistics);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(statistics, name);
+            }
+        } catch (Exception e) {
+            GeyserConnector.getInstance().getLogger().debug("Could not register packet statistics over JMX: " + e.getMessage());
+        }
+    }
+
+    private ObjectName getObjectName(PacketTypeStatistics statistics) throws MalformedObjectNameException {
+        return new ObjectName("org.geysermc.connector:type=PacketTranslation,direction=" + direction
+                + ",packet=" + statistics.getPacket());
+    }
+}
@@ -29,7 +29,10 @@ import com.github.steveice10.mc.protocol.packet.ingame.server.ServerPlayerListDa
 import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerUpdateLightPacket;
 import com.github.steveice10.packetlib.packet.Packet;
 import com.nukkitx.protocol.bedrock.BedrockPacket;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import lombok.Getter;
+import lombok.Setter;
 import org.geysermc.common.PlatformType;
 import org.geysermc.connector.GeyserConnector;
 import org.geysermc.connector.network.session.GeyserSession;
@@ -37,21 +40,54 @@ import org.geysermc.connector.utils.FileUtils;
 import org.geysermc.connector.utils.LanguageUtils;
 import org.reflections.Reflections;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
 
 public class PacketTranslatorRegistry<T> {
-    private final Map<Class<? extends T>, PacketTranslator<? extends T>> translators = new HashMap<>();
+    /**
+     * Every packet class with a translator or that is ignored gets a small ID, which indexes the tables of the
+     * registries. Other classes get -1.
+     */
+    private static final Object2IntMap<Class<?>> PACKET_IDS = new Object2IntOpenHashMap<>();
+    /**
+     * Caches the ID on the class itself, which is far cheaper to look up than a hash map
+     */
+    private static final ClassValue<Integer> PACKET_ID = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            synchronized (PACKET_IDS) {
+                return PACKET_IDS.getInt(type);
+            }
+        }
+    };
+    private static final BitSet IGNORED_PACKETS = new BitSet();
+
+    private PacketTranslator<? extends T>[] translators = createTable(0);
 
-    public static final PacketTranslatorRegistry<Packet> JAVA_TRANSLATOR = new PacketTranslatorRegistry<>();
-    public static final PacketTranslatorRegistry<BedrockPacket> BEDROCK_TRANSLATOR = new PacketTranslatorRegistry<>();
+    @Getter
+    private final PacketTranslationStatistics statistics;
+    /**
+     * If the time spent translating each packet is measured. Off by default, as it costs two calls to
+     * {@link System#nanoTime()} per packet.
+     */
+    @Getter
+    @Setter
+    private volatile boolean statisticsEnabled;
 
-    private static final ObjectArrayList<Class<?>> IGNORED_PACKETS = new ObjectArrayList<>();
+    public static final PacketTranslatorRegistry<Packet> JAVA_TRANSLATOR = new PacketTranslatorRegistry<>("java");
+    public static final PacketTranslatorRegistry<BedrockPacket> BEDROCK_TRANSLATOR = new PacketTranslatorRegistry<>("bedrock");
 
     static {
-        Reflections ref = GeyserConnector.getInstance().useXmlReflections() ? FileUtils.getReflections("org.geysermc.connector.network.translators") : new Reflections("org.geysermc.connector.network.translators");
+        PACKET_IDS.defaultReturnValue(-1);
+
+        // Listed at build time by the annotation processor; only scan if running without it, such as from an IDE
+        Set<Class<?>> translatorClasses = FileUtils.getGeneratedClassesForAnnotation(Translator.class);
+        if (translatorClasses == null) {
+            translatorClasses = new Reflections("org.geysermc.connector.network.translators").getTypesAnnotatedWith(Translator.class);
+        }
 
-        for (Class<?> clazz : ref.getTypesAnnotatedWith(Translator.class)) {
+        for (Class<?> clazz : translatorClasses) {
             Class<?> packet = clazz.getAnnotation(Translator.class).packet();
 
             GeyserConnector.getInstance().getLogger().debug("Found annotated translator: " + clazz.getCanonicalName() + " : " + packet.getSimpleName());
@@ -61,12 +97,12 @@ public class PacketTranslatorRegistry<T> {
                     Class<? extends Packet> targetPacket = (Class<? extends Packet>) packet;
                     PacketTranslator<? extends Packet> translator = (PacketTranslator<? extends Packet>) clazz.newInstance();
 
-                    JAVA_TRANSLATOR.translators.put(targetPacket, translator);
+                    JAVA_TRANSLATOR.register(targetPacket, translator);
                 } else if (BedrockPacket.class.isAssignableFrom(packet)) {
                     Class<? extends BedrockPacket> targetPacket = (Class<? extends BedrockPacket>) packet;
                     PacketTranslator<? extends BedrockPacket> translator = (PacketTranslator<? extends BedrockPacket>) clazz.newInstance();
 
-                    BEDROCK_TRANSLATOR.translators.put(targetPacket, translator);
+                    BEDROCK_TRANSLATOR.register(targetPacket, translator);
                 } else {
                     GeyserConnector.getInstance().getLogger().error("Class " + clazz.getCanonicalName() + " is annotated as a translator but has an invalid target packet.");
                 }
@@ -75,27 +111,69 @@ public class PacketTranslatorRegistry<T> {
             }
         }
 
-        IGNORED_PACKETS.add(ServerUpdateLightPacket.class); // Light is handled on Bedrock for us
-        IGNORED_PACKETS.add(ServerPlayerListDataPacket.class); // Cant be implemented in bedrock
+        IGNORED_PACKETS.set(getOrCreatePacketId(ServerUpdateLightPacket.class)); // Light is handled on Bedrock for us
+        IGNORED_PACKETS.set(getOrCreatePacketId(ServerPlayerListDataPacket.class)); // Cant be implemented in bedrock
     }
 
-    private PacketTranslatorRegistry() {
+    private PacketTranslatorRegistry(String direction) {
+        this.statistics = new PacketTranslationStatistics(direction);
     }
 
     public static void init() {
-        // no-op
+        boolean statisticsEnabled = GeyserConnector.getInstance().getConfig().isPacketStatistics();
+        JAVA_TRANSLATOR.setStatisticsEnabled(statisticsEnabled);
+        BEDROCK_TRANSLATOR.setStatisticsEnabled(statisticsEnabled);
+        // The registries outlive a reload, so statistics unregistered by the previous shutdown are registered again
+        JAVA_TRANSLATOR.statistics.registerMBeans();
+        BEDROCK_TRANSLATOR.statistics.registerMBeans();
+    }
+
+    public static void shutdown() {
+        JAVA_TRANSLATOR.statistics.unregisterMBeans();
+        BEDROCK_TRANSLATOR.statistics.unregisterMBeans();
+    }
+
+    private void register(Class<? extends T> packet, PacketTranslator<? extends T> translator) {
+        int id = getOrCreatePacketId(packet);
+        if (id >= translators.length) {
+            translators = Arrays.copyOf(translators, id + 1);
+        }
+        translators[id] = translator;
+    }
+
+    private static int getOrCreatePacketId(Class<?> packet) {
+        synchronized (PACKET_IDS) {
+            int id = PACKET_IDS.getInt(packet);
+            if (id == -1) {
+                id = PACKET_IDS.size();
+                PACKET_IDS.put(packet, id);
+            }
+            return id;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> PacketTranslator<? extends T>[] createTable(int size) {
+        return (PacketTranslator<? extends T>[]) new PacketTranslator[size];
     }
 
     @SuppressWarnings("unchecked")
     public <P extends T> boolean translate(Class<? extends P> clazz, P packet, GeyserSession session) {
         if (!session.getUpstream().isClosed() && !session.isClosed()) {
             try {
-                PacketTranslator<P> translator = (PacketTranslator<P>) translators.get(clazz);
+                int id = PACKET_ID.get(clazz);
+                PacketTranslator<P> translator = id != -1 && id < translators.length ? (PacketTranslator<P>) translators[id] : null;
                 if (translator != null) {
-                    translator.translate(packet, session);
+                    if (statisticsEnabled) {
+                        long start = System.nanoTime();
+                        translator.translate(packet, session);
+                        statistics.record(clazz, System.nanoTime() - start);
+                    } else {
+                        translator.translate(packet, session);
+                    }
                     return true;
                 } else {
-                    if ((GeyserConnector.getInstance().getPlatformType() != PlatformType.STANDALONE || !(packet instanceof BedrockPacket)) && !IGNORED_PACKETS.contains(clazz)) {
+                    if ((GeyserConnector.getInstance().getPlatformType() != PlatformType.STANDALONE || !(packet instanceof BedrockPacket)) && (id == -1 || !IGNORED_PACKETS.get(id))) {
                         // Other debug logs already take care of Bedrock packets for us if on standalone
                         GeyserConnector.getInstance().getLogger().debug("Could not find packet for " + (packet.toString().length() > 25 ? packet.getClass().getSimpleName() : packet));
                     }
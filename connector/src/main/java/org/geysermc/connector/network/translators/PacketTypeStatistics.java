@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How often one packet type was translated and how long that took. Latencies are kept in a histogram with four
+ * buckets per power of two, which keeps every percentile within 25% of the real value at a fixed size.
+ */
+public class PacketTypeStatistics implements PacketTypeStatisticsMXBean {
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKET_COUNT = bucketOf(Long.MAX_VALUE) + 1;
+
+    @Getter
+    private final String packet;
+    @Getter
+    private final String direction;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maximumNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKET_COUNT);
+
+    public PacketTypeStatistics(String packet, String direction) {
+        this.packet = packet;
+        this.direction = direction;
+    }
+
+    public void record(long nanos) {
+        count.increment();
+        totalNanos.add(nanos);
+        maximumNanos.accumulate(nanos);
+        histogram.incrementAndGet(bucketOf(nanos));
+    }
+
+    public void reset() {
+        count.reset();
+        totalNanos.reset();
+        maximumNanos.reset();
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            histogram.set(i, 0);
+        }
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    @Override
+    public long getMaximumNanos() {
+        return maximumNanos.get();
+    }
+
+    @Override
+    public double getAverageNanos() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) getTotalNanos() / count;
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return getPercentileNanos(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return getPercentileNanos(99);
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the histogram bucket the percentile falls in
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = histogram.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // Never report more than was actually measured
+                return Math.min(i == BUCKET_COUNT - 1 ? Long.MAX_VALUE : lowerBoundOf(i + 1) - 1, getMaximumNanos());
+            }
+        }
+        return getMaximumNanos();
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(0, nanos);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(nanos); // At least 2
+        int subBucket = (int) (nanos >>> (magnitude - 2)) & (SUB_BUCKETS - 1);
+        return (magnitude - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - 2);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.translators.bedrock;
+
+import com.nukkitx.protocol.bedrock.packet.ClientCacheBlobStatusPacket;
+import com.nukkitx.protocol.bedrock.packet.ClientCacheMissResponsePacket;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.cache.ChunkBlobCache;
+import org.geysermc.connector.network.translators.PacketTranslator;
+import org.geysermc.connector.network.translators.Translator;
+
+/**
+ * Sent by the client in response to blob IDs in a chunk, telling us which blobs it has and which it still needs.
+ */
+@Translator(packet = ClientCacheBlobStatusPacket.class)
+public class BedrockClientCacheBlobStatusTranslator extends PacketTranslator<ClientCacheBlobStatusPacket> {
+
+    @Override
+    public void translate(ClientCacheBlobStatusPacket packet, GeyserSession session) {
+        ChunkBlobCache blobCache = session.getChunkBlobCache();
+
+        ClientCacheMissResponsePacket responsePacket = new ClientCacheMissResponsePacket();
+        for (long blobId : packet.getNaks()) {
+            byte[] blob = blobCache.getMissingBlob(blobId);
+            if (blob != null) {
+                responsePacket.getBlobs().put(blobId, blob);
+            } else {
+                session.getConnector().getLogger().debug("Client requested unknown chunk blob " + blobId);
+            }
+        }
+
+        for (long blobId : packet.getAcks()) {
+            blobCache.acknowledgeBlob(blobId);
+        }
+
+        if (!responsePacket.getBlobs().isEmpty()) {
+            session.sendUpstreamPacket(responsePacket);
+        }
+    }
+}
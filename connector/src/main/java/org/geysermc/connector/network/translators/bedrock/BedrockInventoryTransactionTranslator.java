@@ -73,6 +73,8 @@ public class BedrockInventoryTransactionTranslator extends PacketTranslator<Inve
     public void translate(InventoryTransactionPacket packet, GeyserSession session) {
         // Send book updates before opening inventories
         session.getBookEditCache().checkForSend();
+        // The client may have changed its inventory by itself
+        session.getInventorySlotCache().clear();
 
         switch (packet.getTransactionType()) {
             case NORMAL:
@@ -31,6 +31,8 @@ import org.geysermc.connector.GeyserConnector;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.PacketTranslator;
 import org.geysermc.connector.network.translators.Translator;
+import org.geysermc.connector.network.translators.world.MapImageCache;
+import org.geysermc.connector.utils.MapColor;
 
 import java.util.concurrent.TimeUnit;
 
@@ -44,10 +46,21 @@ public class BedrockMapInfoRequestTranslator extends PacketTranslator<MapInfoReq
         if (session.getStoredMaps().containsKey(mapID)) {
             // Delay the packet 100ms to prevent the client from ignoring the packet
             GeyserConnector.getInstance().getGeneralThreadPool().schedule(() -> {
-                ClientboundMapItemDataPacket mapPacket = session.getStoredMaps().remove(mapID);
-                if (mapPacket != null) {
-                    session.sendUpstreamPacket(mapPacket);
+                MapImageCache.StoredMap storedMap = session.getStoredMaps().get(mapID);
+                if (storedMap == null) {
+                    return;
                 }
+                ClientboundMapItemDataPacket mapPacket = new ClientboundMapItemDataPacket();
+                mapPacket.setUniqueMapId(mapID);
+                mapPacket.setDimensionId(storedMap.getDimensionId());
+                mapPacket.setLocked(storedMap.isLocked());
+                mapPacket.setScale(storedMap.getScale());
+                mapPacket.setWidth(MapImageCache.MAP_SIZE);
+                mapPacket.setHeight(MapImageCache.MAP_SIZE);
+                mapPacket.setColors(MapColor.toABGR(storedMap.getImage().getColorIds()));
+                mapPacket.getTrackedObjects().addAll(storedMap.getTrackedObjects());
+                mapPacket.getDecorations().addAll(storedMap.getDecorations());
+                session.sendUpstreamPacket(mapPacket);
             }, 100, TimeUnit.MILLISECONDS);
         }
     }
@@ -40,12 +40,10 @@ import org.geysermc.connector.entity.type.EntityType;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.collision.translators.BlockCollision;
 import org.geysermc.connector.network.translators.world.block.BlockTranslator;
+import org.geysermc.connector.utils.MathUtils;
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
 
 public class CollisionManager {
 
@@ -72,10 +70,15 @@ public class CollisionManager {
      */
     public static final double COLLISION_TOLERANCE = 0.00001;
     /**
-     * Trims Y coordinates when jumping to prevent rounding issues being sent to the server.
-     * The locale used is necessary so other regions don't use <code>,</code> as their decimal separator.
+     * Decimal places Y coordinates are trimmed to when jumping to prevent rounding issues being sent to the server.
      */
-    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("#.#####", new DecimalFormatSymbols(Locale.ENGLISH));
+    private static final int Y_DECIMAL_PLACES = 5;
+
+    /**
+     * The block states around the player during the current movement, so both correction passes don't have to look
+     * them up in the chunk cache. Reused between movements.
+     */
+    private int[] collidableBlockCache = new int[27];
 
     public CollisionManager(GeyserSession session) {
         this.session = session;
@@ -134,14 +137,14 @@ public class CollisionManager {
      * @return the position to send to the Java server, or null to cancel sending the packet
      */
     public Vector3d adjustBedrockPosition(Vector3f bedrockPosition, boolean onGround) {
-        // We need to parse the float as a string since casting a float to a double causes us to
-        // lose precision and thus, causes players to get stuck when walking near walls
+        // We can't just cast the float to a double since that keeps the float's rounding error and thus,
+        // causes players to get stuck when walking near walls
         double javaY = bedrockPosition.getY() - EntityType.PLAYER.getOffset();
 
-        Vector3d position = Vector3d.from(Double.parseDouble(Float.toString(bedrockPosition.getX())), javaY,
-                Double.parseDouble(Float.toString(bedrockPosition.getZ())));
-
-        updatePlayerBoundingBox(position);
+        updatePlayerBoundingBox();
+        playerBoundingBox.setMiddleX(MathUtils.floatToDouble(bedrockPosition.getX()));
+        playerBoundingBox.setMiddleY(javaY + (playerBoundingBox.getSizeY() / 2));
+        playerBoundingBox.setMiddleZ(MathUtils.floatToDouble(bedrockPosition.getZ()));
 
         // Correct player position
         if (!correctPlayerPosition()) {
@@ -150,16 +153,13 @@ public class CollisionManager {
             return null;
         }
 
-        position = Vector3d.from(playerBoundingBox.getMiddleX(),
-                playerBoundingBox.getMiddleY() - (playerBoundingBox.getSizeY() / 2),
-                playerBoundingBox.getMiddleZ());
-
+        double y = playerBoundingBox.getMiddleY() - (playerBoundingBox.getSizeY() / 2);
         if (!onGround) {
             // Trim the position to prevent rounding errors that make Java think we are clipping into a block
-            position = Vector3d.from(position.getX(), Double.parseDouble(DECIMAL_FORMAT.format(position.getY())), position.getZ());
+            y = MathUtils.round(y, Y_DECIMAL_PLACES);
         }
 
-        return position;
+        return Vector3d.from(playerBoundingBox.getMiddleX(), y, playerBoundingBox.getMiddleZ());
     }
 
     // TODO: This makes the player look upwards for some reason, rotation values must be wrong
@@ -182,21 +182,12 @@ public class CollisionManager {
     public List<Vector3i> getCollidableBlocks(BoundingBox box) {
         List<Vector3i> blocks = new ArrayList<>();
 
-        Vector3d position = Vector3d.from(box.getMiddleX(),
-                box.getMiddleY() - (box.getSizeY() / 2),
-                box.getMiddleZ());
-
-        // Loop through all blocks that could collide
-        int minCollisionX = (int) Math.floor(position.getX() - ((box.getSizeX() / 2) + COLLISION_TOLERANCE));
-        int maxCollisionX = (int) Math.floor(position.getX() + (box.getSizeX() / 2) + COLLISION_TOLERANCE);
-
-        // Y extends 0.5 blocks down because of fence hitboxes
-        int minCollisionY = (int) Math.floor(position.getY() - 0.5);
-
-        int maxCollisionY = (int) Math.floor(position.getY() + box.getSizeY());
-
-        int minCollisionZ = (int) Math.floor(position.getZ() - ((box.getSizeZ() / 2) + COLLISION_TOLERANCE));
-        int maxCollisionZ = (int) Math.floor(position.getZ() + (box.getSizeZ() / 2) + COLLISION_TOLERANCE);
+        int minCollisionX = getMinCollisionX(box);
+        int maxCollisionX = getMaxCollisionX(box);
+        int minCollisionY = getMinCollisionY(box);
+        int maxCollisionY = getMaxCollisionY(box);
+        int minCollisionZ = getMinCollisionZ(box);
+        int maxCollisionZ = getMaxCollisionZ(box);
 
         for (int y = minCollisionY; y < maxCollisionY + 1; y++) {
             for (int x = minCollisionX; x < maxCollisionX + 1; x++) {
@@ -213,37 +204,91 @@ public class CollisionManager {
         return getCollidableBlocks(playerBoundingBox);
     }
 
+    // The range of blocks that could collide with a bounding box
+
+    private static int getMinCollisionX(BoundingBox box) {
+        return (int) Math.floor(box.getMiddleX() - ((box.getSizeX() / 2) + COLLISION_TOLERANCE));
+    }
+
+    private static int getMaxCollisionX(BoundingBox box) {
+        return (int) Math.floor(box.getMiddleX() + (box.getSizeX() / 2) + COLLISION_TOLERANCE);
+    }
+
+    private static int getMinCollisionY(BoundingBox box) {
+        // Y extends 0.5 blocks down because of fence hitboxes
+        return (int) Math.floor(box.getMiddleY() - (box.getSizeY() / 2) - 0.5);
+    }
+
+    private static int getMaxCollisionY(BoundingBox box) {
+        return (int) Math.floor(box.getMiddleY() - (box.getSizeY() / 2) + box.getSizeY());
+    }
+
+    private static int getMinCollisionZ(BoundingBox box) {
+        return (int) Math.floor(box.getMiddleZ() - ((box.getSizeZ() / 2) + COLLISION_TOLERANCE));
+    }
+
+    private static int getMaxCollisionZ(BoundingBox box) {
+        return (int) Math.floor(box.getMiddleZ() + (box.getSizeZ() / 2) + COLLISION_TOLERANCE);
+    }
+
     /**
      * Returns false if the movement is invalid, and in this case it shouldn't be sent to the server and should be
      * cancelled
      * See {@link BlockCollision#correctPosition(GeyserSession, BoundingBox)} for more info
      */
-    public boolean correctPlayerPosition() {
+    public synchronized boolean correctPlayerPosition() {
 
         // These may be set to true by the correctPosition method in ScaffoldingCollision
         touchingScaffolding = false;
         onScaffolding = false;
 
-        List<Vector3i> collidableBlocks = getPlayerCollidableBlocks();
+        int minCollisionX = getMinCollisionX(playerBoundingBox);
+        int maxCollisionX = getMaxCollisionX(playerBoundingBox);
+        int minCollisionY = getMinCollisionY(playerBoundingBox);
+        int maxCollisionY = getMaxCollisionY(playerBoundingBox);
+        int minCollisionZ = getMinCollisionZ(playerBoundingBox);
+        int maxCollisionZ = getMaxCollisionZ(playerBoundingBox);
+
+        int blockCount = (maxCollisionX - minCollisionX + 1) * (maxCollisionY - minCollisionY + 1) * (maxCollisionZ - minCollisionZ + 1);
+        if (collidableBlockCache.length < blockCount) {
+            collidableBlockCache = new int[blockCount];
+        }
+        int[] blocks = collidableBlockCache;
 
         // Used when correction code needs to be run before the main correction
-        for (Vector3i blockPos : collidableBlocks) {
-            BlockCollision blockCollision = CollisionTranslator.getCollisionAt(
-                    session, blockPos.getX(), blockPos.getY(), blockPos.getZ()
-            );
-            if (blockCollision != null) {
-                blockCollision.beforeCorrectPosition(playerBoundingBox);
+        int i = 0;
+        for (int y = minCollisionY; y <= maxCollisionY; y++) {
+            for (int x = minCollisionX; x <= maxCollisionX; x++) {
+                for (int z = minCollisionZ; z <= maxCollisionZ; z++) {
+                    int blockId;
+                    try {
+                        blockId = session.getConnector().getWorldManager().getBlockAt(session, x, y, z);
+                    } catch (ArrayIndexOutOfBoundsException e) {
+                        // Block out of world
+                        blockId = BlockTranslator.JAVA_AIR_ID;
+                    }
+                    blocks[i++] = blockId;
+
+                    BlockCollision blockCollision = CollisionTranslator.getCollision(blockId, x, y, z);
+                    if (blockCollision != null) {
+                        blockCollision.beforeCorrectPosition(playerBoundingBox);
+                    }
+                }
             }
         }
 
         // Main correction code
-        for (Vector3i blockPos : collidableBlocks) {
-            BlockCollision blockCollision = CollisionTranslator.getCollisionAt(
-                    session, blockPos.getX(), blockPos.getY(), blockPos.getZ()
-            );
-            if (blockCollision != null) {
-                if (!blockCollision.correctPosition(session, playerBoundingBox)) {
-                    return false;
+        i = 0;
+        for (int y = minCollisionY; y <= maxCollisionY; y++) {
+            for (int x = minCollisionX; x <= maxCollisionX; x++) {
+                for (int z = minCollisionZ; z <= maxCollisionZ; z++) {
+                    // Collision instances are shared between blocks, so the position has to be set again
+                    BlockCollision blockCollision = CollisionTranslator.getCollision(blocks[i++], x, y, z);
+                    if (blockCollision != null) {
+                        if (!blockCollision.correctPosition(session, playerBoundingBox)) {
+                            return false;
+                        }
+                    }
                 }
             }
         }
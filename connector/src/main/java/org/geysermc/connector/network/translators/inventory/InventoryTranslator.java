@@ -148,6 +148,9 @@ public abstract class InventoryTranslator {
     }
 
     public void translateRequests(GeyserSession session, Inventory inventory, List<ItemStackRequest> requests) {
+        // The client has already moved the items by itself, so what we last sent can't be diffed against
+        session.getInventorySlotCache().clear();
+
         boolean refresh = false;
         ItemStackResponsePacket responsePacket = new ItemStackResponsePacket();
         for (ItemStackRequest request : requests) {
@@ -26,8 +26,6 @@
 package org.geysermc.connector.network.translators.inventory.updater;
 
 import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
-import com.nukkitx.protocol.bedrock.packet.InventoryContentPacket;
-import com.nukkitx.protocol.bedrock.packet.InventorySlotPacket;
 import lombok.AllArgsConstructor;
 import org.geysermc.connector.inventory.Inventory;
 import org.geysermc.connector.network.session.GeyserSession;
@@ -35,9 +33,6 @@ import org.geysermc.connector.network.translators.inventory.InventoryTranslator;
 import org.geysermc.connector.utils.InventoryUtils;
 import org.geysermc.connector.utils.LanguageUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-
 @AllArgsConstructor
 public class ChestInventoryUpdater extends InventoryUpdater {
     private static final ItemData UNUSUABLE_SPACE_BLOCK = InventoryUtils.createUnusableSpaceBlock(LanguageUtils.getLocaleStringLog("geyser.inventory.unusable_item.slot"));
@@ -48,19 +43,16 @@ public class ChestInventoryUpdater extends InventoryUpdater {
     public void updateInventory(InventoryTranslator translator, GeyserSession session, Inventory inventory) {
         super.updateInventory(translator, session, inventory);
 
-        List<ItemData> bedrockItems = new ArrayList<>(paddedSize);
+        ItemData[] bedrockItems = new ItemData[paddedSize];
         for (int i = 0; i < paddedSize; i++) {
             if (i < translator.size) {
-                bedrockItems.add(inventory.getItem(i).getItemData(session));
+                bedrockItems[i] = inventory.getItem(i).getItemData(session);
             } else {
-                bedrockItems.add(UNUSUABLE_SPACE_BLOCK);
+                bedrockItems[i] = UNUSUABLE_SPACE_BLOCK;
             }
         }
 
-        InventoryContentPacket contentPacket = new InventoryContentPacket();
-        contentPacket.setContainerId(inventory.getId());
-        contentPacket.setContents(bedrockItems);
-        session.sendUpstreamPacket(contentPacket);
+        session.getInventorySlotCache().sendContents(inventory.getId(), bedrockItems);
     }
 
     @Override
@@ -68,11 +60,8 @@ public class ChestInventoryUpdater extends InventoryUpdater {
         if (super.updateSlot(translator, session, inventory, javaSlot))
             return true;
 
-        InventorySlotPacket slotPacket = new InventorySlotPacket();
-        slotPacket.setContainerId(inventory.getId());
-        slotPacket.setSlot(translator.javaSlotToBedrock(javaSlot));
-        slotPacket.setItem(inventory.getItem(javaSlot).getItemData(session));
-        session.sendUpstreamPacket(slotPacket);
+        session.getInventorySlotCache().sendSlot(inventory.getId(), translator.javaSlotToBedrock(javaSlot),
+                inventory.getItem(javaSlot).getItemData(session));
         return true;
     }
 }
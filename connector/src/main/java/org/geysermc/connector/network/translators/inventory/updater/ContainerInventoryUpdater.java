@@ -26,14 +26,10 @@
 package org.geysermc.connector.network.translators.inventory.updater;
 
 import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
-import com.nukkitx.protocol.bedrock.packet.InventoryContentPacket;
-import com.nukkitx.protocol.bedrock.packet.InventorySlotPacket;
 import org.geysermc.connector.inventory.Inventory;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.inventory.InventoryTranslator;
 
-import java.util.Arrays;
-
 public class ContainerInventoryUpdater extends InventoryUpdater {
     public static final ContainerInventoryUpdater INSTANCE = new ContainerInventoryUpdater();
 
@@ -46,10 +42,7 @@ public class ContainerInventoryUpdater extends InventoryUpdater {
             bedrockItems[translator.javaSlotToBedrock(i)] = inventory.getItem(i).getItemData(session);
         }
 
-        InventoryContentPacket contentPacket = new InventoryContentPacket();
-        contentPacket.setContainerId(inventory.getId());
-        contentPacket.setContents(Arrays.asList(bedrockItems));
-        session.sendUpstreamPacket(contentPacket);
+        session.getInventorySlotCache().sendContents(inventory.getId(), bedrockItems);
     }
 
     @Override
@@ -57,11 +50,8 @@ public class ContainerInventoryUpdater extends InventoryUpdater {
         if (super.updateSlot(translator, session, inventory, javaSlot))
             return true;
 
-        InventorySlotPacket slotPacket = new InventorySlotPacket();
-        slotPacket.setContainerId(inventory.getId());
-        slotPacket.setSlot(translator.javaSlotToBedrock(javaSlot));
-        slotPacket.setItem(inventory.getItem(javaSlot).getItemData(session));
-        session.sendUpstreamPacket(slotPacket);
+        session.getInventorySlotCache().sendSlot(inventory.getId(), translator.javaSlotToBedrock(javaSlot),
+                inventory.getItem(javaSlot).getItemData(session));
         return true;
     }
 }
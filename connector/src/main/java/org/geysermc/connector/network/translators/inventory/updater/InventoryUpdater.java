@@ -27,14 +27,10 @@ package org.geysermc.connector.network.translators.inventory.updater;
 
 import com.nukkitx.protocol.bedrock.data.inventory.ContainerId;
 import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
-import com.nukkitx.protocol.bedrock.packet.InventoryContentPacket;
-import com.nukkitx.protocol.bedrock.packet.InventorySlotPacket;
 import org.geysermc.connector.inventory.Inventory;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.inventory.InventoryTranslator;
 
-import java.util.Arrays;
-
 public class InventoryUpdater {
     public void updateInventory(InventoryTranslator translator, GeyserSession session, Inventory inventory) {
         ItemData[] bedrockItems = new ItemData[36];
@@ -42,19 +38,13 @@ public class InventoryUpdater {
             final int offset = i < 9 ? 27 : -9;
             bedrockItems[i] = inventory.getItem(translator.size + i + offset).getItemData(session);
         }
-        InventoryContentPacket contentPacket = new InventoryContentPacket();
-        contentPacket.setContainerId(ContainerId.INVENTORY);
-        contentPacket.setContents(Arrays.asList(bedrockItems));
-        session.sendUpstreamPacket(contentPacket);
+        session.getInventorySlotCache().sendContents(ContainerId.INVENTORY, bedrockItems);
     }
 
     public boolean updateSlot(InventoryTranslator translator, GeyserSession session, Inventory inventory, int javaSlot) {
         if (javaSlot >= translator.size) {
-            InventorySlotPacket slotPacket = new InventorySlotPacket();
-            slotPacket.setContainerId(ContainerId.INVENTORY);
-            slotPacket.setSlot(translator.javaSlotToBedrock(javaSlot));
-            slotPacket.setItem(inventory.getItem(javaSlot).getItemData(session));
-            session.sendUpstreamPacket(slotPacket);
+            session.getInventorySlotCache().sendSlot(ContainerId.INVENTORY, translator.javaSlotToBedrock(javaSlot),
+                    inventory.getItem(javaSlot).getItemData(session));
             return true;
         }
         return false;
@@ -26,13 +26,16 @@
 package org.geysermc.connector.network.translators.inventory.updater;
 
 import com.nukkitx.protocol.bedrock.data.inventory.ContainerId;
-import com.nukkitx.protocol.bedrock.packet.InventorySlotPacket;
 import org.geysermc.connector.inventory.Inventory;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.inventory.InventoryTranslator;
 
 public class UIInventoryUpdater extends InventoryUpdater {
     public static final UIInventoryUpdater INSTANCE = new UIInventoryUpdater();
+    /**
+     * The number of slots in the Bedrock UI container; the creative output slot (50) is the last
+     */
+    private static final int UI_SIZE = 51;
 
     @Override
     public void updateInventory(InventoryTranslator translator, GeyserSession session, Inventory inventory) {
@@ -42,11 +45,8 @@ public class UIInventoryUpdater extends InventoryUpdater {
             final int bedrockSlot = translator.javaSlotToBedrock(i);
             if (bedrockSlot == 50)
                 continue;
-            InventorySlotPacket slotPacket = new InventorySlotPacket();
-            slotPacket.setContainerId(ContainerId.UI);
-            slotPacket.setSlot(bedrockSlot);
-            slotPacket.setItem(inventory.getItem(i).getItemData(session));
-            session.sendUpstreamPacket(slotPacket);
+            session.getInventorySlotCache().sendSlotIfChanged(ContainerId.UI, UI_SIZE, bedrockSlot,
+                    inventory.getItem(i).getItemData(session));
         }
     }
 
@@ -55,11 +55,8 @@ public class UIInventoryUpdater extends InventoryUpdater {
         if (super.updateSlot(translator, session, inventory, javaSlot))
             return true;
 
-        InventorySlotPacket slotPacket = new InventorySlotPacket();
-        slotPacket.setContainerId(ContainerId.UI);
-        slotPacket.setSlot(translator.javaSlotToBedrock(javaSlot));
-        slotPacket.setItem(inventory.getItem(javaSlot).getItemData(session));
-        session.sendUpstreamPacket(slotPacket);
+        session.getInventorySlotCache().sendSlot(ContainerId.UI, translator.javaSlotToBedrock(javaSlot),
+                inventory.getItem(javaSlot).getItemData(session));
         return true;
     }
 }
@@ -61,6 +61,10 @@ import java.util.*;
 public class ItemRegistry {
 
     private static final Map<String, ItemEntry> JAVA_IDENTIFIER_MAP = new HashMap<>();
+    /**
+     * Item entries that a Bedrock item can translate to, by Bedrock ID. Java-only items are left out.
+     */
+    private static final Int2ObjectMap<BedrockItemEntries> BEDROCK_ID_MAP = new Int2ObjectOpenHashMap<>();
 
     /**
      * A list of all identifiers that only exist on Java. Used to prevent creative items from becoming these unintentionally.
@@ -549,6 +553,15 @@ public class ItemRegistry {
             javaOnlyItems.add("minecraft:furnace_minecart");
         }
         JAVA_ONLY_ITEMS = ImmutableSet.copyOf(javaOnlyItems);
+
+        // Index the entries in the order they used to be searched in, so the same entry wins when several match
+        for (ItemEntry itemEntry : ITEM_ENTRIES.values()) {
+            JAVA_IDENTIFIER_MAP.putIfAbsent(itemEntry.getJavaIdentifier(), itemEntry);
+            if (!JAVA_ONLY_ITEMS.contains(itemEntry.getJavaIdentifier())) {
+                // From a Bedrock item data, we aren't getting one of these items
+                BEDROCK_ID_MAP.computeIfAbsent(itemEntry.getBedrockId(), id -> new BedrockItemEntries()).add(itemEntry);
+            }
+        }
     }
 
     /**
@@ -568,27 +581,20 @@ public class ItemRegistry {
      * @return an item entry from the given item data
      */
     public static ItemEntry getItem(ItemData data) {
-        boolean isBlock = data.getBlockRuntimeId() != 0;
-        boolean hasDamage = data.getDamage() != 0;
-
-        for (ItemEntry itemEntry : ITEM_ENTRIES.values()) {
-            if (itemEntry.getBedrockId() == data.getId()) {
-                if (isBlock && !hasDamage) { // Pre-1.16.220 will not use block runtime IDs at all, so we shouldn't check either
-                    if (data.getBlockRuntimeId() != itemEntry.getBedrockBlockId()) {
-                        continue;
-                    }
-                } else {
-                    if (!(itemEntry.getBedrockData() == data.getDamage() ||
-                            // Make exceptions for potions and tipped arrows, whose damage values can vary
-                            (itemEntry.getJavaIdentifier().endsWith("potion") || itemEntry.getJavaIdentifier().equals("minecraft:arrow")))) {
-                        continue;
-                    }
-                }
-                if (!JAVA_ONLY_ITEMS.contains(itemEntry.getJavaIdentifier())) {
-                    // From a Bedrock item data, we aren't getting one of these items
-                    return itemEntry;
+        BedrockItemEntries entries = BEDROCK_ID_MAP.get(data.getId());
+        if (entries != null) {
+            ItemEntry itemEntry;
+            if (data.getBlockRuntimeId() != 0 && data.getDamage() == 0) { // Pre-1.16.220 will not use block runtime IDs at all, so we shouldn't check either
+                itemEntry = entries.byBlockRuntimeId.get(data.getBlockRuntimeId());
+            } else {
+                itemEntry = entries.byDamage.get(data.getDamage());
+                if (itemEntry == null) {
+                    itemEntry = entries.anyDamage;
                 }
             }
+            if (itemEntry != null) {
+                return itemEntry;
+            }
         }
 
         // This will hide the message when the player clicks with an empty hand
@@ -606,13 +612,35 @@ public class ItemRegistry {
      * @return an item entry from the given java edition identifier
      */
     public static ItemEntry getItemEntry(String javaIdentifier) {
-        return JAVA_IDENTIFIER_MAP.computeIfAbsent(javaIdentifier, key -> {
-            for (ItemEntry entry : ITEM_ENTRIES.values()) {
-                if (entry.getJavaIdentifier().equals(key)) {
-                    return entry;
-                }
+        return JAVA_IDENTIFIER_MAP.get(javaIdentifier);
+    }
+
+    /**
+     * The item entries that share one Bedrock ID
+     */
+    private static class BedrockItemEntries {
+        private final Int2ObjectMap<ItemEntry> byBlockRuntimeId = new Int2ObjectOpenHashMap<>(1);
+        private final Int2ObjectMap<ItemEntry> byDamage = new Int2ObjectOpenHashMap<>(1);
+        /**
+         * An entry that matches every damage value
+         */
+        private ItemEntry anyDamage;
+
+        private void add(ItemEntry itemEntry) {
+            if (itemEntry.getBedrockBlockId() != -1) {
+                byBlockRuntimeId.putIfAbsent(itemEntry.getBedrockBlockId(), itemEntry);
+            }
+
+            if (anyDamage != null) {
+                // Would never be reached, as this entry matches first
+                return;
             }
-            return null;
-        });
+            // Make exceptions for potions and tipped arrows, whose damage values can vary
+            if (itemEntry.getJavaIdentifier().endsWith("potion") || itemEntry.getJavaIdentifier().equals("minecraft:arrow")) {
+                anyDamage = itemEntry;
+            } else {
+                byDamage.putIfAbsent(itemEntry.getBedrockData(), itemEntry);
+            }
+        }
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators.item;
+
+import com.github.steveice10.opennbt.tag.builtin.*;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.translators.world.block.BlockTranslator;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers Java items that have been translated to Bedrock, shared between all sessions. Menus that are refreshed
+ * every few ticks keep sending the same items, which only differ in their amount at most.
+ * <p>
+ * Cached items are stored with the amount they were first translated with; use {@link #withCount(ItemData, int)}
+ * to get an item that can be sent.
+ */
+public class ItemTranslationCache {
+    private static final int MAXIMUM_SIZE = 4096;
+
+    private static final Cache<Key, ItemData> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .recordStats()
+            .build();
+    /**
+     * Lookups that didn't need the shared cache, as the item stack still had its translation
+     */
+    private static final LongAdder ITEM_STACK_HITS = new LongAdder();
+
+    /**
+     * @return null if the translation of this item depends on more than its ID, NBT and the locale
+     */
+    public static Key createKey(GeyserSession session, int javaId, CompoundTag nbt) {
+        if (session.getResourcePackCache().isCustomModelDataActive()) {
+            // Custom model data depends on the resource pack of the session
+            return null;
+        }
+        return createKey(javaId, nbt, session.getLocale(), session.getBlockTranslator());
+    }
+
+    static Key createKey(int javaId, CompoundTag nbt, String locale, BlockTranslator blockTranslator) {
+        return new Key(javaId, nbt, locale, blockTranslator);
+    }
+
+    /**
+     * Hashes the contents of the tag, as tags are changed in place and their identity says nothing about them
+     */
+    public static int hashNbt(CompoundTag nbt) {
+        return Key.hashTag(nbt);
+    }
+
+    public static ItemData get(Key key) {
+        return CACHE.getIfPresent(key);
+    }
+
+    public static void put(Key key, ItemData itemData) {
+        // The NBT may be changed later on, which must not change the key
+        if (key.nbt != null) {
+            key = new Key(key.javaId, key.nbt.clone(), key.locale, key.blockTranslator);
+        }
+        CACHE.put(key, itemData);
+    }
+
+    public static void onItemStackHit() {
+        ITEM_STACK_HITS.increment();
+    }
+
+    public static long getItemStackHits() {
+        return ITEM_STACK_HITS.sum();
+    }
+
+    public static CacheStats getStats() {
+        return CACHE.stats();
+    }
+
+    public static long getSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * @return a new item with the same contents as the given item, but with another amount
+     */
+    public static ItemData withCount(ItemData itemData, int count) {
+        return ItemData.builder()
+                .id(itemData.getId())
+                .damage(itemData.getDamage())
+                .count(count)
+                .tag(itemData.getTag())
+                .canPlace(itemData.getCanPlace())
+                .canBreak(itemData.getCanBreak())
+                .blockRuntimeId(itemData.getBlockRuntimeId())
+                .build();
+    }
+
+    public static final class Key {
+        private final int javaId;
+        private final CompoundTag nbt;
+        private final String locale;
+        /**
+         * Compared by identity; there is only one block translator per Bedrock version
+         */
+        private final BlockTranslator blockTranslator;
+        private final int hash;
+
+        private Key(int javaId, CompoundTag nbt, String locale, BlockTranslator blockTranslator) {
+            this.javaId = javaId;
+            this.nbt = nbt;
+            this.locale = locale;
+            this.blockTranslator = blockTranslator;
+            this.hash = 31 * (31 * (31 * javaId + hashTag(nbt)) + locale.hashCode()) + System.identityHashCode(blockTranslator);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return hash == that.hash && javaId == that.javaId && blockTranslator == that.blockTranslator
+                    && locale.equals(that.locale) && Objects.equals(nbt, that.nbt);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /**
+         * Tags only compare their contents, so hash the contents too
+         */
+        private static int hashTag(Tag tag) {
+            if (tag == null) {
+                return 0;
+            }
+            int hash = tag.getName().hashCode();
+            if (tag instanceof CompoundTag) {
+                // Compound tags are equal regardless of order
+                for (Tag child : (CompoundTag) tag) {
+                    hash += hashTag(child);
+                }
+            } else if (tag instanceof ListTag) {
+                for (Tag child : (ListTag) tag) {
+                    hash = 31 * hash + hashTag(child);
+                }
+            } else if (tag instanceof ByteArrayTag) {
+                hash = 31 * hash + Arrays.hashCode(((ByteArrayTag) tag).getValue());
+            } else if (tag instanceof IntArrayTag) {
+                hash = 31 * hash + Arrays.hashCode(((IntArrayTag) tag).getValue());
+            } else if (tag instanceof LongArrayTag) {
+                hash = 31 * hash + Arrays.hashCode(((LongArrayTag) tag).getValue());
+            } else {
+                hash = 31 * hash + Objects.hashCode(tag.getValue());
+            }
+            return hash;
+        }
+    }
+}
@@ -133,6 +133,25 @@ public abstract class ItemTranslator {
             return ItemData.AIR;
         }
 
+        // Items are often sent again unchanged, such as menus that are refreshed all the time
+        ItemTranslationCache.Key cacheKey = ItemTranslationCache.createKey(session, stack.getId(), stack.getNbt());
+        if (cacheKey != null) {
+            ItemData cached = ItemTranslationCache.get(cacheKey);
+            if (cached != null) {
+                return ItemTranslationCache.withCount(cached, stack.getAmount());
+            }
+        }
+
+        ItemData itemData = translateToBedrockUncached(session, stack);
+        if (cacheKey != null && itemData != ItemData.AIR) {
+            ItemTranslationCache.put(cacheKey, itemData);
+            // The cached item must stay as it is, and callers change the returned item
+            itemData = ItemTranslationCache.withCount(itemData, stack.getAmount());
+        }
+        return itemData;
+    }
+
+    private static ItemData translateToBedrockUncached(GeyserSession session, ItemStack stack) {
         ItemEntry bedrockItem = ItemRegistry.getItem(stack);
         if (bedrockItem == null) {
             session.getConnector().getLogger().debug("No matching ItemEntry for " + stack);
@@ -53,6 +53,7 @@ public class JavaEntityEffectTranslator extends PacketTranslator<ServerEntityEff
         mobEffectPacket.setRuntimeEntityId(entity.getGeyserId());
         mobEffectPacket.setParticles(packet.isShowParticles());
         mobEffectPacket.setEffectId(EntityUtils.toBedrockEffectId(packet.getEffect()));
-        session.sendUpstreamPacket(mobEffectPacket);
+        // Hidden entities get their effects once they are shown
+        session.getEntityInterestManager().sendEffect(entity, mobEffectPacket);
     }
 }
@@ -50,6 +50,7 @@ public class JavaEntityRemoveEffectTranslator extends PacketTranslator<ServerEnt
         mobEffectPacket.setEvent(MobEffectPacket.Event.REMOVE);
         mobEffectPacket.setRuntimeEntityId(entity.getGeyserId());
         mobEffectPacket.setEffectId(EntityUtils.toBedrockEffectId(packet.getEffect()));
-        session.sendUpstreamPacket(mobEffectPacket);
+        // Hidden entities get their effects once they are shown
+        session.getEntityInterestManager().sendEffect(entity, mobEffectPacket);
     }
 }
@@ -35,14 +35,20 @@ import com.nukkitx.protocol.bedrock.packet.LevelChunkPacket;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
-import org.geysermc.connector.GeyserConnector;
+import io.netty.buffer.Unpooled;
 import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.cache.ChunkBlobCache;
+import org.geysermc.connector.network.session.cache.ChunkCache;
 import org.geysermc.connector.network.translators.BiomeTranslator;
 import org.geysermc.connector.network.translators.PacketTranslator;
 import org.geysermc.connector.network.translators.Translator;
+import org.geysermc.connector.network.translators.world.chunk.ChunkPayloadCache;
 import org.geysermc.connector.network.translators.world.chunk.ChunkSection;
 import org.geysermc.connector.utils.ChunkUtils;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 @Translator(packet = ServerChunkDataPacket.class)
 public class JavaChunkDataTranslator extends PacketTranslator<ServerChunkDataPacket> {
 
@@ -53,69 +59,114 @@ public class JavaChunkDataTranslator extends PacketTranslator<ServerChunkDataPac
         }
 
         // Merge received column with cache on network thread
-        Column mergedColumn = session.getChunkCache().addToCache(packet.getColumn());
+        ChunkCache chunkCache = session.getChunkCache();
+        Column mergedColumn = chunkCache.addToCache(packet.getColumn());
         if (mergedColumn == null) { // There were no changes?!?
             return;
         }
 
-        GeyserConnector.getInstance().getGeneralThreadPool().execute(() -> {
-            try {
-                ChunkUtils.ChunkData chunkData = ChunkUtils.translateToBedrock(session, mergedColumn);
-                ChunkSection[] sections = chunkData.getSections();
+        sendChunk(session, chunkCache, mergedColumn);
+    }
 
-                // Find highest section
-                int sectionCount = sections.length - 1;
-                while (sectionCount >= 0 && sections[sectionCount] == null) {
-                    sectionCount--;
+    /**
+     * Queue a column to be translated and sent to the client.
+     *
+     * @param chunkCache the chunk cache of the session, which the column may be part of
+     */
+    public static void sendChunk(GeyserSession session, ChunkCache chunkCache, Column column) {
+        session.getChunkTranslationQueue().add(column.getX(), column.getZ(), () -> {
+            // Sessions that received this exact column before have already done the work for us
+            ChunkPayloadCache payloadCache = session.getConnector().getChunkPayloadCache();
+            int blockChanges = chunkCache.getBlockChanges();
+            // An odd count means a block of a cached column is being changed right now, so the column could be hashed
+            // halfway through that change
+            ChunkPayloadCache.Key cacheKey = (blockChanges & 1) == 0 ? payloadCache.createKey(session, column) : null;
+            ChunkPayloadCache.TranslatedChunk translatedChunk = cacheKey != null ? payloadCache.get(cacheKey) : null;
+            if (translatedChunk == null) {
+                translatedChunk = translateColumn(session, column);
+                // The cached column may have been changed on the event loop since it was hashed, and then the
+                // payload no longer matches its key
+                if (cacheKey != null && blockChanges == chunkCache.getBlockChanges()) {
+                    payloadCache.put(cacheKey, translatedChunk);
                 }
-                sectionCount++;
+            }
 
-                // Estimate chunk size
-                int size = 0;
-                for (int i = 0; i < sectionCount; i++) {
-                    ChunkSection section = sections[i];
-                    size += (section != null ? section : session.getBlockTranslator().getEmptyChunkSection()).estimateNetworkSize();
-                }
-                size += 256; // Biomes
-                size += 1; // Border blocks
-                size += 1; // Extra data length (always 0)
-                size += chunkData.getBlockEntities().length * 64; // Conservative estimate of 64 bytes per tile entity
-
-                // Allocate output buffer
-                ByteBuf byteBuf = ByteBufAllocator.DEFAULT.buffer(size);
-                byte[] payload;
-                try {
-                    for (int i = 0; i < sectionCount; i++) {
-                        ChunkSection section = sections[i];
-                        (section != null ? section : session.getBlockTranslator().getEmptyChunkSection()).writeToNetwork(byteBuf);
-                    }
-
-                    byteBuf.writeBytes(BiomeTranslator.toBedrockBiome(mergedColumn.getBiomeData())); // Biomes - 256 bytes
-                    byteBuf.writeByte(0); // Border blocks - Edu edition only
-                    VarInts.writeUnsignedInt(byteBuf, 0); // extra data length, 0 for now
-
-                    // Encode tile entities into buffer
-                    NBTOutputStream nbtStream = NbtUtils.createNetworkWriter(new ByteBufOutputStream(byteBuf));
-                    for (NbtMap blockEntity : chunkData.getBlockEntities()) {
-                        nbtStream.writeTag(blockEntity);
-                    }
-
-                    // Copy data into byte[], because the protocol lib really likes things that are s l o w
-                    byteBuf.readBytes(payload = new byte[byteBuf.readableBytes()]);
-                } finally {
-                    byteBuf.release(); // Release buffer to allow buffer pooling to be useful
-                }
+            LevelChunkPacket levelChunkPacket = new LevelChunkPacket();
+            levelChunkPacket.setSubChunksLength(translatedChunk.getSubChunksLength());
+            levelChunkPacket.setChunkX(column.getX());
+            levelChunkPacket.setChunkZ(column.getZ());
 
-                LevelChunkPacket levelChunkPacket = new LevelChunkPacket();
-                levelChunkPacket.setSubChunksLength(sectionCount);
+            ChunkBlobCache blobCache = session.getChunkBlobCache();
+            if (blobCache.isEnabled()) {
+                // Only send the blob IDs; the client will ask for any sub chunks and biomes it doesn't have yet
+                blobCache.addBlobs(column.getX(), column.getZ(), translatedChunk);
+                levelChunkPacket.setCachingEnabled(true);
+                for (long blobId : translatedChunk.getBlobIds()) {
+                    levelChunkPacket.getBlobIds().add(blobId);
+                }
+                levelChunkPacket.setData(translatedChunk.getCachedPayload());
+            } else {
                 levelChunkPacket.setCachingEnabled(false);
-                levelChunkPacket.setChunkX(mergedColumn.getX());
-                levelChunkPacket.setChunkZ(mergedColumn.getZ());
-                levelChunkPacket.setData(payload);
-                session.sendUpstreamPacket(levelChunkPacket);
-            } catch (Exception ex) {
-                ex.printStackTrace();
+                levelChunkPacket.setData(translatedChunk.getPayload());
             }
+            session.sendUpstreamPacket(levelChunkPacket);
         });
     }
+
+    private static ChunkPayloadCache.TranslatedChunk translateColumn(GeyserSession session, Column column) {
+        ChunkUtils.ChunkData chunkData = ChunkUtils.translateToBedrock(session, column);
+        ChunkSection[] sections = chunkData.getSections();
+
+        // Find highest section
+        int sectionCount = sections.length - 1;
+        while (sectionCount >= 0 && sections[sectionCount] == null) {
+            sectionCount--;
+        }
+        sectionCount++;
+
+        // Encode tile entities first, as their size can't be known beforehand
+        ByteBuf blockEntityBuf = ByteBufAllocator.DEFAULT.buffer(chunkData.getBlockEntities().length * 64); // Conservative estimate of 64 bytes per tile entity
+        try {
+            NBTOutputStream nbtStream = NbtUtils.createNetworkWriter(new ByteBufOutputStream(blockEntityBuf));
+            for (NbtMap blockEntity : chunkData.getBlockEntities()) {
+                nbtStream.writeTag(blockEntity);
+            }
+
+            // Calculate the exact chunk size
+            int size = 0;
+            for (int i = 0; i < sectionCount; i++) {
+                ChunkSection section = sections[i];
+                size += (section != null ? section : session.getBlockTranslator().getEmptyChunkSection()).getNetworkSize();
+            }
+            size += 256; // Biomes
+            size += 1; // Border blocks
+            size += 1; // Extra data length (always 0)
+            size += blockEntityBuf.readableBytes();
+
+            // Write straight into the array that is handed to the protocol lib (and possibly shared between sessions),
+            // rather than into a pooled buffer that has to be copied out again
+            byte[] payload = new byte[size];
+            ByteBuf byteBuf = Unpooled.wrappedBuffer(payload);
+            byteBuf.writerIndex(0);
+
+            int[] sectionOffsets = new int[sectionCount + 1];
+            for (int i = 0; i < sectionCount; i++) {
+                sectionOffsets[i] = byteBuf.writerIndex();
+                ChunkSection section = sections[i];
+                (section != null ? section : session.getBlockTranslator().getEmptyChunkSection()).writeToNetwork(byteBuf);
+            }
+            sectionOffsets[sectionCount] = byteBuf.writerIndex();
+
+            byteBuf.writeBytes(BiomeTranslator.toBedrockBiome(column.getBiomeData())); // Biomes - 256 bytes
+            byteBuf.writeByte(0); // Border blocks - Edu edition only
+            VarInts.writeUnsignedInt(byteBuf, 0); // extra data length, 0 for now
+            byteBuf.writeBytes(blockEntityBuf);
+
+            return new ChunkPayloadCache.TranslatedChunk(sectionCount, payload, chunkData.getBlockEntities(), sectionOffsets);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            blockEntityBuf.release(); // Release buffer to allow buffer pooling to be useful
+        }
+    }
 }
@@ -34,6 +34,7 @@ import com.nukkitx.protocol.bedrock.packet.ClientboundMapItemDataPacket;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.PacketTranslator;
 import org.geysermc.connector.network.translators.Translator;
+import org.geysermc.connector.network.translators.world.MapImageCache;
 import org.geysermc.connector.utils.BedrockMapIcon;
 import org.geysermc.connector.utils.DimensionUtils;
 import org.geysermc.connector.utils.MapColor;
@@ -43,7 +44,8 @@ public class JavaMapDataTranslator extends PacketTranslator<ServerMapDataPacket>
     @Override
     public void translate(ServerMapDataPacket packet, GeyserSession session) {
         ClientboundMapItemDataPacket mapItemDataPacket = new ClientboundMapItemDataPacket();
-        boolean shouldStore = false;
+        MapImageCache.StoredMap storedMap = session.getStoredMaps().get(packet.getMapId());
+        MapImageCache.Image image = storedMap != null ? storedMap.getImage() : null;
 
         mapItemDataPacket.setUniqueMapId(packet.getMapId());
         mapItemDataPacket.setDimensionId(DimensionUtils.javaToBedrock(session.getDimension()));
@@ -57,20 +59,16 @@ public class JavaMapDataTranslator extends PacketTranslator<ServerMapDataPacket>
             mapItemDataPacket.setWidth(data.getColumns());
             mapItemDataPacket.setHeight(data.getRows());
 
-            // We have a full map image, this usually only happens on spawn for the initial image
-            if (mapItemDataPacket.getWidth() == 128 && mapItemDataPacket.getHeight() == 128) {
-                shouldStore = true;
-            }
-
             // Every int entry is an ABGR color
-            int[] colors = new int[data.getData().length];
+            mapItemDataPacket.setColors(MapColor.toABGR(data.getData()));
 
-            int idx = 0;
-            for (byte colorId : data.getData()) {
-                colors[idx++] = MapColor.fromId(colorId & 0xFF).toABGR();
+            MapImageCache imageCache = session.getConnector().getMapImageCache();
+            if (mapItemDataPacket.getWidth() == MapImageCache.MAP_SIZE && mapItemDataPacket.getHeight() == MapImageCache.MAP_SIZE) {
+                // We have a full map image, this usually only happens on spawn for the initial image
+                image = imageCache.put(packet.getMapId(), data.getData());
+            } else if (image != null) {
+                image = imageCache.patch(image, data);
             }
-
-            mapItemDataPacket.setColors(colors);
         }
 
         // Bedrock needs an entity id to display an icon
@@ -84,8 +82,10 @@ public class JavaMapDataTranslator extends PacketTranslator<ServerMapDataPacket>
         }
 
         // Store the map to send when the client requests it, as bedrock expects the data after a MapInfoRequestPacket
-        if (shouldStore) {
-            session.getStoredMaps().put(mapItemDataPacket.getUniqueMapId(), mapItemDataPacket);
+        // Without a full image yet, there is nothing to send the client when it asks
+        if (image != null) {
+            session.getStoredMaps().put(packet.getMapId(), new MapImageCache.StoredMap(image, mapItemDataPacket.getDimensionId(),
+                    packet.isLocked(), packet.getScale(), mapItemDataPacket.getTrackedObjects(), mapItemDataPacket.getDecorations()));
         }
 
         // Send anyway just in case
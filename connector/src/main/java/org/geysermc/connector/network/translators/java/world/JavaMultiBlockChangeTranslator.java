@@ -28,18 +28,22 @@ package org.geysermc.connector.network.translators.java.world;
 import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.translators.PacketTranslator;
 import org.geysermc.connector.network.translators.Translator;
-import org.geysermc.connector.utils.ChunkUtils;
+import org.geysermc.connector.network.translators.world.BlockUpdateBatch;
 
+import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
 import com.github.steveice10.mc.protocol.data.game.world.block.BlockChangeRecord;
 import com.github.steveice10.mc.protocol.packet.ingame.server.world.ServerMultiBlockChangePacket;
+import com.nukkitx.math.vector.Vector3i;
 
 @Translator(packet = ServerMultiBlockChangePacket.class)
 public class JavaMultiBlockChangeTranslator extends PacketTranslator<ServerMultiBlockChangePacket> {
 
     @Override
     public void translate(ServerMultiBlockChangePacket packet, GeyserSession session) {
+        BlockUpdateBatch batch = session.getBlockUpdateBatch();
         for (BlockChangeRecord record : packet.getRecords()) {
-            ChunkUtils.updateBlock(session, record.getBlock(), record.getPosition());
+            Position position = record.getPosition();
+            batch.add(record.getBlock(), Vector3i.from(position.getX(), position.getY(), position.getZ()));
         }
     }
 }
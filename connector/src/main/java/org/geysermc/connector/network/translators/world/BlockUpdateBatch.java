@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators.world;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.nukkitx.math.vector.Vector3i;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.Object2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.cache.ChunkCache;
+import org.geysermc.connector.network.translators.java.world.JavaChunkDataTranslator;
+import org.geysermc.connector.utils.ChunkUtils;
+import org.geysermc.connector.utils.MathUtils;
+
+/**
+ * Collects the block changes of multi block change packets and sends them once the packets that are already waiting on
+ * the event loop of the session have been translated. A block that is changed several times in one burst of packets -
+ * as when WorldEdit or a minigame resets an area - is only sent once, and nothing waits for the next tick.
+ * <p>
+ * Once a sub chunk has {@link #COLUMN_RESEND_THRESHOLD} pending changes, its whole column is sent again instead,
+ * as that is smaller than the block updates. This needs the chunk cache to hold full columns; otherwise the changes
+ * are always sent block by block.
+ * <p>
+ * The chunk cache is updated straight away; only what is sent to the client is held back. Changes that involve item
+ * frames, skulls, lecterns or Bedrock-only block entities are sent straight away as well.
+ */
+public class BlockUpdateBatch {
+    /**
+     * The amount of changes to a single sub chunk after which its column is sent again, rather than every block
+     */
+    private static final int COLUMN_RESEND_THRESHOLD = 512;
+
+    private final GeyserSession session;
+    private final Object2ObjectLinkedOpenHashMap<Vector3i, PendingUpdate> pendingUpdates = new Object2ObjectLinkedOpenHashMap<>();
+    /**
+     * The amount of pending changes in each sub chunk
+     */
+    private final Long2IntOpenHashMap sectionChanges = new Long2IntOpenHashMap();
+    /**
+     * The columns with a sub chunk that reached {@link #COLUMN_RESEND_THRESHOLD} pending changes
+     */
+    private final LongSet resentColumns = new LongOpenHashSet();
+
+    public BlockUpdateBatch(GeyserSession session) {
+        this.session = session;
+    }
+
+    public synchronized void add(int blockState, Vector3i position) {
+        if (!ChunkUtils.isPlainBlockUpdate(session, blockState, position)) {
+            // Also drops a pending change for this position
+            ChunkUtils.updateBlock(session, blockState, position);
+            return;
+        }
+
+        PendingUpdate update = pendingUpdates.get(position);
+        if (update == null) {
+            if (pendingUpdates.isEmpty()) {
+                session.executeInEventLoop(this::flush);
+            }
+            pendingUpdates.put(position, new PendingUpdate(ChunkUtils.getKnownBlockState(session, position), blockState));
+            long section = getSectionKey(position);
+            if (sectionChanges.addTo(section, 1) + 1 == COLUMN_RESEND_THRESHOLD) {
+                resentColumns.add(MathUtils.chunkPositionToLong(position.getX() >> 4, position.getZ() >> 4));
+            }
+        } else {
+            // The client still has the block from before the first change
+            update.blockState = blockState;
+        }
+        session.getChunkCache().updateBlock(position.getX(), position.getY(), position.getZ(), blockState);
+    }
+
+    /**
+     * Drop the pending change for this position, because a newer one is being sent right away.
+     *
+     * @return the block state the client has at this position, or {@link ChunkUtils#UNKNOWN_BLOCK_STATE} if
+     * no change was pending
+     */
+    public synchronized int cancel(Vector3i position) {
+        if (pendingUpdates.isEmpty()) {
+            return ChunkUtils.UNKNOWN_BLOCK_STATE;
+        }
+        PendingUpdate update = pendingUpdates.remove(position);
+        if (update == null) {
+            return ChunkUtils.UNKNOWN_BLOCK_STATE;
+        }
+        long section = getSectionKey(position);
+        if (sectionChanges.addTo(section, -1) == 1) {
+            sectionChanges.remove(section);
+        }
+        return update.previousState;
+    }
+
+    /**
+     * Send every pending change to the client. Scheduled on the event loop of the session when the first change is
+     * added, and also called every tick.
+     */
+    public synchronized void flush() {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+
+        if (!resentColumns.isEmpty()) {
+            ChunkCache chunkCache = session.getChunkCache();
+            LongIterator iterator = resentColumns.iterator();
+            while (iterator.hasNext()) {
+                long chunkPosition = iterator.nextLong();
+                // The cached column already has the pending changes
+                Column column = chunkCache.getChunk((int) (chunkPosition >> 32), (int) chunkPosition);
+                if (column != null) {
+                    JavaChunkDataTranslator.sendChunk(session, chunkCache, column);
+                } else {
+                    iterator.remove();
+                }
+            }
+        }
+
+        // Sent while holding the lock, so that a newer update for the same block can't overtake this one
+        for (Object2ObjectMap.Entry<Vector3i, PendingUpdate> entry : pendingUpdates.object2ObjectEntrySet()) {
+            Vector3i position = entry.getKey();
+            if (!resentColumns.isEmpty() && resentColumns.contains(MathUtils.chunkPositionToLong(position.getX() >> 4, position.getZ() >> 4))) {
+                continue;
+            }
+            PendingUpdate update = entry.getValue();
+            ChunkUtils.sendPlainBlockUpdate(session, update.blockState, update.previousState, position);
+        }
+        clear();
+    }
+
+    /**
+     * Drop the pending changes for a column, because it was replaced by a newer one or unloaded. A replacing column
+     * already has the changes, as the chunk cache was updated when they were added.
+     */
+    public synchronized void removeChunk(int chunkX, int chunkZ) {
+        if (pendingUpdates.isEmpty()) {
+            return;
+        }
+        ObjectIterator<Vector3i> iterator = pendingUpdates.keySet().iterator();
+        while (iterator.hasNext()) {
+            Vector3i position = iterator.next();
+            if (position.getX() >> 4 == chunkX && position.getZ() >> 4 == chunkZ) {
+                iterator.remove();
+                sectionChanges.remove(getSectionKey(position));
+            }
+        }
+        resentColumns.remove(MathUtils.chunkPositionToLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Forget all pending changes, such as when the player switches dimension.
+     */
+    public synchronized void clear() {
+        pendingUpdates.clear();
+        sectionChanges.clear();
+        resentColumns.clear();
+    }
+
+    private static long getSectionKey(Vector3i position) {
+        // 22 bits for X and Z, 20 for Y, which covers every position the client can be sent
+        return ((long) (position.getX() >> 4) & 0x3FFFFF) << 42 | ((long) (position.getZ() >> 4) & 0x3FFFFF) << 20
+                | ((long) (position.getY() >> 4) & 0xFFFFF);
+    }
+
+    private static class PendingUpdate {
+        private final int previousState;
+        private int blockState;
+
+        PendingUpdate(int previousState, int blockState) {
+            this.previousState = previousState;
+            this.blockState = blockState;
+        }
+    }
+}
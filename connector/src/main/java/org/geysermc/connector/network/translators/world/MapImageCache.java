@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.translators.world;
+
+import com.github.steveice10.mc.protocol.data.game.world.map.MapData;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.nukkitx.protocol.bedrock.data.MapDecoration;
+import com.nukkitx.protocol.bedrock.data.MapTrackedObject;
+import lombok.Value;
+import org.geysermc.connector.utils.XXHash64;
+
+import java.util.List;
+
+/**
+ * A connector-wide index of full map images, so players looking at the same map art share one copy of it.
+ * <p>
+ * Images are kept as Java color IDs - a quarter of the size of the ABGR colors the client is sent - and are keyed by
+ * map ID and content hash, so different servers behind a proxy can use the same map ID for different images. Each
+ * session holds on to the images of its own maps through {@link StoredMap}; the index only references them weakly, so
+ * an image is dropped once no session uses it and is never dropped while one does. The images that were used least
+ * recently also leave the index once it is full, after which they are simply no longer shared.
+ */
+public class MapImageCache {
+    public static final int MAP_SIZE = 128;
+
+    private final Cache<Key, byte[]> cache;
+
+    /**
+     * @param maximumSize the maximum combined size of all indexed images, in bytes. 0 or less disables sharing images.
+     */
+    public MapImageCache(long maximumSize) {
+        if (maximumSize > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                    .maximumWeight(maximumSize)
+                    .weigher((Key key, byte[] value) -> value.length)
+                    .weakValues()
+                    .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    /**
+     * Store a full map image. An identical image that is already stored is used instead.
+     *
+     * @param colorIds the Java color IDs of the whole map; must not be changed afterwards
+     * @return the image to keep for as long as the map is needed
+     */
+    public Image put(long mapId, byte[] colorIds) {
+        Key key = new Key(mapId, XXHash64.hash(colorIds, 0, colorIds.length));
+        if (cache == null) {
+            return new Image(key, colorIds);
+        }
+        byte[] existing = cache.asMap().putIfAbsent(key, colorIds);
+        return new Image(key, existing != null ? existing : colorIds);
+    }
+
+    /**
+     * Apply a partial map update to a stored image. The stored image is left alone, since other players may still have
+     * it, but it is no longer handed out to anyone else; the result is stored as a new image.
+     *
+     * @return the updated image
+     */
+    public Image patch(Image image, MapData data) {
+        byte[] colorIds = image.getColorIds().clone();
+        byte[] patch = data.getData();
+        int columns = Math.min(data.getColumns(), MAP_SIZE - data.getX());
+        for (int row = 0; columns > 0 && row < data.getRows() && data.getY() + row < MAP_SIZE; row++) {
+            System.arraycopy(patch, row * data.getColumns(), colorIds, (data.getY() + row) * MAP_SIZE + data.getX(), columns);
+        }
+        if (cache != null) {
+            // Everyone looking at this map gets the same update
+            cache.asMap().remove(image.getKey(), image.getColorIds());
+        }
+        return put(image.getKey().getMapId(), colorIds);
+    }
+
+    @Value
+    public static class Key {
+        long mapId;
+        long hash;
+    }
+
+    /**
+     * An image and the key it is stored under. Holding on to it keeps the image in the index.
+     */
+    @Value
+    public static class Image {
+        Key key;
+        byte[] colorIds;
+    }
+
+    /**
+     * What a session needs to send a map when the client asks for it; the image itself is shared.
+     */
+    @Value
+    public static class StoredMap {
+        Image image;
+        int dimensionId;
+        boolean locked;
+        int scale;
+        List<MapTrackedObject> trackedObjects;
+        List<MapDecoration> decorations;
+    }
+}
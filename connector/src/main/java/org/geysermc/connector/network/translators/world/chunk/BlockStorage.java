@@ -82,16 +82,25 @@ public class BlockStorage {
         palette.forEach((IntConsumer) id -> VarInts.writeInt(buffer, id));
     }
 
-    public int estimateNetworkSize() {
+    /**
+     * @return the exact amount of bytes {@link #writeToNetwork(ByteBuf)} will write
+     */
+    public int getNetworkSize() {
         int size = 1; // Palette header
         size += this.bitArray.getWords().length * 4;
 
-        // We assume that none of the VarInts will be larger than 3 bytes
-        size += 3; // Palette size
-        size += this.palette.size() * 3;
+        size += getVarIntSize(this.palette.size());
+        for (int i = 0; i < this.palette.size(); i++) {
+            size += getVarIntSize(this.palette.getInt(i));
+        }
         return size;
     }
 
+    private static int getVarIntSize(int value) {
+        int encoded = (value << 1) ^ (value >> 31); // Zigzag encoding, as used by VarInts.writeInt
+        return (31 - Integer.numberOfLeadingZeros(encoded | 1)) / 7 + 1;
+    }
+
     private void onResize(BitArrayVersion version) {
         BitArray newBitArray = version.createArray(SIZE);
 
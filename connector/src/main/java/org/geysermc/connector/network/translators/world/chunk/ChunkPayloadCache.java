@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.github.steveice10.mc.protocol.data.game.chunk.Column;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
+import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
+import com.github.steveice10.opennbt.tag.builtin.Tag;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.nukkitx.nbt.NbtMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Value;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.translators.world.block.entity.SkullBlockEntityTranslator;
+import org.geysermc.connector.utils.XXHash64;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A connector-wide cache of finished Bedrock chunk payloads. Many sessions on the same server receive identical
+ * Java columns, so the palette remap and NBT encode only needs to happen once per unique column.
+ * <p>
+ * Columns are keyed by a SHA-256 digest of their contents, so a column is never served the payload of another one.
+ */
+public class ChunkPayloadCache {
+    private static final int BIOME_SIZE = 256;
+
+    private static final ThreadLocal<ContentDigest> DIGEST = ThreadLocal.withInitial(ContentDigest::new);
+
+    private final Cache<Key, TranslatedChunk> cache;
+
+    /**
+     * @param maximumSize the maximum combined size of all cached payloads, in bytes. 0 or less disables the cache.
+     */
+    public ChunkPayloadCache(long maximumSize) {
+        if (maximumSize > 0) {
+            this.cache = CacheBuilder.newBuilder()
+                    .maximumWeight(maximumSize)
+                    .weigher((Key key, TranslatedChunk value) -> value.getWeight())
+                    .recordStats()
+                    .build();
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Creates the cache key for this column, as seen by this session.
+     *
+     * @return the key, or null if the translated column depends on session state and can't be shared
+     */
+    public Key createKey(GeyserSession session, Column column) {
+        if (cache == null) {
+            return null;
+        }
+
+        ContentDigest digest = DIGEST.get();
+        digest.reset();
+        for (CompoundTag tag : column.getTileEntities()) {
+            if (isSessionDependent(tag)) {
+                return null;
+            }
+            digestTag(digest, tag);
+        }
+
+        for (Chunk chunk : column.getChunks()) {
+            if (chunk == null || chunk.isEmpty()) {
+                digest.putInt(0);
+                continue;
+            }
+
+            Palette palette = chunk.getPalette();
+            if (palette instanceof GlobalPalette) {
+                digest.putInt(-1);
+            } else {
+                digest.putInt(palette.size());
+                for (int i = 0; i < palette.size(); i++) {
+                    digest.putInt(palette.idToState(i));
+                }
+            }
+
+            digest.putInt(chunk.getStorage().getBitsPerEntry());
+            for (long word : chunk.getStorage().getData()) {
+                digest.putLong(word);
+            }
+        }
+
+        int[] biomeData = column.getBiomeData();
+        if (biomeData != null) {
+            digest.putInt(biomeData.length);
+            for (int biome : biomeData) {
+                digest.putInt(biome);
+            }
+        } else {
+            digest.putInt(-1);
+        }
+
+        return new Key(column.getX(), column.getZ(), session.getChunkCache().getChunkMinY(),
+                session.getBlockTranslator().getBlockStateVersion(), digest.finish());
+    }
+
+    public TranslatedChunk get(Key key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(Key key, TranslatedChunk chunk) {
+        cache.put(key, chunk);
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of this cache, or null if it is disabled
+     */
+    public CacheStats getStats() {
+        return cache != null ? cache.stats() : null;
+    }
+
+    /**
+     * @return the approximate amount of payloads currently cached
+     */
+    public long getSize() {
+        return cache != null ? cache.size() : 0;
+    }
+
+    /**
+     * Lecterns and custom skulls are translated with lookups on, or changes to, the session that receives the chunk.
+     */
+    private static boolean isSessionDependent(CompoundTag tag) {
+        if (SkullBlockEntityTranslator.ALLOW_CUSTOM_SKULLS && tag.contains("SkullOwner")) {
+            return true;
+        }
+        Tag id = tag.get("id");
+        return id != null && "minecraft:lectern".equals(id.getValue());
+    }
+
+    private static void digestTag(ContentDigest digest, Tag tag) {
+        digest.putString(tag.getName());
+        Object value = tag.getValue();
+        if (value instanceof Map) {
+            digest.putInt(((Map<?, ?>) value).size());
+            for (Object subTag : ((Map<?, ?>) value).values()) {
+                digestTag(digest, (Tag) subTag);
+            }
+        } else if (value instanceof List) {
+            digest.putInt(((List<?>) value).size());
+            for (Object subTag : (List<?>) value) {
+                digestTag(digest, (Tag) subTag);
+            }
+        } else if (value instanceof byte[]) {
+            digest.putBytes((byte[]) value);
+        } else if (value instanceof int[]) {
+            digest.putInt(((int[]) value).length);
+            for (int i : (int[]) value) {
+                digest.putInt(i);
+            }
+        } else if (value instanceof long[]) {
+            digest.putInt(((long[]) value).length);
+            for (long l : (long[]) value) {
+                digest.putLong(l);
+            }
+        } else if (value instanceof Float || value instanceof Double) {
+            digest.putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Number) {
+            digest.putLong(((Number) value).longValue());
+        } else {
+            digest.putString(value != null ? value.toString() : null);
+        }
+    }
+
+    @Value
+    public static class Key {
+        int x;
+        int z;
+        int minY;
+        int blockStateVersion;
+        /**
+         * The SHA-256 digest of the column's block entities, sections and biomes
+         */
+        byte[] contentDigest;
+    }
+
+    /**
+     * Feeds values into a SHA-256 digest, through a buffer so the digest isn't updated one value at a time
+     */
+    private static class ContentDigest {
+        private final MessageDigest digest;
+        private final ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        ContentDigest() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void reset() {
+            buffer.clear();
+            digest.reset();
+        }
+
+        void putInt(int value) {
+            if (buffer.remaining() < Integer.BYTES) {
+                flush();
+            }
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            if (buffer.remaining() < Long.BYTES) {
+                flush();
+            }
+            buffer.putLong(value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            putBytes(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void putBytes(byte[] bytes) {
+            putInt(bytes.length);
+            flush();
+            digest.update(bytes);
+        }
+
+        /**
+         * @return the digest of everything put in since the last reset
+         */
+        byte[] finish() {
+            flush();
+            return digest.digest();
+        }
+
+        private void flush() {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * A fully encoded Bedrock chunk. The payload can either be sent as-is, or split into blobs for clients that support
+     * the client blob cache.
+     */
+    @Getter
+    public static class TranslatedChunk {
+        private final int subChunksLength;
+        private final byte[] payload;
+        private final NbtMap[] blockEntities;
+        /**
+         * The index in the payload where each sub chunk starts. The last entry is where the biomes start.
+         */
+        @Getter(AccessLevel.NONE)
+        private final int[] sectionOffsets;
+
+        @Getter(AccessLevel.NONE)
+        private volatile long[] blobIds;
+        @Getter(AccessLevel.NONE)
+        private volatile byte[] cachedPayload;
+
+        public TranslatedChunk(int subChunksLength, byte[] payload, NbtMap[] blockEntities, int[] sectionOffsets) {
+            this.subChunksLength = subChunksLength;
+            this.payload = payload;
+            this.blockEntities = blockEntities;
+            this.sectionOffsets = sectionOffsets;
+        }
+
+        /**
+         * @return the weight of this chunk in the cache: the payload, plus the blob IDs and the cached payload, which
+         * are counted up front as the cache can't weigh them again once they are built
+         */
+        public int getWeight() {
+            int cachedPayloadLength = payload.length - sectionOffsets[subChunksLength] - BIOME_SIZE;
+            return payload.length + cachedPayloadLength + (subChunksLength + 1) * Long.BYTES;
+        }
+
+        /**
+         * @return the xxHash64 of every sub chunk, followed by the hash of the biomes
+         */
+        public long[] getBlobIds() {
+            long[] blobIds = this.blobIds;
+            if (blobIds == null) {
+                blobIds = new long[subChunksLength + 1];
+                for (int i = 0; i < blobIds.length; i++) {
+                    blobIds[i] = XXHash64.hash(payload, getBlobStart(i), getBlobLength(i));
+                }
+                this.blobIds = blobIds;
+            }
+            return blobIds;
+        }
+
+        /**
+         * @param index the index of the blob, as ordered in {@link #getBlobIds()}
+         * @return a copy of the blob's data
+         */
+        public byte[] getBlob(int index) {
+            int start = getBlobStart(index);
+            return Arrays.copyOfRange(payload, start, start + getBlobLength(index));
+        }
+
+        /**
+         * @return the payload without the sub chunks and biomes, which are sent as blobs instead
+         */
+        public byte[] getCachedPayload() {
+            byte[] cachedPayload = this.cachedPayload;
+            if (cachedPayload == null) {
+                this.cachedPayload = cachedPayload = Arrays.copyOfRange(payload, sectionOffsets[subChunksLength] + BIOME_SIZE, payload.length);
+            }
+            return cachedPayload;
+        }
+
+        private int getBlobStart(int index) {
+            return sectionOffsets[index];
+        }
+
+        private int getBlobLength(int index) {
+            if (index == subChunksLength) {
+                return BIOME_SIZE;
+            }
+            return sectionOffsets[index + 1] - sectionOffsets[index];
+        }
+    }
+}
@@ -62,10 +62,13 @@ public class ChunkSection {
         }
     }
 
-    public int estimateNetworkSize() {
+    /**
+     * @return the exact amount of bytes {@link #writeToNetwork(ByteBuf)} will write
+     */
+    public int getNetworkSize() {
         int size = 2; // Version + storage count
         for (BlockStorage blockStorage : this.storage) {
-            size += blockStorage.estimateNetworkSize();
+            size += blockStorage.getNetworkSize();
         }
         return size;
     }
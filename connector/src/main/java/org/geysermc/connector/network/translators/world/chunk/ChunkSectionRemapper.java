@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.BitStorage;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArray;
+import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArrayVersion;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Converts Java chunk sections from YZX to Bedrock's XZY order a whole word at a time, instead of going through
+ * {@link BitStorage#get(int)} and {@link BitArray#set(int, int)} for every block.
+ * <p>
+ * Intermediate values are kept in per-thread buffers. Any array or list returned from this class that is not a
+ * {@link BitArray} belongs to the calling thread and is only valid until the next call.
+ */
+public class ChunkSectionRemapper {
+    /**
+     * Maps an index in XZY order to the same block's index in YZX order
+     */
+    private static final int[] XZY_TO_YZX = new int[BlockStorage.SIZE];
+    /**
+     * Enough to hold every Java block state, as the global palette uses 15 bits per entry
+     */
+    private static final int GLOBAL_PALETTE_SIZE = 1 << 15;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    static {
+        for (int xzy = 0; xzy < BlockStorage.SIZE; xzy++) {
+            int x = xzy >> 8;
+            int z = (xzy >> 4) & 0xF;
+            int y = xzy & 0xF;
+            XZY_TO_YZX[xzy] = (y << 8) | (z << 4) | x;
+        }
+    }
+
+    /**
+     * Unpack all values of a Java section's storage, in YZX order.
+     */
+    public static int[] unpack(BitStorage storage) {
+        int[] values = BUFFERS.get().values;
+        int bits = storage.getBitsPerEntry();
+        int valuesPerLong = 64 / bits;
+        long mask = (1L << bits) - 1L;
+
+        // Since 1.16 values don't span across longs, so each long can be read in one go
+        int index = 0;
+        for (long word : storage.getData()) {
+            int end = Math.min(index + valuesPerLong, BlockStorage.SIZE);
+            for (; index < end; index++) {
+                values[index] = (int) (word & mask);
+                word >>>= bits;
+            }
+            if (index == BlockStorage.SIZE) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Get the Java block states that the unpacked values of this section point to.
+     * <p>
+     * For the global palette, the values are rewritten in place to point into the returned list instead, so that
+     * every section can be handled as if it had its own palette.
+     *
+     * @param palette the section's Java palette
+     * @param values the unpacked values of the section
+     * @return the Java block states of the section, indexed by the values
+     */
+    public static IntList createJavaPalette(Palette palette, int[] values) {
+        Buffers buffers = BUFFERS.get();
+        IntArrayList javaPalette = buffers.javaPalette;
+        javaPalette.clear();
+
+        if (!(palette instanceof GlobalPalette)) {
+            for (int i = 0; i < palette.size(); i++) {
+                javaPalette.add(palette.idToState(i));
+            }
+            return javaPalette;
+        }
+
+        // Rather than clearing the lookup for every section, entries from previous sections are ignored by their generation
+        int generation = ++buffers.generation;
+        if (generation == 0) {
+            Arrays.fill(buffers.globalGenerations, 0);
+            generation = buffers.generation = 1;
+        }
+        int[] globalIndices = buffers.globalIndices;
+        int[] globalGenerations = buffers.globalGenerations;
+
+        int lastState = -1;
+        int lastIndex = 0;
+        for (int i = 0; i < BlockStorage.SIZE; i++) {
+            int state = values[i];
+            if (state != lastState) {
+                // Runs of the same block are common, so only look up when the block changes
+                if (globalGenerations[state] != generation) {
+                    globalGenerations[state] = generation;
+                    globalIndices[state] = javaPalette.size();
+                    javaPalette.add(state);
+                }
+                lastState = state;
+                lastIndex = globalIndices[state];
+            }
+            values[i] = lastIndex;
+        }
+        return javaPalette;
+    }
+
+    /**
+     * Pack the unpacked values of a section into a Bedrock bit array, in XZY order.
+     *
+     * @param values the palette indices of the section, in YZX order
+     * @param paletteSize the amount of entries in the section's palette
+     * @return the new bit array
+     */
+    public static BitArray remap(int[] values, int paletteSize) {
+        int bits = paletteSize <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+        BitArrayVersion version = BitArrayVersion.forBitsCeil(bits);
+        int bitsPerEntry = version.getId();
+        int entriesPerWord = 32 / bitsPerEntry; // Padded versions leave the remaining bits unused
+
+        int[] words = new int[version.getWordsForSize(BlockStorage.SIZE)];
+        int xzy = 0;
+        for (int i = 0; i < words.length; i++) {
+            int end = Math.min(xzy + entriesPerWord, BlockStorage.SIZE);
+            int word = 0;
+            for (int shift = 0; xzy < end; xzy++, shift += bitsPerEntry) {
+                word |= values[XZY_TO_YZX[xzy]] << shift;
+            }
+            words[i] = word;
+        }
+        return version.createArray(BlockStorage.SIZE, words);
+    }
+
+    /**
+     * Create the words of a V1 bit array that has every waterlogged block of the section set.
+     *
+     * @param values the palette indices of the section, in YZX order
+     * @param waterloggedPaletteIds the palette indices that are waterlogged
+     * @return the words of the V1 bit array, in XZY order
+     */
+    public static int[] createWaterlogLayer(int[] values, BitSet waterloggedPaletteIds) {
+        int[] words = new int[BlockStorage.SIZE >> 5];
+        int xzy = 0;
+        for (int i = 0; i < words.length; i++) {
+            int word = 0;
+            for (int bit = 0; bit < 32; bit++, xzy++) {
+                if (waterloggedPaletteIds.get(values[XZY_TO_YZX[xzy]])) {
+                    word |= 1 << bit;
+                }
+            }
+            words[i] = word;
+        }
+        return words;
+    }
+
+    private static class Buffers {
+        private final int[] values = new int[BlockStorage.SIZE];
+        private final IntArrayList javaPalette = new IntArrayList();
+        private final int[] globalIndices = new int[GLOBAL_PALETTE_SIZE];
+        private final int[] globalGenerations = new int[GLOBAL_PALETTE_SIZE];
+        private int generation;
+    }
+}
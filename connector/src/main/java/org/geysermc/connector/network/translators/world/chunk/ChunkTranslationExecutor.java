@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Getter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * The threads that translate chunks for all sessions, kept apart from the general thread pool so that a wave of
+ * joining players can't hold up session ticks. Work is submitted per session through a {@link ChunkTranslationQueue}.
+ */
+public class ChunkTranslationExecutor {
+    private final ExecutorService executor;
+
+    /**
+     * The amount of chunks waiting to be translated, across all sessions
+     */
+    private final AtomicInteger queuedChunks = new AtomicInteger();
+    @Getter
+    private final AtomicLong translatedChunks = new AtomicLong();
+    private final AtomicLong totalLatency = new AtomicLong();
+    private final LongAccumulator maximumLatency = new LongAccumulator(Math::max, 0);
+
+    public ChunkTranslationExecutor(int threads) {
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("Geyser Chunk Translator #%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    void onQueued() {
+        queuedChunks.incrementAndGet();
+    }
+
+    void onDequeued(int amount) {
+        queuedChunks.addAndGet(-amount);
+    }
+
+    /**
+     * @param latency the nanoseconds between a chunk being queued and it being sent to the client
+     */
+    void onTranslated(long latency) {
+        translatedChunks.incrementAndGet();
+        totalLatency.addAndGet(latency);
+        maximumLatency.accumulate(latency);
+    }
+
+    public int getQueuedChunks() {
+        return queuedChunks.get();
+    }
+
+    /**
+     * @return the average time, in milliseconds, between a chunk being queued and it being sent
+     */
+    public double getAverageLatency() {
+        long translated = translatedChunks.get();
+        return translated == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatency.get() / translated) / 1000D;
+    }
+
+    /**
+     * @return the longest time, in milliseconds, between a chunk being queued and it being sent
+     */
+    public double getMaximumLatency() {
+        return TimeUnit.NANOSECONDS.toMicros(maximumLatency.get()) / 1000D;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
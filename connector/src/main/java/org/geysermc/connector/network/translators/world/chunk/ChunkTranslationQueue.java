@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.nukkitx.math.vector.Vector3f;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.utils.MathUtils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Holds the chunks of one session that are waiting to be translated. Only one chunk of a session is translated at
+ * a time, and the chunk nearest to the player goes first.
+ * <p>
+ * Chunks at different positions may be sent in any order, but everything for one position is kept in order:
+ * a newer column replaces a queued one, and block updates for a queued chunk wait until that chunk has been sent.
+ * <p>
+ * The queue can't grow past the chunks around the player: once it is larger than the area the client keeps, queued
+ * chunks outside of it are dropped, as the client would discard them anyway.
+ */
+public class ChunkTranslationQueue {
+    /**
+     * How many chunks to translate before giving other sessions a turn
+     */
+    private static final int CHUNKS_PER_TURN = 4;
+
+    private final GeyserSession session;
+    private final ChunkTranslationExecutor executor;
+
+    private final Long2ObjectLinkedOpenHashMap<PendingChunk> queuedChunks = new Long2ObjectLinkedOpenHashMap<>();
+    /**
+     * The queued positions, farthest from {@link #orderCenter} first. Positions that are no longer queued are skipped
+     * when they come up, and dropped whenever the order is rebuilt.
+     */
+    private final LongArrayList order = new LongArrayList();
+    /**
+     * The player's chunk when {@link #order} was last sorted; it only needs sorting again once the player changes chunk
+     */
+    private long orderCenter;
+    private boolean orderValid = false;
+    /**
+     * The chunk currently being translated or having its follow-up tasks run
+     */
+    private PendingChunk currentChunk;
+    /**
+     * If a turn of this queue is waiting for, or running on, the executor
+     */
+    private boolean scheduled;
+
+    public ChunkTranslationQueue(GeyserSession session) {
+        this.session = session;
+        this.executor = session.getConnector().getChunkTranslationExecutor();
+    }
+
+    /**
+     * Queue a chunk to be translated and sent. If a chunk for this position is already queued, it is replaced,
+     * as the newer column holds the latest state.
+     *
+     * @param task translates and sends the chunk
+     */
+    public void add(int chunkX, int chunkZ, Runnable task) {
+        long position = MathUtils.chunkPositionToLong(chunkX, chunkZ);
+        synchronized (this) {
+            PendingChunk existing = queuedChunks.get(position);
+            if (existing != null) {
+                existing.task = task;
+            } else {
+                queuedChunks.put(position, new PendingChunk(position, task));
+                executor.onQueued();
+                if (orderValid) {
+                    insertIntoOrder(position);
+                }
+                int renderDistance = session.getRenderDistance();
+                if (renderDistance > 0 && queuedChunks.size() > getMaximumQueuedChunks(renderDistance)) {
+                    dropDistantChunks(renderDistance);
+                }
+            }
+
+            if (scheduled) {
+                return;
+            }
+            scheduled = true;
+        }
+        executor.execute(this::runTurn);
+    }
+
+    /**
+     * Run a task once the chunk at this position has been sent, if it is still waiting to be.
+     *
+     * @return false if no chunk is waiting at this position, in which case the task was not run
+     */
+    public synchronized boolean runAfterChunk(int chunkX, int chunkZ, Runnable task) {
+        long position = MathUtils.chunkPositionToLong(chunkX, chunkZ);
+        PendingChunk chunk = queuedChunks.get(position);
+        if (chunk == null) {
+            if (currentChunk == null || currentChunk.position != position) {
+                return false;
+            }
+            chunk = currentChunk;
+        }
+        chunk.followUps.add(task);
+        return true;
+    }
+
+    /**
+     * Remove a chunk that hasn't been translated yet, because it has been unloaded.
+     */
+    public synchronized void cancel(int chunkX, int chunkZ) {
+        if (queuedChunks.remove(MathUtils.chunkPositionToLong(chunkX, chunkZ)) != null) {
+            executor.onDequeued(1);
+        }
+    }
+
+    /**
+     * Remove all chunks that haven't been translated yet.
+     */
+    public synchronized void clear() {
+        executor.onDequeued(queuedChunks.size());
+        queuedChunks.clear();
+        order.clear();
+        orderValid = false;
+    }
+
+    public synchronized int size() {
+        return queuedChunks.size();
+    }
+
+    private void runTurn() {
+        for (int i = 0; i < CHUNKS_PER_TURN; i++) {
+            PendingChunk chunk;
+            synchronized (this) {
+                chunk = pollNearest();
+                if (chunk == null) {
+                    scheduled = false;
+                    return;
+                }
+                currentChunk = chunk;
+            }
+            executor.onDequeued(1);
+
+            run(chunk.task);
+            executor.onTranslated(System.nanoTime() - chunk.queuedTime);
+
+            // Anything that had to wait for this chunk can go out now
+            while (true) {
+                Runnable followUp;
+                synchronized (this) {
+                    followUp = chunk.followUps.poll();
+                    if (followUp == null) {
+                        currentChunk = null;
+                        break;
+                    }
+                }
+                run(followUp);
+            }
+        }
+
+        synchronized (this) {
+            if (queuedChunks.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+        }
+        executor.execute(this::runTurn);
+    }
+
+    private PendingChunk pollNearest() {
+        if (queuedChunks.isEmpty()) {
+            return null;
+        }
+
+        long center = getPlayerChunk();
+        // Rebuilding also gets rid of positions that were cancelled or already polled
+        if (!orderValid || center != orderCenter || order.size() > queuedChunks.size() * 2 + 64) {
+            rebuildOrder(center);
+        }
+
+        while (!order.isEmpty()) {
+            PendingChunk chunk = queuedChunks.remove(order.removeLong(order.size() - 1));
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+        // Can't happen, as every queued position is in the order
+        orderValid = false;
+        return null;
+    }
+
+    private void rebuildOrder(long center) {
+        order.clear();
+        order.addAll(queuedChunks.keySet());
+        LongArrays.quickSort(order.elements(), 0, order.size(),
+                (first, second) -> Long.compare(getDistance(second, center), getDistance(first, center)));
+        orderCenter = center;
+        orderValid = true;
+    }
+
+    private void insertIntoOrder(long position) {
+        long distance = getDistance(position, orderCenter);
+        // Binary search for the first position that is nearer than this one
+        int low = 0;
+        int high = order.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getDistance(order.getLong(middle), orderCenter) >= distance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        order.add(low, position);
+    }
+
+    /**
+     * Drop the queued chunks the client would discard for being outside its render distance.
+     */
+    private void dropDistantChunks(int renderDistance) {
+        long center = getPlayerChunk();
+        long maximumDistance = (long) (renderDistance + 1) * (renderDistance + 1);
+        int dropped = 0;
+        ObjectIterator<Long2ObjectMap.Entry<PendingChunk>> iterator = queuedChunks.long2ObjectEntrySet().fastIterator();
+        while (iterator.hasNext()) {
+            if (getDistance(iterator.next().getLongKey(), center) > maximumDistance) {
+                iterator.remove();
+                dropped++;
+            }
+        }
+        if (dropped != 0) {
+            executor.onDequeued(dropped);
+            session.getConnector().getLogger().debug("Dropped " + dropped + " queued chunks outside the render distance of " + session.getName());
+        }
+    }
+
+    /**
+     * @return the most chunks the client can have around it at this render distance, with a margin of one chunk
+     */
+    private static int getMaximumQueuedChunks(int renderDistance) {
+        int diameter = (renderDistance + 1) * 2 + 1;
+        return diameter * diameter;
+    }
+
+    private long getPlayerChunk() {
+        Vector3f position = session.getPlayerEntity().getPosition();
+        return MathUtils.chunkPositionToLong(position.getFloorX() >> 4, position.getFloorZ() >> 4);
+    }
+
+    private static long getDistance(long chunkPosition, long center) {
+        long dx = (int) (chunkPosition >> 32) - (int) (center >> 32);
+        long dz = (int) chunkPosition - (int) center;
+        return dx * dx + dz * dz;
+    }
+
+    private void run(Runnable task) {
+        if (session.isClosed()) {
+            // The caches of the session are gone
+            return;
+        }
+        try {
+            task.run();
+        } catch (Throwable t) {
+            session.getConnector().getLogger().error("Error while translating a chunk", t);
+        }
+    }
+
+    private static class PendingChunk {
+        private final long position;
+        private final long queuedTime = System.nanoTime();
+        private Runnable task;
+        private final Queue<Runnable> followUps = new ArrayDeque<>();
+
+        PendingChunk(long position, Runnable task) {
+            this.position = position;
+            this.task = task;
+        }
+    }
+}
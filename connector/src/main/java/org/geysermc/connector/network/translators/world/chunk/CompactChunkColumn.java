@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import lombok.Getter;
+
+/**
+ * The sections of one cached column. With shared-chunk-columns enabled, a column is shared between every session
+ * that has a column with the same blocks, wherever it is - superflat worlds and lobbies end up with a single column.
+ * A shared column must never be written to; {@link #copy()} it first.
+ */
+public class CompactChunkColumn {
+    private static final Interner<CompactChunkColumn> INTERNER = Interners.newWeakInterner();
+
+    private final CompactChunkSection[] sections;
+    /**
+     * If this column may be referenced by other sessions
+     */
+    @Getter
+    private boolean shared;
+
+    private CompactChunkColumn(CompactChunkSection[] sections) {
+        this.sections = sections;
+    }
+
+    /**
+     * Convert the sections of a Java column.
+     *
+     * @param share if the equal column another session already holds should be returned, if there is one
+     */
+    public static CompactChunkColumn create(Chunk[] javaSections, boolean share) {
+        CompactChunkSection[] sections = new CompactChunkSection[javaSections.length];
+        for (int i = 0; i < javaSections.length; i++) {
+            if (javaSections[i] != null) {
+                sections[i] = CompactChunkSection.intern(javaSections[i]);
+            }
+        }
+        CompactChunkColumn column = new CompactChunkColumn(sections);
+        if (!share) {
+            return column;
+        }
+        column.shared = true;
+        return INTERNER.intern(column);
+    }
+
+    /**
+     * @return a copy of this column that only the caller holds. The sections themselves are still shared.
+     */
+    public CompactChunkColumn copy() {
+        return new CompactChunkColumn(sections.clone());
+    }
+
+    public int getSectionCount() {
+        return sections.length;
+    }
+
+    public CompactChunkSection getSection(int index) {
+        return sections[index];
+    }
+
+    public void setSection(int index, CompactChunkSection section) {
+        if (shared) {
+            throw new IllegalStateException("Shared chunk columns can not be changed");
+        }
+        sections[index] = section;
+    }
+
+    /**
+     * @return a rough estimate of the heap used by this column, not counting its sections, in bytes
+     */
+    public int getMemoryUsage() {
+        return 16 + 16 + (sections.length << 2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactChunkColumn)) {
+            return false;
+        }
+        CompactChunkSection[] otherSections = ((CompactChunkColumn) o).sections;
+        if (sections.length != otherSections.length) {
+            return false;
+        }
+        // Sections are interned, so equal sections are the same instance
+        for (int i = 0; i < sections.length; i++) {
+            if (sections[i] != otherSections[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (CompactChunkSection section : sections) {
+            result = 31 * result + System.identityHashCode(section);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import it.unimi.dsi.fastutil.ints.IntList;
+import lombok.Getter;
+
+import java.util.Arrays;
+
+/**
+ * A Java chunk section reduced to what the chunk cache reads back: a palette of Java block states and the packed
+ * indices into it, in YZX order. Sections are always stored with their own palette and as few bits as it needs.
+ * <p>
+ * Identical sections are shared between sessions through {@link #intern(Chunk)}. A shared section must never be
+ * written to; {@link #copy()} it first.
+ */
+public class CompactChunkSection {
+    /**
+     * Sections that are currently in use by at least one session. Sections are only weakly referenced, so they
+     * are dropped as soon as no chunk cache holds them anymore.
+     */
+    private static final Interner<CompactChunkSection> INTERNER = Interners.newWeakInterner();
+
+    private int[] palette;
+    private int paletteSize;
+    private int bitsPerEntry;
+    private long[] words;
+    /**
+     * If this section may be referenced by other sessions
+     */
+    @Getter
+    private boolean shared;
+
+    private CompactChunkSection(int[] palette, int paletteSize, int bitsPerEntry, long[] words) {
+        this.palette = palette;
+        this.paletteSize = paletteSize;
+        this.bitsPerEntry = bitsPerEntry;
+        this.words = words;
+    }
+
+    /**
+     * Convert a Java section, returning the equal section another session already holds if there is one.
+     */
+    public static CompactChunkSection intern(Chunk chunk) {
+        int[] values = ChunkSectionRemapper.unpack(chunk.getStorage());
+        IntList javaPalette = ChunkSectionRemapper.createJavaPalette(chunk.getPalette(), values);
+
+        int bitsPerEntry = bitsFor(javaPalette.size());
+        CompactChunkSection section = new CompactChunkSection(javaPalette.toIntArray(), javaPalette.size(),
+                bitsPerEntry, pack(values, bitsPerEntry));
+        section.shared = true;
+        return INTERNER.intern(section);
+    }
+
+    /**
+     * @return a copy of this section that only the caller holds
+     */
+    public CompactChunkSection copy() {
+        return new CompactChunkSection(Arrays.copyOf(palette, paletteSize), paletteSize, bitsPerEntry, words.clone());
+    }
+
+    public int get(int x, int y, int z) {
+        int index = (y << 8) | (z << 4) | x;
+        int valuesPerWord = 64 / bitsPerEntry;
+        int shift = (index % valuesPerWord) * bitsPerEntry;
+        int paletteIndex = (int) ((words[index / valuesPerWord] >>> shift) & ((1L << bitsPerEntry) - 1L));
+        return palette[paletteIndex];
+    }
+
+    public void set(int x, int y, int z, int blockState) {
+        if (shared) {
+            throw new IllegalStateException("Shared chunk sections can not be changed");
+        }
+
+        int paletteIndex = -1;
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] == blockState) {
+                paletteIndex = i;
+                break;
+            }
+        }
+        if (paletteIndex == -1) {
+            paletteIndex = addToPalette(blockState);
+        }
+
+        int index = (y << 8) | (z << 4) | x;
+        int valuesPerWord = 64 / bitsPerEntry;
+        int shift = (index % valuesPerWord) * bitsPerEntry;
+        long mask = ((1L << bitsPerEntry) - 1L) << shift;
+        int wordIndex = index / valuesPerWord;
+        words[wordIndex] = (words[wordIndex] & ~mask) | ((long) paletteIndex << shift);
+    }
+
+    /**
+     * @return a rough estimate of the heap used by this section, in bytes
+     */
+    public int getMemoryUsage() {
+        // Object header and fields, plus both arrays with their headers
+        return 32 + 16 + (palette.length << 2) + 16 + (words.length << 3);
+    }
+
+    private int addToPalette(int blockState) {
+        if (paletteSize == palette.length) {
+            palette = Arrays.copyOf(palette, Math.max(4, paletteSize * 2));
+        }
+        int paletteIndex = paletteSize++;
+        palette[paletteIndex] = blockState;
+
+        if (bitsFor(paletteSize) > bitsPerEntry) {
+            // The new entry doesn't fit anymore; repack everything with an extra bit
+            int[] values = new int[BlockStorage.SIZE];
+            int valuesPerWord = 64 / bitsPerEntry;
+            long mask = (1L << bitsPerEntry) - 1L;
+            for (int i = 0; i < BlockStorage.SIZE; i++) {
+                values[i] = (int) ((words[i / valuesPerWord] >>> ((i % valuesPerWord) * bitsPerEntry)) & mask);
+            }
+            bitsPerEntry++;
+            words = pack(values, bitsPerEntry);
+        }
+        return paletteIndex;
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return paletteSize <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    private static long[] pack(int[] values, int bitsPerEntry) {
+        // Like Java since 1.16, values never span across two words
+        int valuesPerWord = 64 / bitsPerEntry;
+        long[] words = new long[(BlockStorage.SIZE + valuesPerWord - 1) / valuesPerWord];
+        for (int i = 0; i < BlockStorage.SIZE; i++) {
+            words[i / valuesPerWord] |= (long) values[i] << ((i % valuesPerWord) * bitsPerEntry);
+        }
+        return words;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactChunkSection)) {
+            return false;
+        }
+        CompactChunkSection that = (CompactChunkSection) o;
+        if (bitsPerEntry != that.bitsPerEntry || paletteSize != that.paletteSize) {
+            return false;
+        }
+        for (int i = 0; i < paletteSize; i++) {
+            if (palette[i] != that.palette[i]) {
+                return false;
+            }
+        }
+        return Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = bitsPerEntry;
+        for (int i = 0; i < paletteSize; i++) {
+            result = 31 * result + palette[i];
+        }
+        return 31 * result + Arrays.hashCode(words);
+    }
+}
@@ -26,10 +26,15 @@
 package org.geysermc.connector.scoreboard;
 
 import com.github.steveice10.mc.protocol.data.game.scoreboard.ScoreboardPosition;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Getter
@@ -48,6 +53,11 @@ public final class Objective {
     private int type = 0; // 0 = integer, 1 = heart
 
     private Map<String, Score> scores = new ConcurrentHashMap<>();
+    /**
+     * The names of the scores that changed since the last update
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<String> changedScores = ConcurrentHashMap.newKeySet();
 
     private Objective(Scoreboard scoreboard) {
         this.id = scoreboard.getNextId().getAndIncrement();
@@ -105,6 +115,7 @@ public final class Objective {
                     .setTeam(scoreboard.getTeamFor(id))
                     .setUpdateType(UpdateType.ADD);
             scores.put(id, scoreObject);
+            changedScores.add(id);
         }
     }
 
@@ -113,6 +124,7 @@ public final class Objective {
         if (stored != null) {
             stored.setScore(score)
                     .setUpdateType(UpdateType.UPDATE);
+            changedScores.add(id);
             return;
         }
         registerScore(id, score);
@@ -122,9 +134,44 @@ public final class Objective {
         Score stored = scores.get(id);
         if (stored != null) {
             stored.setUpdateType(UpdateType.REMOVE);
+            changedScores.add(id);
         }
     }
 
+    /**
+     * Get the scores that have to be checked in this update, and forget which scores changed.
+     *
+     * @param changedEntities names whose team changed; their scores have to be checked as well
+     */
+    List<Score> pollChangedScores(Set<String> changedEntities) {
+        List<Score> changed = new ArrayList<>(changedScores.size() + changedEntities.size());
+        Iterator<String> iterator = changedScores.iterator();
+        while (iterator.hasNext()) {
+            String name = iterator.next();
+            iterator.remove();
+            if (!changedEntities.contains(name)) {
+                Score score = scores.get(name);
+                if (score != null) {
+                    changed.add(score);
+                }
+            }
+        }
+        for (String name : changedEntities) {
+            Score score = scores.get(name);
+            if (score != null) {
+                changed.add(score);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Forget which scores changed, because all of them are checked in this update
+     */
+    void clearChangedScores() {
+        changedScores.clear();
+    }
+
     /**
      * Used internally to remove a score from the score map
      */
@@ -158,5 +205,6 @@ public final class Objective {
 
     public void removed() {
         scores = null;
+        changedScores.clear();
     }
 }
@@ -26,10 +26,13 @@
 package org.geysermc.connector.scoreboard;
 
 import com.github.steveice10.mc.protocol.data.game.scoreboard.ScoreboardPosition;
+import com.nukkitx.protocol.bedrock.BedrockPacket;
 import com.nukkitx.protocol.bedrock.data.ScoreInfo;
 import com.nukkitx.protocol.bedrock.packet.RemoveObjectivePacket;
 import com.nukkitx.protocol.bedrock.packet.SetDisplayObjectivePacket;
 import com.nukkitx.protocol.bedrock.packet.SetScorePacket;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.geysermc.connector.GeyserConnector;
 import org.geysermc.connector.GeyserLogger;
@@ -39,6 +42,7 @@ import org.geysermc.connector.utils.LanguageUtils;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static org.geysermc.connector.scoreboard.UpdateType.*;
 
@@ -46,17 +50,49 @@ import static org.geysermc.connector.scoreboard.UpdateType.*;
 public final class Scoreboard {
     private final GeyserSession session;
     private final GeyserLogger logger;
+    @Getter(AccessLevel.NONE)
+    private final Consumer<BedrockPacket> upstream;
     private final AtomicLong nextId = new AtomicLong(0);
 
     private final Map<String, Objective> objectives = new ConcurrentHashMap<>();
-    private final Map<String, Team> teams = new HashMap<>();
+    /**
+     * Teams are changed by the packet thread while the session tick sends the scoreboard, so everything that is shared
+     * between both is concurrent
+     */
+    private final Map<String, Team> teams = new ConcurrentHashMap<>();
+    /**
+     * The team of each entity, so it doesn't have to be searched for in every team
+     */
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Team> entityTeams = new ConcurrentHashMap<>();
+
+    /**
+     * Teams that changed since the last update; the scores of all their entities have to be checked
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<Team> changedTeams = ConcurrentHashMap.newKeySet();
+    /**
+     * Entities that joined or left a team since the last update
+     */
+    @Getter(AccessLevel.NONE)
+    private final Set<String> changedEntities = ConcurrentHashMap.newKeySet();
+    /**
+     * Teams that are being sent in the current update
+     */
+    @Getter(AccessLevel.NONE)
+    private final List<Team> updatingTeams = new ArrayList<>();
 
     private int lastAddScoreCount = 0;
     private int lastRemoveScoreCount = 0;
 
     public Scoreboard(GeyserSession session) {
+        this(session, GeyserConnector.getInstance().getLogger(), session::sendUpstreamPacket);
+    }
+
+    Scoreboard(GeyserSession session, GeyserLogger logger, Consumer<BedrockPacket> upstream) {
         this.session = session;
-        this.logger = GeyserConnector.getInstance().getLogger();
+        this.logger = logger;
+        this.upstream = upstream;
     }
 
     public Objective registerNewObjective(String objectiveId, boolean active) {
@@ -106,6 +142,7 @@ public final class Scoreboard {
 
         team = new Team(this, teamName).addEntities(players);
         teams.put(teamName, team);
+        changedTeams.add(team);
         return team;
     }
 
@@ -128,23 +165,51 @@ public final class Scoreboard {
         Team remove = teams.remove(teamName);
         if (remove != null) {
             remove.setUpdateType(REMOVE);
+            for (String entity : remove.getEntities()) {
+                entityTeams.remove(entity, remove);
+            }
         }
     }
 
-    public void onUpdate() {
+    public synchronized void onUpdate() {
         List<ScoreInfo> addScores = new ArrayList<>(getLastAddScoreCount());
         List<ScoreInfo> removeScores = new ArrayList<>(getLastRemoveScoreCount());
         List<Objective> removedObjectives = new ArrayList<>();
 
+        // Only the scores that changed, or whose team changed, have to be checked
+        Set<String> changedEntities = new ObjectOpenHashSet<>();
+        Iterator<Team> changedTeamIterator = this.changedTeams.iterator();
+        while (changedTeamIterator.hasNext()) {
+            Team team = changedTeamIterator.next();
+            changedTeamIterator.remove();
+            changedEntities.addAll(team.getEntities());
+        }
+        Iterator<String> changedEntityIterator = this.changedEntities.iterator();
+        while (changedEntityIterator.hasNext()) {
+            changedEntities.add(changedEntityIterator.next());
+            changedEntityIterator.remove();
+        }
+
         for (Objective objective : objectives.values()) {
             if (!objective.isActive()) {
                 logger.debug("Ignoring non-active Scoreboard Objective '" + objective.getObjectiveName() + '\'');
+                // All scores will be checked once it's displayed
+                objective.clearChangedScores();
                 continue;
             }
 
+            Collection<Score> scores;
+            if (objective.getUpdateType() != NOTHING) {
+                // Every score has to be sent again
+                objective.clearChangedScores();
+                scores = objective.getScores().values();
+            } else {
+                scores = objective.pollChangedScores(changedEntities);
+            }
+
             // hearts can't hold teams, so we treat them differently
             if (objective.getType() == 1) {
-                for (Score score : objective.getScores().values()) {
+                for (Score score : scores) {
                     boolean update = score.shouldUpdate();
 
                     if (update) {
@@ -158,6 +223,10 @@ public final class Scoreboard {
                         removeScores.add(score.getCachedInfo());
                     }
                 }
+                if (objective.getUpdateType() != REMOVE) {
+                    // Only check the scores that changed from now on
+                    objective.setUpdateType(NOTHING);
+                }
                 continue;
             }
 
@@ -165,7 +234,7 @@ public final class Scoreboard {
             boolean objectiveAdd = objective.getUpdateType() == ADD;
             boolean objectiveRemove = objective.getUpdateType() == REMOVE;
 
-            for (Score score : objective.getScores().values()) {
+            for (Score score : scores) {
                 Team team = score.getTeam();
 
                 boolean add = objectiveAdd || objectiveUpdate;
@@ -219,7 +288,7 @@ public final class Scoreboard {
             if (objectiveUpdate) {
                 RemoveObjectivePacket removeObjectivePacket = new RemoveObjectivePacket();
                 removeObjectivePacket.setObjectiveId(objective.getObjectiveName());
-                session.sendUpstreamPacket(removeObjectivePacket);
+                upstream.accept(removeObjectivePacket);
             }
 
             if ((objectiveAdd || objectiveUpdate) && !objectiveRemove) {
@@ -229,38 +298,36 @@ public final class Scoreboard {
                 displayObjectivePacket.setCriteria("dummy");
                 displayObjectivePacket.setDisplaySlot(objective.getDisplaySlotName());
                 displayObjectivePacket.setSortOrder(1); // ??
-                session.sendUpstreamPacket(displayObjectivePacket);
+                upstream.accept(displayObjectivePacket);
             }
 
             objective.setUpdateType(NOTHING);
         }
 
-        Iterator<Team> teamIterator = teams.values().iterator();
-        while (teamIterator.hasNext()) {
-            Team current = teamIterator.next();
-
+        for (Team current : updatingTeams) {
             switch (current.getUpdateType()) {
                 case ADD:
                 case UPDATE:
                     current.markUpdated();
                     break;
                 case REMOVE:
-                    teamIterator.remove();
+                    teams.remove(current.getId(), current);
             }
         }
+        updatingTeams.clear();
 
         if (!removeScores.isEmpty()) {
             SetScorePacket setScorePacket = new SetScorePacket();
             setScorePacket.setAction(SetScorePacket.Action.REMOVE);
             setScorePacket.setInfos(removeScores);
-            session.sendUpstreamPacket(setScorePacket);
+            upstream.accept(setScorePacket);
         }
 
         if (!addScores.isEmpty()) {
             SetScorePacket setScorePacket = new SetScorePacket();
             setScorePacket.setAction(SetScorePacket.Action.SET);
             setScorePacket.setInfos(addScores);
-            session.sendUpstreamPacket(setScorePacket);
+            upstream.accept(setScorePacket);
         }
 
         // prevents crashes in some cases
@@ -278,15 +345,34 @@ public final class Scoreboard {
 
         RemoveObjectivePacket removeObjectivePacket = new RemoveObjectivePacket();
         removeObjectivePacket.setObjectiveId(objective.getObjectiveName());
-        session.sendUpstreamPacket(removeObjectivePacket);
+        upstream.accept(removeObjectivePacket);
     }
 
     public Team getTeamFor(String entity) {
-        for (Team team : teams.values()) {
-            if (team.hasEntity(entity)) {
-                return team;
-            }
-        }
-        return null;
+        return entityTeams.get(entity);
+    }
+
+    /**
+     * @return the team the entity was on before
+     */
+    Team setTeamFor(String entity, Team team) {
+        changedEntities.add(entity);
+        return entityTeams.put(entity, team);
+    }
+
+    void removeTeamFor(String entity, Team team) {
+        changedEntities.add(entity);
+        entityTeams.remove(entity, team);
+    }
+
+    void onTeamChanged(Team team) {
+        changedTeams.add(team);
+    }
+
+    /**
+     * Called when the team is about to be sent with a score, so it can be marked as updated at the end of the update
+     */
+    void onTeamUpdating(Team team) {
+        updatingTeams.add(team);
     }
 }
@@ -31,10 +31,13 @@ import org.geysermc.connector.network.session.GeyserSession;
 import org.geysermc.connector.network.session.cache.WorldCache;
 import org.geysermc.connector.utils.LanguageUtils;
 
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-public class ScoreboardUpdater extends Thread {
+/**
+ * Sends the scoreboard changes that were held back because the server sent too many. Run every tick as a
+ * tick listener of the session.
+ */
+public class ScoreboardUpdater implements Runnable {
     public static final int FIRST_SCORE_PACKETS_PER_SECOND_THRESHOLD;
     public static final int SECOND_SCORE_PACKETS_PER_SECOND_THRESHOLD = 250;
 
@@ -55,7 +58,6 @@ public class ScoreboardUpdater extends Thread {
     private final AtomicInteger pendingPacketsPerSecond = new AtomicInteger(0);
 
     public ScoreboardUpdater(WorldCache worldCache) {
-        super("Scoreboard Updater");
         this.worldCache = worldCache;
         session = worldCache.getSession();
     }
@@ -100,8 +102,6 @@ public class ScoreboardUpdater extends Thread {
                     }
                 }
             }
-
-            session.getConnector().getGeneralThreadPool().schedule(this, 50, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -27,7 +27,6 @@ package org.geysermc.connector.scoreboard;
 
 import com.github.steveice10.mc.protocol.data.game.scoreboard.NameTagVisibility;
 import com.github.steveice10.mc.protocol.data.game.scoreboard.TeamColor;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
@@ -36,6 +35,7 @@ import lombok.experimental.Accessors;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Getter
 @Accessors(chain = true)
@@ -57,7 +57,8 @@ public final class Team {
         this.scoreboard = scoreboard;
         this.id = id;
         currentData = new TeamData();
-        entities = new ObjectOpenHashSet<>();
+        // Read by the scoreboard update while the packet thread adds and removes entities
+        entities = ConcurrentHashMap.newKeySet();
     }
 
     private void checkAddedEntities(List<String> added) {
@@ -79,9 +80,7 @@ public final class Team {
     public Team addEntities(String... names) {
         List<String> added = new ArrayList<>();
         for (String name : names) {
-            if (entities.add(name)) {
-                added.add(name);
-            }
+            addEntity(name, added);
         }
         checkAddedEntities(added);
         return this;
@@ -90,20 +89,38 @@ public final class Team {
     public Team addEntities(Set<String> names) {
         List<String> added = new ArrayList<>();
         for (String name : names) {
-            if (entities.add(name)) {
-                added.add(name);
-            }
+            addEntity(name, added);
         }
         checkAddedEntities(added);
         return this;
     }
 
+    private void addEntity(String name, List<String> added) {
+        if (entities.add(name)) {
+            added.add(name);
+            // Like on Java Edition, an entity can only be on one team
+            Team previous = scoreboard.setTeamFor(name, this);
+            if (previous != null && previous != this) {
+                previous.entities.remove(name);
+            }
+        }
+    }
+
     public void removeEntities(String... names) {
         for (String name : names) {
-            entities.remove(name);
+            if (entities.remove(name)) {
+                scoreboard.removeTeamFor(name, this);
+            }
         }
     }
 
+    /**
+     * @return the names of every entity on this team
+     */
+    Set<String> getEntities() {
+        return entities;
+    }
+
     public boolean hasEntity(String name) {
         return entities.contains(name);
     }
@@ -154,6 +171,7 @@ public final class Team {
             return;
         }
         updating = true;
+        scoreboard.onTeamUpdating(this);
 
         if (cachedData == null) {
             cachedData = new TeamData();
@@ -175,6 +193,7 @@ public final class Team {
     public Team setUpdateType(UpdateType updateType) {
         if (updateType != UpdateType.NOTHING) {
             currentData.updateTime = System.currentTimeMillis();
+            scoreboard.onTeamChanged(this);
         }
         currentData.updateType = updateType;
         return this;
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.skin;
+
+import org.geysermc.connector.GeyserConnector;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps downloaded skin, cape and ears images on disk for a number of days.
+ * <p>
+ * The files in the cache folder are listed once, in the background. After that, the time each image was last used is
+ * kept in memory, so a cache miss doesn't touch the disk and expired images are found without listing the folder
+ * again. The time an image was last used is written back to its file when expired images are removed.
+ */
+public class ImageDiskCache {
+    private final File folder;
+    private final long expireTime;
+
+    /**
+     * The time each image in the cache folder was last used, by file name
+     */
+    private final Map<String, Long> lastUsed = new ConcurrentHashMap<>();
+    /**
+     * The images that were used since their modification time was last updated
+     */
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    private volatile boolean indexed = false;
+
+    public ImageDiskCache(Path folder, int days) {
+        this.folder = folder.toFile();
+        this.expireTime = TimeUnit.DAYS.toMillis(days);
+    }
+
+    /**
+     * Start indexing the cache folder, and schedule removing expired images daily
+     */
+    public void start(ScheduledExecutorService executor) {
+        executor.execute(this::index);
+        executor.scheduleAtFixedRate(this::removeExpired, 10, 1440, TimeUnit.MINUTES);
+    }
+
+    /**
+     * @return the image cached for this URL, or null if it isn't cached
+     */
+    public BufferedImage read(String imageUrl) {
+        String fileName = getFileName(imageUrl);
+        if (indexed && !lastUsed.containsKey(fileName)) {
+            return null;
+        }
+
+        File imageFile = new File(folder, fileName);
+        if (!imageFile.exists()) {
+            lastUsed.remove(fileName);
+            return null;
+        }
+        try {
+            BufferedImage image = ImageIO.read(imageFile);
+            if (image != null) {
+                GeyserConnector.getInstance().getLogger().debug("Reading cached image from file " + imageFile.getPath() + " for " + imageUrl);
+                lastUsed.put(fileName, System.currentTimeMillis());
+                used.add(fileName);
+            }
+            return image;
+        } catch (IOException ignored) {
+            return null;
+        }
+    }
+
+    public void write(String imageUrl, BufferedImage image) {
+        String fileName = getFileName(imageUrl);
+        File imageFile = new File(folder, fileName);
+        //noinspection ResultOfMethodCallIgnored
+        folder.mkdirs();
+        try {
+            ImageIO.write(image, "png", imageFile);
+            lastUsed.put(fileName, System.currentTimeMillis());
+            GeyserConnector.getInstance().getLogger().debug("Writing cached skin to file " + imageFile.getPath() + " for " + imageUrl);
+        } catch (IOException e) {
+            GeyserConnector.getInstance().getLogger().error("Failed to write cached skin to file " + imageFile.getPath() + " for " + imageUrl);
+        }
+    }
+
+    private void index() {
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                // Don't replace a time set by an image that was used while we were listing the folder
+                lastUsed.putIfAbsent(file.getName(), file.lastModified());
+            }
+        }
+        indexed = true;
+    }
+
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private void removeExpired() {
+        if (!indexed) {
+            return;
+        }
+
+        int count = 0;
+        long expiredBefore = System.currentTimeMillis() - expireTime;
+        Iterator<Map.Entry<String, Long>> iterator = lastUsed.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            File imageFile = new File(folder, entry.getKey());
+            if (entry.getValue() < expiredBefore) {
+                iterator.remove();
+                imageFile.delete();
+                count++;
+            } else if (used.remove(entry.getKey())) {
+                // So the image isn't seen as expired after a restart
+                imageFile.setLastModified(entry.getValue());
+            }
+        }
+
+        if (count > 0) {
+            GeyserConnector.getInstance().getLogger().debug(String.format("Removed %d cached image files as they have expired", count));
+        }
+    }
+
+    private static String getFileName(String imageUrl) {
+        return UUID.nameUUIDFromBytes(imageUrl.getBytes()).toString() + ".png";
+    }
+}
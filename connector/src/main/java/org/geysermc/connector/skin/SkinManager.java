@@ -43,6 +43,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public class SkinManager {
@@ -119,84 +120,16 @@ public class SkinManager {
         GameProfileData data = GameProfileData.from(entity.getProfile());
 
         SkinProvider.requestSkinAndCape(entity.getUuid(), data.getSkinUrl(), data.getCapeUrl())
-                .whenCompleteAsync((skinAndCape, throwable) -> {
-                    try {
-                        SkinProvider.Skin skin = skinAndCape.getSkin();
-                        SkinProvider.Cape cape = skinAndCape.getCape();
-                        SkinProvider.SkinGeometry geometry = SkinProvider.SkinGeometry.getLegacy(data.isAlex());
-
-                        if (cape.isFailed()) {
-                            cape = SkinProvider.getOrDefault(SkinProvider.requestBedrockCape(entity.getUuid()),
-                                    SkinProvider.EMPTY_CAPE, 3);
-                        }
-
-                        if (cape.isFailed() && SkinProvider.ALLOW_THIRD_PARTY_CAPES) {
-                            cape = SkinProvider.getOrDefault(SkinProvider.requestUnofficialCape(
-                                    cape, entity.getUuid(),
-                                    entity.getUsername(), false
-                            ), SkinProvider.EMPTY_CAPE, SkinProvider.CapeProvider.VALUES.length * 3);
-                        }
-
-                        geometry = SkinProvider.getOrDefault(SkinProvider.requestBedrockGeometry(
-                                geometry, entity.getUuid()
-                        ), geometry, 3);
-
-                        boolean isDeadmau5 = "deadmau5".equals(entity.getUsername());
-                        // Not a bedrock player check for ears
-                        if (geometry.isFailed() && (SkinProvider.ALLOW_THIRD_PARTY_EARS || isDeadmau5)) {
-                            boolean isEars;
-
-                            // Its deadmau5, gotta support his skin :)
-                            if (isDeadmau5) {
-                                isEars = true;
-                            } else {
-                                // Get the ears texture for the player
-                                skin = SkinProvider.getOrDefault(SkinProvider.requestUnofficialEars(
-                                        skin, entity.getUuid(), entity.getUsername(), false
-                                ), skin, 3);
-
-                                isEars = skin.isEars();
+                .thenCompose(skinAndCape -> handleSkinAndCape(entity, session, data, skinAndCape)
+                        .handle((ignored, throwable) -> {
+                            if (throwable != null) {
+                                GeyserConnector.getInstance().getLogger().error(LanguageUtils.getLocaleStringLog("geyser.skin.fail", entity.getUuid()), throwable);
                             }
-
-                            // Does the skin have an ears texture
-                            if (isEars) {
-                                // Get the new geometry
-                                geometry = SkinProvider.SkinGeometry.getEars(data.isAlex());
-
-                                // Store the skin and geometry for the ears
-                                SkinProvider.storeEarSkin(skin);
-                                SkinProvider.storeEarGeometry(entity.getUuid(), data.isAlex());
-                            }
-                        }
-
-                        if (session.getUpstream().isInitialized()) {
-                            PlayerListPacket.Entry updatedEntry = buildEntryManually(
-                                    session,
-                                    entity.getUuid(),
-                                    entity.getUsername(),
-                                    entity.getGeyserId(),
-                                    skin.getTextureUrl(),
-                                    skin.getSkinData(),
-                                    cape.getCapeId(),
-                                    cape.getCapeData(),
-                                    geometry
-                            );
-
-
-                            PlayerListPacket playerAddPacket = new PlayerListPacket();
-                            playerAddPacket.setAction(PlayerListPacket.Action.ADD);
-                            playerAddPacket.getEntries().add(updatedEntry);
-                            session.sendUpstreamPacket(playerAddPacket);
-
-                            if (!entity.isPlayerList()) {
-                                PlayerListPacket playerRemovePacket = new PlayerListPacket();
-                                playerRemovePacket.setAction(PlayerListPacket.Action.REMOVE);
-                                playerRemovePacket.getEntries().add(updatedEntry);
-                                session.sendUpstreamPacket(playerRemovePacket);
-                            }
-                        }
-                    } catch (Exception e) {
-                        GeyserConnector.getInstance().getLogger().error(LanguageUtils.getLocaleStringLog("geyser.skin.fail", entity.getUuid()), e);
+                            return skinAndCape;
+                        }))
+                .whenComplete((skinAndCape, throwable) -> {
+                    if (throwable != null) {
+                        GeyserConnector.getInstance().getLogger().error(LanguageUtils.getLocaleStringLog("geyser.skin.fail", entity.getUuid()), throwable);
                     }
 
                     if (skinAndCapeConsumer != null) {
@@ -205,6 +138,79 @@ public class SkinManager {
                 });
     }
 
+    /**
+     * Request the fallback cape and the ears if they are needed, and send the player list entry once everything is
+     * there. Nothing here waits for a download.
+     */
+    private static CompletableFuture<Void> handleSkinAndCape(PlayerEntity entity, GeyserSession session, GameProfileData data,
+                                                             SkinProvider.SkinAndCape skinAndCape) {
+        CompletableFuture<SkinProvider.Cape> capeFuture = CompletableFuture.completedFuture(skinAndCape.getCape());
+        if (skinAndCape.getCape().isFailed()) {
+            capeFuture = SkinProvider.requestBedrockCape(entity.getUuid());
+        }
+        capeFuture = capeFuture.thenCompose(cape -> {
+            if (cape.isFailed() && SkinProvider.ALLOW_THIRD_PARTY_CAPES) {
+                return SkinProvider.requestUnofficialCape(cape, entity.getUuid(), entity.getUsername(), false);
+            }
+            return CompletableFuture.completedFuture(cape);
+        });
+
+        // Bedrock geometry is only ever looked up in the cache
+        SkinProvider.SkinGeometry legacyGeometry = SkinProvider.SkinGeometry.getLegacy(data.isAlex());
+        SkinProvider.SkinGeometry geometry = SkinProvider.requestBedrockGeometry(legacyGeometry, entity.getUuid())
+                .getNow(legacyGeometry);
+
+        boolean isDeadmau5 = "deadmau5".equals(entity.getUsername());
+        // Not a bedrock player check for ears
+        boolean checkEars = geometry.isFailed() && (SkinProvider.ALLOW_THIRD_PARTY_EARS || isDeadmau5);
+        CompletableFuture<SkinProvider.Skin> skinFuture = CompletableFuture.completedFuture(skinAndCape.getSkin());
+        if (checkEars && !isDeadmau5) {
+            // Get the ears texture for the player
+            skinFuture = SkinProvider.requestUnofficialEars(skinAndCape.getSkin(), entity.getUuid(), entity.getUsername(), false);
+        }
+
+        return capeFuture.thenAcceptBoth(skinFuture, (cape, skin) -> {
+            SkinProvider.SkinGeometry skinGeometry = geometry;
+            // Its deadmau5, gotta support his skin :)
+            // Does the skin have an ears texture
+            if (checkEars && (isDeadmau5 || skin.isEars())) {
+                // Get the new geometry
+                skinGeometry = SkinProvider.SkinGeometry.getEars(data.isAlex());
+
+                // Store the skin and geometry for the ears
+                SkinProvider.storeEarSkin(skin);
+                SkinProvider.storeEarGeometry(entity.getUuid(), data.isAlex());
+            }
+
+            if (session.getUpstream().isInitialized()) {
+                PlayerListPacket.Entry updatedEntry = buildEntryManually(
+                        session,
+                        entity.getUuid(),
+                        entity.getUsername(),
+                        entity.getGeyserId(),
+                        skin.getTextureUrl(),
+                        skin.getSkinData(),
+                        cape.getCapeId(),
+                        cape.getCapeData(),
+                        skinGeometry
+                );
+
+
+                PlayerListPacket playerAddPacket = new PlayerListPacket();
+                playerAddPacket.setAction(PlayerListPacket.Action.ADD);
+                playerAddPacket.getEntries().add(updatedEntry);
+                session.sendUpstreamPacket(playerAddPacket);
+
+                if (!entity.isPlayerList()) {
+                    PlayerListPacket playerRemovePacket = new PlayerListPacket();
+                    playerRemovePacket.setAction(PlayerListPacket.Action.REMOVE);
+                    playerRemovePacket.getEntries().add(updatedEntry);
+                    session.sendUpstreamPacket(playerRemovePacket);
+                }
+            }
+        });
+    }
+
     public static void handleBedrockSkin(PlayerEntity playerEntity, BedrockClientData clientData) {
         GeyserConnector.getInstance().getLogger().info(LanguageUtils.getLocaleStringLog("geyser.skin.bedrock.register", playerEntity.getUsername(), playerEntity.getUuid()));
 
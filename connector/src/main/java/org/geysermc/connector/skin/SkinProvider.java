@@ -33,6 +33,7 @@ import com.github.steveice10.opennbt.tag.builtin.IntArrayTag;
 import com.github.steveice10.opennbt.tag.builtin.Tag;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -46,7 +47,6 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URL;
@@ -57,7 +57,36 @@ import java.util.concurrent.*;
 
 public class SkinProvider {
     public static final boolean ALLOW_THIRD_PARTY_CAPES = GeyserConnector.getInstance().getConfig().isAllowThirdPartyCapes();
-    private static final ExecutorService EXECUTOR_SERVICE = Executors.newFixedThreadPool(ALLOW_THIRD_PARTY_CAPES ? 21 : 14);
+    /**
+     * The maximum amount of images that are downloaded at the same time. Other downloads wait for their turn, so a lot
+     * of players joining at once doesn't open hundreds of connections.
+     */
+    private static final int MAX_DOWNLOADS = 8;
+    private static final ExecutorService DOWNLOAD_EXECUTOR = Executors.newFixedThreadPool(MAX_DOWNLOADS, new ThreadFactoryBuilder()
+            .setNameFormat("Geyser Image Download #%d")
+            .setDaemon(true)
+            .build());
+    /**
+     * Completes requests that took too long with their default value, so nothing has to block while it waits
+     */
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("Geyser Skin Timeout")
+            .setDaemon(true)
+            .build());
+    /**
+     * The images that are being downloaded or read from the disk cache, so everyone who needs the same image waits for
+     * the same download
+     */
+    private static final Map<String, CompletableFuture<BufferedImage>> requestedImages = new ConcurrentHashMap<>();
+    private static final ImageDiskCache IMAGE_CACHE = GeyserConnector.getInstance().getConfig().getCacheImages() > 0 ?
+            new ImageDiskCache(GeyserConnector.getInstance().getBootstrap().getConfigFolder().resolve("cache").resolve("images"),
+                    GeyserConnector.getInstance().getConfig().getCacheImages()) : null;
+
+    /**
+     * The maximum size of the image data kept in memory by each of the skin and cape caches, in bytes
+     */
+    private static final long MAX_CACHED_IMAGE_BYTES = 64 * 1024 * 1024;
+    private static final int DOWNLOAD_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(5);
 
     public static final byte[] STEVE_SKIN = new ProvidedSkin("bedrock/skin/skin_steve.png").getSkin();
     public static final Skin EMPTY_SKIN = new Skin(-1, "steve", STEVE_SKIN);
@@ -69,6 +98,8 @@ public class SkinProvider {
     }};
     private static final Cache<String, Skin> cachedSkins = CacheBuilder.newBuilder()
             .expireAfterAccess(1, TimeUnit.HOURS)
+            .maximumWeight(MAX_CACHED_IMAGE_BYTES)
+            .<String, Skin>weigher((textureUrl, skin) -> skin.getSkinData().length)
             .build();
 
     private static final Map<String, CompletableFuture<Skin>> requestedSkins = new ConcurrentHashMap<>();
@@ -76,6 +107,8 @@ public class SkinProvider {
     public static final Cape EMPTY_CAPE = new Cape("", "no-cape", new byte[0], -1, true);
     private static final Cache<String, Cape> cachedCapes = CacheBuilder.newBuilder()
             .expireAfterAccess(1, TimeUnit.HOURS)
+            .maximumWeight(MAX_CACHED_IMAGE_BYTES)
+            .<String, Cape>weigher((textureUrl, cape) -> cape.getCapeData().length)
             .build();
     private static final Map<String, CompletableFuture<Cape>> requestedCapes = new ConcurrentHashMap<>();
 
@@ -99,28 +132,9 @@ public class SkinProvider {
         String skullData = new String(FileUtils.readAllBytes(FileUtils.getResource("bedrock/skin/geometry.humanoid.customskull.json")), StandardCharsets.UTF_8);
         SKULL_GEOMETRY = new SkinGeometry("{\"geometry\" :{\"default\" :\"geometry.humanoid.customskull\"}}", skullData, false);
 
-        // Schedule Daily Image Expiry if we are caching them
-        if (GeyserConnector.getInstance().getConfig().getCacheImages() > 0) {
-            GeyserConnector.getInstance().getGeneralThreadPool().scheduleAtFixedRate(() -> {
-                File cacheFolder = GeyserConnector.getInstance().getBootstrap().getConfigFolder().resolve("cache").resolve("images").toFile();
-                if (!cacheFolder.exists()) {
-                    return;
-                }
-
-                int count = 0;
-                final long expireTime = ((long)GeyserConnector.getInstance().getConfig().getCacheImages()) * ((long)1000 * 60 * 60 * 24);
-                for (File imageFile : Objects.requireNonNull(cacheFolder.listFiles())) {
-                    if (imageFile.lastModified() < System.currentTimeMillis() - expireTime) {
-                        //noinspection ResultOfMethodCallIgnored
-                        imageFile.delete();
-                        count++;
-                    }
-                }
-
-                if (count > 0) {
-                    GeyserConnector.getInstance().getLogger().debug(String.format("Removed %d cached image files as they have expired", count));
-                }
-            }, 10, 1440, TimeUnit.MINUTES);
+        // Index the images cached on disk and schedule daily image expiry if we are caching them
+        if (IMAGE_CACHE != null) {
+            IMAGE_CACHE.start(GeyserConnector.getInstance().getGeneralThreadPool());
         }
     }
 
@@ -138,108 +152,97 @@ public class SkinProvider {
     }
 
     public static CompletableFuture<SkinAndCape> requestSkinAndCape(UUID playerId, String skinUrl, String capeUrl) {
-        return CompletableFuture.supplyAsync(() -> {
-            long time = System.currentTimeMillis();
-            String newSkinUrl = skinUrl;
+        long time = System.currentTimeMillis();
+        String newSkinUrl = skinUrl;
 
-            if ("steve".equals(skinUrl) || "alex".equals(skinUrl)) {
-                GeyserSession session = GeyserConnector.getInstance().getPlayerByUuid(playerId);
+        if ("steve".equals(skinUrl) || "alex".equals(skinUrl)) {
+            GeyserSession session = GeyserConnector.getInstance().getPlayerByUuid(playerId);
 
-                if (session != null) {
-                    newSkinUrl = session.getClientData().getSkinId();
-                }
+            if (session != null) {
+                newSkinUrl = session.getClientData().getSkinId();
             }
+        }
 
-            CapeProvider provider = capeUrl != null ? CapeProvider.MINECRAFT : null;
-            SkinAndCape skinAndCape = new SkinAndCape(
-                    getOrDefault(requestSkin(playerId, newSkinUrl, false), EMPTY_SKIN, 5),
-                    getOrDefault(requestCape(capeUrl, provider, false), EMPTY_CAPE, 5)
-            );
-
-            GeyserConnector.getInstance().getLogger().debug("Took " + (System.currentTimeMillis() - time) + "ms for " + playerId);
-            return skinAndCape;
-        }, EXECUTOR_SERVICE);
+        CapeProvider provider = capeUrl != null ? CapeProvider.MINECRAFT : null;
+        return withTimeout(requestSkin(playerId, newSkinUrl, false), EMPTY_SKIN, 5)
+                .thenCombine(withTimeout(requestCape(capeUrl, provider, false), EMPTY_CAPE, 5), (skin, cape) -> {
+                    GeyserConnector.getInstance().getLogger().debug("Took " + (System.currentTimeMillis() - time) + "ms for " + playerId);
+                    return new SkinAndCape(skin, cape);
+                });
     }
 
     public static CompletableFuture<Skin> requestSkin(UUID playerId, String textureUrl, boolean newThread) {
         if (textureUrl == null || textureUrl.isEmpty()) return CompletableFuture.completedFuture(EMPTY_SKIN);
-        if (requestedSkins.containsKey(textureUrl)) return requestedSkins.get(textureUrl); // already requested
+        CompletableFuture<Skin> requestedSkin = requestedSkins.get(textureUrl);
+        if (requestedSkin != null) return requestedSkin; // already requested
 
         Skin cachedSkin = getCachedSkin(textureUrl);
         if (cachedSkin != null) {
             return CompletableFuture.completedFuture(cachedSkin);
         }
 
-        CompletableFuture<Skin> future;
-        if (newThread) {
-            future = CompletableFuture.supplyAsync(() -> supplySkin(playerId, textureUrl), EXECUTOR_SERVICE)
-                    .whenCompleteAsync((skin, throwable) -> {
-                        skin.updated = true;
-                        cachedSkins.put(textureUrl, skin);
-                        requestedSkins.remove(textureUrl);
-                    });
-            requestedSkins.put(textureUrl, future);
-        } else {
-            Skin skin = supplySkin(playerId, textureUrl);
-            future = CompletableFuture.completedFuture(skin);
+        // The image is always downloaded on the download threads, so the caller only waits if it asks for the result
+        CompletableFuture<Skin> future = supplySkin(playerId, textureUrl).thenApply(skin -> {
+            if (newThread) {
+                skin.updated = true;
+            }
             cachedSkins.put(textureUrl, skin);
-        }
+            return skin;
+        });
+        requestedSkins.put(textureUrl, future);
+        future.whenComplete((skin, throwable) -> requestedSkins.remove(textureUrl, future));
         return future;
     }
 
     public static CompletableFuture<Cape> requestCape(String capeUrl, CapeProvider provider, boolean newThread) {
         if (capeUrl == null || capeUrl.isEmpty()) return CompletableFuture.completedFuture(EMPTY_CAPE);
-        if (requestedCapes.containsKey(capeUrl)) return requestedCapes.get(capeUrl); // already requested
+        CompletableFuture<Cape> requestedCape = requestedCapes.get(capeUrl);
+        if (requestedCape != null) return requestedCape; // already requested
 
         Cape cachedCape = cachedCapes.getIfPresent(capeUrl);
         if (cachedCape != null) {
             return CompletableFuture.completedFuture(cachedCape);
         }
 
-        CompletableFuture<Cape> future;
-        if (newThread) {
-            future = CompletableFuture.supplyAsync(() -> supplyCape(capeUrl, provider), EXECUTOR_SERVICE)
-                    .whenCompleteAsync((cape, throwable) -> {
-                        cachedCapes.put(capeUrl, cape);
-                        requestedCapes.remove(capeUrl);
-                    });
-            requestedCapes.put(capeUrl, future);
-        } else {
-            Cape cape = supplyCape(capeUrl, provider); // blocking
-            future = CompletableFuture.completedFuture(cape);
+        CompletableFuture<Cape> future = supplyCape(capeUrl, provider).thenApply(cape -> {
             cachedCapes.put(capeUrl, cape);
-        }
+            return cape;
+        });
+        requestedCapes.put(capeUrl, future);
+        future.whenComplete((cape, throwable) -> requestedCapes.remove(capeUrl, future));
         return future;
     }
 
     public static CompletableFuture<Cape> requestUnofficialCape(Cape officialCape, UUID playerId,
                                                                 String username, boolean newThread) {
         if (officialCape.isFailed() && ALLOW_THIRD_PARTY_CAPES) {
-            for (CapeProvider provider : CapeProvider.VALUES) {
-                Cape cape1 = getOrDefault(
-                        requestCape(provider.getUrlFor(playerId, username), provider, newThread),
-                        EMPTY_CAPE, 4
-                );
-                if (!cape1.isFailed()) {
-                    return CompletableFuture.completedFuture(cape1);
-                }
-            }
+            return requestUnofficialCape(officialCape, playerId, username, newThread, 0);
         }
         return CompletableFuture.completedFuture(officialCape);
     }
 
+    /**
+     * Ask the cape providers one after another, starting at the given one, until one of them has a cape
+     */
+    private static CompletableFuture<Cape> requestUnofficialCape(Cape officialCape, UUID playerId, String username,
+                                                                 boolean newThread, int providerIndex) {
+        if (providerIndex >= CapeProvider.VALUES.length) {
+            return CompletableFuture.completedFuture(officialCape);
+        }
+        CapeProvider provider = CapeProvider.VALUES[providerIndex];
+        return withTimeout(requestCape(provider.getUrlFor(playerId, username), provider, newThread), EMPTY_CAPE, 4)
+                .thenCompose(cape -> {
+                    if (!cape.isFailed()) {
+                        return CompletableFuture.completedFuture(cape);
+                    }
+                    return requestUnofficialCape(officialCape, playerId, username, newThread, providerIndex + 1);
+                });
+    }
+
     public static CompletableFuture<Skin> requestEars(String earsUrl, boolean newThread, Skin skin) {
         if (earsUrl == null || earsUrl.isEmpty()) return CompletableFuture.completedFuture(skin);
 
-        CompletableFuture<Skin> future;
-        if (newThread) {
-            future = CompletableFuture.supplyAsync(() -> supplyEars(skin, earsUrl), EXECUTOR_SERVICE)
-                    .whenCompleteAsync((outSkin, throwable) -> { });
-        } else {
-            Skin ears = supplyEars(skin, earsUrl); // blocking
-            future = CompletableFuture.completedFuture(ears);
-        }
-        return future;
+        return supplyEars(skin, earsUrl);
     }
 
     /**
@@ -252,17 +255,25 @@ public class SkinProvider {
      * @return The updated skin with ears
      */
     public static CompletableFuture<Skin> requestUnofficialEars(Skin officialSkin, UUID playerId, String username, boolean newThread) {
-        for (EarsProvider provider : EarsProvider.VALUES) {
-            Skin skin1 = getOrDefault(
-                    requestEars(provider.getUrlFor(playerId, username), newThread, officialSkin),
-                    officialSkin, 4
-            );
-            if (skin1.isEars()) {
-                return CompletableFuture.completedFuture(skin1);
-            }
-        }
+        return requestUnofficialEars(officialSkin, playerId, username, newThread, 0);
+    }
 
-        return CompletableFuture.completedFuture(officialSkin);
+    /**
+     * Ask the ears providers one after another, starting at the given one, until one of them has ears
+     */
+    private static CompletableFuture<Skin> requestUnofficialEars(Skin officialSkin, UUID playerId, String username,
+                                                                 boolean newThread, int providerIndex) {
+        if (providerIndex >= EarsProvider.VALUES.length) {
+            return CompletableFuture.completedFuture(officialSkin);
+        }
+        EarsProvider provider = EarsProvider.VALUES[providerIndex];
+        return withTimeout(requestEars(provider.getUrlFor(playerId, username), newThread, officialSkin), officialSkin, 4)
+                .thenCompose(skin -> {
+                    if (skin.isEars()) {
+                        return CompletableFuture.completedFuture(skin);
+                    }
+                    return requestUnofficialEars(officialSkin, playerId, username, newThread, providerIndex + 1);
+                });
     }
 
     public static CompletableFuture<Cape> requestBedrockCape(UUID playerID) {
@@ -312,30 +323,31 @@ public class SkinProvider {
         cachedGeometry.put(playerID, SkinGeometry.getEars(isSlim));
     }
 
-    private static Skin supplySkin(UUID uuid, String textureUrl) {
-        try {
-            byte[] skin = requestImage(textureUrl, null);
-            return new Skin(uuid, textureUrl, skin, System.currentTimeMillis(), false, false);
-        } catch (Exception ignored) {} // just ignore I guess
-
-        return new Skin(uuid, "empty", EMPTY_SKIN.getSkinData(), System.currentTimeMillis(), false, false);
+    private static CompletableFuture<Skin> supplySkin(UUID uuid, String textureUrl) {
+        return requestImage(textureUrl, null).handle((skin, throwable) -> {
+            if (throwable == null) {
+                return new Skin(uuid, textureUrl, skin, System.currentTimeMillis(), false, false);
+            }
+            return new Skin(uuid, "empty", EMPTY_SKIN.getSkinData(), System.currentTimeMillis(), false, false);
+        });
     }
 
-    private static Cape supplyCape(String capeUrl, CapeProvider provider) {
-        byte[] cape = EMPTY_CAPE.getCapeData();
-        try {
-            cape = requestImage(capeUrl, provider);
-        } catch (Exception ignored) {} // just ignore I guess
+    private static CompletableFuture<Cape> supplyCape(String capeUrl, CapeProvider provider) {
+        return requestImage(capeUrl, provider).handle((cape, throwable) -> {
+            if (throwable != null) {
+                cape = EMPTY_CAPE.getCapeData();
+            }
 
-        String[] urlSection = capeUrl.split("/"); // A real url is expected at this stage
+            String[] urlSection = capeUrl.split("/"); // A real url is expected at this stage
 
-        return new Cape(
-                capeUrl,
-                urlSection[urlSection.length - 1], // get the texture id and use it as cape id
-                cape,
-                System.currentTimeMillis(),
-                cape.length == 0
-        );
+            return new Cape(
+                    capeUrl,
+                    urlSection[urlSection.length - 1], // get the texture id and use it as cape id
+                    cape,
+                    System.currentTimeMillis(),
+                    cape.length == 0
+            );
+        });
     }
 
     /**
@@ -345,11 +357,11 @@ public class SkinProvider {
      * @param earsUrl The URL to get the ears texture from
      * @return The updated skin with ears
      */
-    private static Skin supplyEars(Skin existingSkin, String earsUrl) {
-        try {
-            // Get the ears texture
-            BufferedImage ears = ImageIO.read(new URL(earsUrl));
-            if (ears == null) throw new NullPointerException();
+    private static CompletableFuture<Skin> supplyEars(Skin existingSkin, String earsUrl) {
+        return requestRawImage(earsUrl, null).handle((ears, throwable) -> {
+            if (throwable != null) {
+                return existingSkin;
+            }
 
             // Convert the skin data to a BufferedImage
             int height = (existingSkin.getSkinData().length / 4 / 64);
@@ -374,75 +386,85 @@ public class SkinProvider {
                     true,
                     true
             );
-        } catch (Exception ignored) {} // just ignore I guess
+        });
+    }
+
+    private static CompletableFuture<byte[]> requestImage(String imageUrl, CapeProvider provider) {
+        return requestRawImage(imageUrl, provider).thenApply(image -> {
+            // The downloaded image is shared between everyone who requested it, so it is never drawn onto
+
+            // if the requested image is a cape
+            if (provider != null) {
+                if (image.getWidth() > 64 || image.getHeight() > 32) {
+                    // Prevent weirdly-scaled capes from being cut off
+                    BufferedImage newImage = new BufferedImage(128, 64, BufferedImage.TYPE_INT_ARGB);
+                    Graphics g = newImage.createGraphics();
+                    g.drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
+                    g.dispose();
+                    image = scale(newImage, 64, 32);
+                } else if (image.getWidth() < 64 || image.getHeight() < 32) {
+                    // Bedrock doesn't like smaller-sized capes, either.
+                    BufferedImage newImage = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
+                    Graphics g = newImage.createGraphics();
+                    g.drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
+                    g.dispose();
+                    image = newImage;
+                }
+            } else {
+                // Very rarely, skins can be larger than Minecraft's default.
+                // Bedrock will not render anything above a width of 128.
+                if (image.getWidth() > 128) {
+                    // On Height: Scale by the amount we divided width by, or simply cut down to 128
+                    image = scale(image, 128, image.getHeight() >= 256 ? (image.getHeight() / (image.getWidth() / 128)) : 128);
+                }
 
-        return existingSkin;
-    }
+                // TODO remove alpha channel
+            }
 
-    @SuppressWarnings("ResultOfMethodCallIgnored")
-    private static byte[] requestImage(String imageUrl, CapeProvider provider) throws Exception {
-        BufferedImage image = null;
+            return bufferedImageToImageData(image);
+        });
+    }
 
-        // First see if we have a cached file. We also update the modification stamp so we know when the file was last used
-        File imageFile = GeyserConnector.getInstance().getBootstrap().getConfigFolder().resolve("cache").resolve("images").resolve(UUID.nameUUIDFromBytes(imageUrl.getBytes()).toString() + ".png").toFile();
-        if (imageFile.exists()) {
-            try {
-                GeyserConnector.getInstance().getLogger().debug("Reading cached image from file " + imageFile.getPath() + " for " + imageUrl);
-                imageFile.setLastModified(System.currentTimeMillis());
-                image = ImageIO.read(imageFile);
-            } catch (IOException ignored) {}
+    /**
+     * Read an image from the disk cache, or download it if it isn't cached. An image that is already being requested
+     * isn't requested again.
+     */
+    private static CompletableFuture<BufferedImage> requestRawImage(String imageUrl, CapeProvider provider) {
+        CompletableFuture<BufferedImage> future = requestedImages.get(imageUrl);
+        if (future != null) {
+            return future;
         }
 
-        // If no image we download it
-        if (image == null) {
-            image = downloadImage(imageUrl, provider);
-            GeyserConnector.getInstance().getLogger().debug("Downloaded " + imageUrl);
-
-            // Write to cache if we are allowed
-            if (GeyserConnector.getInstance().getConfig().getCacheImages() > 0) {
-                imageFile.getParentFile().mkdirs();
-                try {
-                    ImageIO.write(image, "png", imageFile);
-                    GeyserConnector.getInstance().getLogger().debug("Writing cached skin to file " + imageFile.getPath() + " for " + imageUrl);
-                } catch (IOException e) {
-                    GeyserConnector.getInstance().getLogger().error("Failed to write cached skin to file " + imageFile.getPath() + " for " + imageUrl);
-                }
-            }
+        CompletableFuture<BufferedImage> newFuture = new CompletableFuture<>();
+        future = requestedImages.putIfAbsent(imageUrl, newFuture);
+        if (future != null) {
+            return future;
         }
 
-        // if the requested image is a cape
-        if (provider != null) {
-            if (image.getWidth() > 64 || image.getHeight() > 32) {
-                // Prevent weirdly-scaled capes from being cut off
-                BufferedImage newImage = new BufferedImage(128, 64, BufferedImage.TYPE_INT_ARGB);
-                Graphics g = newImage.createGraphics();
-                g.drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
-                g.dispose();
-                image.flush();
-                image = scale(newImage, 64, 32);
-            } else if (image.getWidth() < 64 || image.getHeight() < 32) {
-                // Bedrock doesn't like smaller-sized capes, either.
-                BufferedImage newImage = new BufferedImage(64, 32, BufferedImage.TYPE_INT_ARGB);
-                Graphics g = newImage.createGraphics();
-                g.drawImage(image, 0, 0, image.getWidth(), image.getHeight(), null);
-                g.dispose();
-                image.flush();
-                image = newImage;
-            }
-        } else {
-            // Very rarely, skins can be larger than Minecraft's default.
-            // Bedrock will not render anything above a width of 128.
-            if (image.getWidth() > 128) {
-                // On Height: Scale by the amount we divided width by, or simply cut down to 128
-                image = scale(image, 128, image.getHeight() >= 256 ? (image.getHeight() / (image.getWidth() / 128)) : 128);
+        DOWNLOAD_EXECUTOR.execute(() -> {
+            try {
+                // First see if we have a cached file
+                BufferedImage image = IMAGE_CACHE != null ? IMAGE_CACHE.read(imageUrl) : null;
+
+                // If no image we download it
+                if (image == null) {
+                    image = downloadImage(imageUrl, provider);
+                    if (image == null) throw new NullPointerException();
+                    GeyserConnector.getInstance().getLogger().debug("Downloaded " + imageUrl);
+
+                    // Write to cache if we are allowed
+                    if (IMAGE_CACHE != null) {
+                        IMAGE_CACHE.write(imageUrl, image);
+                    }
+                }
+                newFuture.complete(image);
+            } catch (Throwable t) {
+                newFuture.completeExceptionally(t);
+            } finally {
+                requestedImages.remove(imageUrl, newFuture);
             }
-
-            // TODO remove alpha channel
-        }
-
-        byte[] data = bufferedImageToImageData(image);
-        image.flush();
-        return data;
+        });
+        return newFuture;
     }
 
     /**
@@ -496,7 +518,7 @@ public class SkinProvider {
                 }
                 return null;
             }
-        }, EXECUTOR_SERVICE);
+        }, DOWNLOAD_EXECUTOR);
     }
 
     private static BufferedImage downloadImage(String imageUrl, CapeProvider provider) throws IOException {
@@ -504,6 +526,8 @@ public class SkinProvider {
             return readFiveZigCape(imageUrl);
 
         HttpURLConnection con = (HttpURLConnection) new URL(imageUrl).openConnection();
+        con.setConnectTimeout(DOWNLOAD_TIMEOUT);
+        con.setReadTimeout(DOWNLOAD_TIMEOUT);
         con.setRequestProperty("User-Agent", "Geyser-" + GeyserConnector.getInstance().getPlatformType().toString() + "/" + GeyserConnector.VERSION);
 
         BufferedImage image = ImageIO.read(con.getInputStream());
@@ -584,6 +608,24 @@ public class SkinProvider {
         return outputStream.toByteArray();
     }
 
+    /**
+     * Like {@link #getOrDefault(CompletableFuture, Object, int)}, but without waiting for the result.
+     * <p>
+     * The given future keeps running when the timeout is reached, as others may be waiting for the same download.
+     *
+     * @return a future that completes with the result of the given future, or with the default value if the given
+     * future failed or took longer than the timeout
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, T defaultValue, int timeoutInSeconds) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (!future.isDone()) {
+            ScheduledFuture<?> timeout = TIMEOUT_SCHEDULER.schedule(() -> result.complete(defaultValue), timeoutInSeconds, TimeUnit.SECONDS);
+            result.whenComplete((value, throwable) -> timeout.cancel(false));
+        }
+        future.whenComplete((value, throwable) -> result.complete(throwable == null ? value : defaultValue));
+        return result;
+    }
+
     public static <T> T getOrDefault(CompletableFuture<T> future, T defaultValue, int timeoutInSeconds) {
         try {
             return future.get(timeoutInSeconds, TimeUnit.SECONDS);
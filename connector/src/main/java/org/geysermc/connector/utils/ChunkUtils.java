@@ -25,11 +25,8 @@
 
 package org.geysermc.connector.utils;
 
-import com.github.steveice10.mc.protocol.data.game.chunk.BitStorage;
 import com.github.steveice10.mc.protocol.data.game.chunk.Chunk;
 import com.github.steveice10.mc.protocol.data.game.chunk.Column;
-import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
-import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
 import com.github.steveice10.mc.protocol.data.game.entity.metadata.Position;
 import com.github.steveice10.opennbt.tag.builtin.CompoundTag;
 import com.github.steveice10.opennbt.tag.builtin.IntTag;
@@ -49,6 +46,7 @@ import org.geysermc.connector.GeyserConnector;
 import org.geysermc.connector.entity.ItemFrameEntity;
 import org.geysermc.connector.entity.player.SkullPlayerEntity;
 import org.geysermc.connector.network.session.GeyserSession;
+import org.geysermc.connector.network.session.cache.ChunkCache;
 import org.geysermc.connector.network.translators.inventory.translators.LecternInventoryTranslator;
 import org.geysermc.connector.network.translators.world.block.BlockStateValues;
 import org.geysermc.connector.network.translators.world.block.BlockTranslator;
@@ -57,6 +55,7 @@ import org.geysermc.connector.network.translators.world.block.entity.BlockEntity
 import org.geysermc.connector.network.translators.world.block.entity.SkullBlockEntityTranslator;
 import org.geysermc.connector.network.translators.world.chunk.BlockStorage;
 import org.geysermc.connector.network.translators.world.chunk.ChunkSection;
+import org.geysermc.connector.network.translators.world.chunk.ChunkSectionRemapper;
 import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArray;
 import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArrayVersion;
 
@@ -76,10 +75,10 @@ public class ChunkUtils {
      * The maximum height Bedrock Edition will accept.
      */
     private static final int MAXIMUM_ACCEPTED_HEIGHT = 256;
-
-    private static int indexYZXtoXZY(int yzx) {
-        return (yzx >> 8) | (yzx & 0x0F0) | ((yzx & 0x00F) << 8);
-    }
+    /**
+     * Used in place of a block state when it isn't known which block the client has.
+     */
+    public static final int UNKNOWN_BLOCK_STATE = -1;
 
     public static ChunkData translateToBedrock(GeyserSession session, Column column) {
         Chunk[] javaSections = column.getChunks();
@@ -106,33 +105,9 @@ public class ChunkUtils {
                 continue;
             }
 
-            Palette javaPalette = javaSection.getPalette();
-            BitStorage javaData = javaSection.getStorage();
-
-            if (javaPalette instanceof GlobalPalette) {
-                // As this is the global palette, simply iterate through the whole chunk section once
-                ChunkSection section = new ChunkSection(session.getBlockTranslator().getBedrockAirId());
-                for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
-                    int javaId = javaData.get(yzx);
-                    int bedrockId = session.getBlockTranslator().getBedrockBlockId(javaId);
-                    int xzy = indexYZXtoXZY(yzx);
-                    section.getBlockStorageArray()[0].setFullBlock(xzy, bedrockId);
-
-                    if (BlockTranslator.isWaterlogged(javaId)) {
-                        section.getBlockStorageArray()[1].setFullBlock(xzy, session.getBlockTranslator().getBedrockWaterId());
-                    }
-
-                    // Check if block is piston or flower to see if we'll need to create additional block entities, as they're only block entities in Bedrock
-                    if (BlockStateValues.getFlowerPotValues().containsKey(javaId) || BlockStateValues.getPistonValues().containsKey(javaId)) {
-                        bedrockOnlyBlockEntities.add(BedrockOnlyBlockEntity.getTag(session,
-                                Vector3i.from((column.getX() << 4) + (yzx & 0xF), (sectionY << 4) + ((yzx >> 8) & 0xF), (column.getZ() << 4) + ((yzx >> 4) & 0xF)),
-                                javaId
-                        ));
-                    }
-                }
-                sections[sectionY + yOffset] = section;
-                continue;
-            }
+            // Unpack the section once, and treat the global palette as a section palette from then on
+            int[] paletteIds = ChunkSectionRemapper.unpack(javaSection.getStorage());
+            IntList javaPalette = ChunkSectionRemapper.createJavaPalette(javaSection.getPalette(), paletteIds);
 
             IntList bedrockPalette = new IntArrayList(javaPalette.size());
             waterloggedPaletteIds.clear();
@@ -140,7 +115,7 @@ public class ChunkUtils {
 
             // Iterate through palette and convert state IDs to Bedrock, doing some additional checks as we go
             for (int i = 0; i < javaPalette.size(); i++) {
-                int javaId = javaPalette.idToState(i);
+                int javaId = javaPalette.getInt(i);
                 bedrockPalette.add(session.getBlockTranslator().getBedrockBlockId(javaId));
 
                 if (BlockTranslator.isWaterlogged(javaId)) {
@@ -158,42 +133,26 @@ public class ChunkUtils {
             // for no reason, as most sections will not contain any pistons or flower pots
             if (!pistonOrFlowerPaletteIds.isEmpty()) {
                 for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
-                    int paletteId = javaData.get(yzx);
+                    int paletteId = paletteIds[yzx];
                     if (pistonOrFlowerPaletteIds.get(paletteId)) {
                         bedrockOnlyBlockEntities.add(BedrockOnlyBlockEntity.getTag(session,
                                 Vector3i.from((column.getX() << 4) + (yzx & 0xF), (sectionY << 4) + ((yzx >> 8) & 0xF), (column.getZ() << 4) + ((yzx >> 4) & 0xF)),
-                                javaPalette.idToState(paletteId)
+                                javaPalette.getInt(paletteId)
                         ));
                     }
                 }
             }
 
-            BitArray bedrockData = BitArrayVersion.forBitsCeil(javaData.getBitsPerEntry()).createArray(BlockStorage.SIZE);
+            // Convert data array from YZX to XZY coordinate order
+            BitArray bedrockData = ChunkSectionRemapper.remap(paletteIds, bedrockPalette.size());
             BlockStorage layer0 = new BlockStorage(bedrockData, bedrockPalette);
             BlockStorage[] layers;
 
-            // Convert data array from YZX to XZY coordinate order
             if (waterloggedPaletteIds.isEmpty()) {
-                // No blocks are waterlogged, simply convert coordinate order
-                // This could probably be optimized further...
-                for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
-                    bedrockData.set(indexYZXtoXZY(yzx), javaData.get(yzx));
-                }
-
                 layers = new BlockStorage[]{ layer0 };
             } else {
-                // The section contains waterlogged blocks, we need to convert coordinate order AND generate a V1 block storage for
-                // layer 1 with palette ID 1 indicating water
-                int[] layer1Data = new int[BlockStorage.SIZE >> 5];
-                for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
-                    int paletteId = javaData.get(yzx);
-                    int xzy = indexYZXtoXZY(yzx);
-                    bedrockData.set(xzy, paletteId);
-
-                    if (waterloggedPaletteIds.get(paletteId)) {
-                        layer1Data[xzy >> 5] |= 1 << (xzy & 0x1F);
-                    }
-                }
+                // The section contains waterlogged blocks, we need to generate a V1 block storage for layer 1 with palette ID 1 indicating water
+                int[] layer1Data = ChunkSectionRemapper.createWaterlogLayer(paletteIds, waterloggedPaletteIds);
 
                 // V1 palette
                 IntList layer1Palette = new IntArrayList(2);
@@ -301,68 +260,134 @@ public class ChunkUtils {
      * @param position the position of the block
      */
     public static void updateBlock(GeyserSession session, int blockState, Vector3i position) {
-        // Checks for item frames so they aren't tripped up and removed
-        ItemFrameEntity itemFrameEntity = ItemFrameEntity.getItemFrameEntity(session, position);
-        if (itemFrameEntity != null) {
-            if (blockState == JAVA_AIR_ID) { // Item frame is still present and no block overrides that; refresh it
-                itemFrameEntity.updateBlock(session);
-                // Still update the chunk cache with the new block
-                session.getChunkCache().updateBlock(position.getX(), position.getY(), position.getZ(), blockState);
-                return;
+        // A batched change for this block is outdated now, but the client still has the block from before it
+        int previousState = session.getBlockUpdateBatch().cancel(position);
+        if (previousState == UNKNOWN_BLOCK_STATE) {
+            previousState = getKnownBlockState(session, position);
+        }
+        sendBlockUpdate(session, blockState, previousState, position);
+        session.getChunkCache().updateBlock(position.getX(), position.getY(), position.getZ(), blockState);
+    }
+
+    /**
+     * Sends a block update to the Bedrock client without touching the chunk cache. If the chunk of the block hasn't
+     * been sent yet, the update is sent right after it.
+     * @param session the Bedrock session to send the block to
+     * @param blockState the Java block state of the block
+     * @param previousState the Java block state the client has at this position, or {@link #UNKNOWN_BLOCK_STATE}
+     * @param position the position of the block
+     */
+    public static void sendBlockUpdate(GeyserSession session, int blockState, int previousState, Vector3i position) {
+        // If the chunk hasn't been sent yet, it would overwrite the update on the client - so wait for it. The block
+        // goes out right after the chunk, on the chunk translator; the block entities and their caches belong to the
+        // event loop of the session.
+        if (!session.getChunkTranslationQueue().runAfterChunk(position.getX() >> 4, position.getZ() >> 4, () -> {
+            sendBlockPackets(session, blockState, previousState, position);
+            session.executeInEventLoop(() -> {
+                if (!updateItemFrame(session, blockState, position)) {
+                    updateBlockEntities(session, blockState, position);
+                }
+            });
+        })) {
+            translateBlockUpdate(session, blockState, previousState, position);
+        }
+    }
+
+    /**
+     * @return true if changing the block at this position to this state only needs the block itself sent - no item
+     * frame, skull, lectern or Bedrock-only block entity is involved, so none of the caches for those are touched
+     */
+    public static boolean isPlainBlockUpdate(GeyserSession session, int blockState, Vector3i position) {
+        if (ItemFrameEntity.getItemFrameEntity(session, position) != null || session.getSkullCache().containsKey(position)) {
+            return false;
+        }
+        if (BlockStateValues.getLecternBookStates().containsKey(blockState) || session.getLecternCache().contains(position)) {
+            return false;
+        }
+        for (BedrockOnlyBlockEntity bedrockOnlyBlockEntity : BlockEntityTranslator.BEDROCK_ONLY_BLOCK_ENTITIES) {
+            if (bedrockOnlyBlockEntity.isBlock(blockState)) {
+                return false;
             }
-            // Otherwise, let's still store our reference to the item frame, but let the new block take precedence for now
         }
+        return true;
+    }
 
+    /**
+     * Sends a block update that {@link #isPlainBlockUpdate(GeyserSession, int, Vector3i)} to the Bedrock client.
+     * Unlike {@link #sendBlockUpdate(GeyserSession, int, int, Vector3i)}, this can be called off the packet thread.
+     */
+    public static void sendPlainBlockUpdate(GeyserSession session, int blockState, int previousState, Vector3i position) {
+        if (!session.getChunkTranslationQueue().runAfterChunk(position.getX() >> 4, position.getZ() >> 4,
+                () -> sendBlockPackets(session, blockState, previousState, position))) {
+            sendBlockPackets(session, blockState, previousState, position);
+        }
+    }
+
+    /**
+     * @return the Java block state at this position according to the chunk cache, or {@link #UNKNOWN_BLOCK_STATE}
+     * if Geyser doesn't keep track of chunks itself
+     */
+    public static int getKnownBlockState(GeyserSession session, Vector3i position) {
+        ChunkCache chunkCache = session.getChunkCache();
+        if (!chunkCache.isEnabled()) {
+            return UNKNOWN_BLOCK_STATE;
+        }
+        return chunkCache.getBlockAt(position.getX(), position.getY(), position.getZ());
+    }
+
+    private static void translateBlockUpdate(GeyserSession session, int blockState, int previousState, Vector3i position) {
+        if (updateItemFrame(session, blockState, position)) {
+            return;
+        }
+        sendBlockPackets(session, blockState, previousState, position);
+        updateBlockEntities(session, blockState, position);
+    }
+
+    /**
+     * Checks for item frames so they aren't tripped up and removed
+     *
+     * @return true if the item frame at this position was refreshed instead of the block
+     */
+    private static boolean updateItemFrame(GeyserSession session, int blockState, Vector3i position) {
+        ItemFrameEntity itemFrameEntity = ItemFrameEntity.getItemFrameEntity(session, position);
+        if (itemFrameEntity != null && blockState == JAVA_AIR_ID) {
+            // Item frame is still present and no block overrides that; refresh it
+            itemFrameEntity.updateBlock(session);
+            return true;
+        }
+        // Otherwise, let's still store our reference to the item frame, but let the new block take precedence for now
+        return false;
+    }
+
+    private static void updateBlockEntities(GeyserSession session, int blockState, Vector3i position) {
         SkullPlayerEntity skull = session.getSkullCache().get(position);
         if (skull != null && blockState != skull.getBlockState()) {
             // Skull is gone
             skull.despawnEntity(session, position);
         }
 
-        int blockId = session.getBlockTranslator().getBedrockBlockId(blockState);
-
-        UpdateBlockPacket updateBlockPacket = new UpdateBlockPacket();
-        updateBlockPacket.setDataLayer(0);
-        updateBlockPacket.setBlockPosition(position);
-        updateBlockPacket.setRuntimeId(blockId);
-        updateBlockPacket.getFlags().add(UpdateBlockPacket.Flag.NEIGHBORS);
-        updateBlockPacket.getFlags().add(UpdateBlockPacket.Flag.NETWORK);
-        session.sendUpstreamPacket(updateBlockPacket);
-
-        UpdateBlockPacket waterPacket = new UpdateBlockPacket();
-        waterPacket.setDataLayer(1);
-        waterPacket.setBlockPosition(position);
-        if (BlockTranslator.isWaterlogged(blockState)) {
-            waterPacket.setRuntimeId(session.getBlockTranslator().getBedrockWaterId());
-        } else {
-            waterPacket.setRuntimeId(session.getBlockTranslator().getBedrockAirId());
-        }
-        session.sendUpstreamPacket(waterPacket);
-
-        BlockStateValues.getLecternBookStates().compute(blockState, (key, newLecternHasBook) -> {
-            // Determine if this block is a lectern
-            if (newLecternHasBook != null) {
-                boolean lecternCachedHasBook = session.getLecternCache().contains(position);
-                if (!session.getConnector().getWorldManager().shouldExpectLecternHandled() && lecternCachedHasBook != newLecternHasBook) {
-                    // Refresh the block entirely - it either has a book or no longer has a book
-                    NbtMap newLecternTag;
-                    if (newLecternHasBook) {
-                        newLecternTag = session.getConnector().getWorldManager().getLecternDataAt(session, position.getX(), position.getY(), position.getZ(), false);
-                    } else {
-                        session.getLecternCache().remove(position);
-                        newLecternTag = LecternInventoryTranslator.getBaseLecternTag(position.getX(), position.getY(), position.getZ(), 0).build();
-                    }
-                    BlockEntityUtils.updateBlockEntity(session, newLecternTag, position);
+        // Determine if this block is a lectern
+        Boolean newLecternHasBook = BlockStateValues.getLecternBookStates().get(blockState);
+        if (newLecternHasBook != null) {
+            boolean lecternCachedHasBook = session.getLecternCache().contains(position);
+            if (!session.getConnector().getWorldManager().shouldExpectLecternHandled() && lecternCachedHasBook != newLecternHasBook) {
+                // Refresh the block entirely - it either has a book or no longer has a book
+                NbtMap newLecternTag;
+                if (newLecternHasBook) {
+                    newLecternTag = session.getConnector().getWorldManager().getLecternDataAt(session, position.getX(), position.getY(), position.getZ(), false);
                 } else {
-                    // As of right now, no tag can be added asynchronously
-                    session.getConnector().getWorldManager().getLecternDataAt(session, position.getX(), position.getY(), position.getZ(), false);
+                    session.getLecternCache().remove(position);
+                    newLecternTag = LecternInventoryTranslator.getBaseLecternTag(position.getX(), position.getY(), position.getZ(), 0).build();
                 }
+                BlockEntityUtils.updateBlockEntity(session, newLecternTag, position);
             } else {
-                // Lectern has been destroyed, if it existed
-                session.getLecternCache().remove(position);
+                // As of right now, no tag can be added asynchronously
+                session.getConnector().getWorldManager().getLecternDataAt(session, position.getX(), position.getY(), position.getZ(), false);
             }
-            return newLecternHasBook;
-        });
+        } else {
+            // Lectern has been destroyed, if it existed
+            session.getLecternCache().remove(position);
+        }
 
         // Iterates through all Bedrock-only block entity translators and determines if a manual block entity packet
         // needs to be sent
@@ -373,7 +398,32 @@ public class ChunkUtils {
                 break; //No block will be a part of two classes
             }
         }
-        session.getChunkCache().updateBlock(position.getX(), position.getY(), position.getZ(), blockState);
+    }
+
+    private static void sendBlockPackets(GeyserSession session, int blockState, int previousState, Vector3i position) {
+        int blockId = session.getBlockTranslator().getBedrockBlockId(blockState);
+
+        UpdateBlockPacket updateBlockPacket = new UpdateBlockPacket();
+        updateBlockPacket.setDataLayer(0);
+        updateBlockPacket.setBlockPosition(position);
+        updateBlockPacket.setRuntimeId(blockId);
+        updateBlockPacket.getFlags().add(UpdateBlockPacket.Flag.NEIGHBORS);
+        updateBlockPacket.getFlags().add(UpdateBlockPacket.Flag.NETWORK);
+        session.sendUpstreamPacket(updateBlockPacket);
+
+        boolean waterlogged = BlockTranslator.isWaterlogged(blockState);
+        // An update to the same block is the server correcting the client, which may have changed the water layer too
+        if (previousState == UNKNOWN_BLOCK_STATE || previousState == blockState || BlockTranslator.isWaterlogged(previousState) != waterlogged) {
+            UpdateBlockPacket waterPacket = new UpdateBlockPacket();
+            waterPacket.setDataLayer(1);
+            waterPacket.setBlockPosition(position);
+            if (waterlogged) {
+                waterPacket.setRuntimeId(session.getBlockTranslator().getBedrockWaterId());
+            } else {
+                waterPacket.setRuntimeId(session.getBlockTranslator().getBedrockAirId());
+            }
+            session.sendUpstreamPacket(waterPacket);
+        }
     }
 
     public static void sendEmptyChunks(GeyserSession session, Vector3i position, int radius, boolean forceUpdate) {
@@ -62,6 +62,12 @@ public class DimensionUtils {
         session.getItemFrameCache().clear();
         session.getLecternCache().clear();
         session.getSkullCache().clear();
+        session.getChunkTranslationQueue().clear();
+        session.getChunkBlobCache().clear();
+        session.getBlockUpdateBatch().clear();
+        session.getEntityMovementCache().clear();
+        session.getEntityMetadataCache().clear();
+        session.getEntityInterestManager().clear();
 
         Vector3i pos = Vector3i.from(0, Short.MAX_VALUE, 0);
 
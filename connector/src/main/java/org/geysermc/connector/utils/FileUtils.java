@@ -35,10 +35,13 @@ import org.reflections.serializers.XmlSerializer;
 import org.reflections.util.ConfigurationBuilder;
 
 import java.io.*;
+import java.lang.annotation.Annotation;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.security.MessageDigest;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.function.Function;
 
 public class FileUtils {
@@ -210,6 +213,37 @@ public class FileUtils {
         return reflections;
     }
 
+    /**
+     * Get the classes annotated with the given annotation, as listed at build time by the annotation processor
+     *
+     * @param annotationClass The annotation to get the classes of
+     * @return The annotated classes, or null if no list was generated for this annotation
+     */
+    public static Set<Class<?>> getGeneratedClassesForAnnotation(Class<? extends Annotation> annotationClass) {
+        InputStream stream = FileUtils.class.getClassLoader().getResourceAsStream("META-INF/" + annotationClass.getName());
+        if (stream == null) {
+            return null;
+        }
+
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    classes.add(Class.forName(line));
+                } catch (ClassNotFoundException e) {
+                    GeyserConnector.getInstance().getLogger().error("Could not find generated class " + line + " for " + annotationClass.getSimpleName());
+                }
+            }
+        } catch (IOException e) {
+            GeyserConnector.getInstance().getLogger().error("Could not read generated classes for " + annotationClass.getSimpleName(), e);
+        }
+        return classes;
+    }
+
     /**
      * An android compatible version of {@link Files#readAllBytes}
      *
@@ -69,6 +69,7 @@ public class InventoryUtils {
     }
 
     public static void displayInventory(GeyserSession session, Inventory inventory) {
+        session.getInventorySlotCache().clear();
         InventoryTranslator translator = session.getInventoryTranslator();
         if (translator != null) {
             translator.prepareInventory(session, inventory);
@@ -108,6 +109,7 @@ public class InventoryUtils {
         }
         session.setInventoryTranslator(InventoryTranslator.PLAYER_INVENTORY_TRANSLATOR);
         session.setOpenInventory(null);
+        session.getInventorySlotCache().clear();
     }
 
     public static Inventory getInventory(GeyserSession session, int windowId) {
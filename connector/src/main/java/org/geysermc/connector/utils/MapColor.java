@@ -264,6 +264,16 @@ public enum MapColor {
     COLOR_235(11, 95, 70);
 
     private static final MapColor[] VALUES = values();
+    /**
+     * The ABGR color of every possible Java color ID, so converting a map doesn't need to look up each pixel's color
+     */
+    private static final int[] ABGR_COLORS = new int[256];
+
+    static {
+        for (int i = 0; i < ABGR_COLORS.length; i++) {
+            ABGR_COLORS[i] = fromId(i).toABGR();
+        }
+    }
 
     private final int red;
     private final int green;
@@ -279,6 +289,18 @@ public enum MapColor {
         return id >= 0 && id < VALUES.length ? VALUES[id] : COLOR_0;
     }
 
+    /**
+     * @param colorIds Java map color IDs, as sent in map data
+     * @return the ABGR color of each ID
+     */
+    public static int[] toABGR(byte[] colorIds) {
+        int[] colors = new int[colorIds.length];
+        for (int i = 0; i < colorIds.length; i++) {
+            colors[i] = ABGR_COLORS[colorIds[i] & 0xFF];
+        }
+        return colors;
+    }
+
     public int toABGR() {
         int alpha = 255;
         if (red == -1 && green == -1 && blue == -1)
@@ -29,6 +29,18 @@ public class MathUtils {
 
     public static final double SQRT_OF_TWO = Math.sqrt(2);
 
+    /**
+     * The powers of ten that can be represented exactly as a double
+     */
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
     /**
      * Round the given float to the next whole number
      *
@@ -85,4 +97,46 @@ public class MathUtils {
     public static long chunkPositionToLong(int x, int z) {
         return ((x & 0xFFFFFFFFL) << 32L) | (z & 0xFFFFFFFFL);
     }
+
+    /**
+     * Converts a float to the double with the fewest decimal digits that still rounds back to the same float, which
+     * is what {@code Double.parseDouble(Float.toString(value))} returns without going through a string.
+     * Casting a float to a double keeps the float's rounding error, e.g. 0.1f becomes 0.10000000149011612.
+     *
+     * @param value the float to convert
+     * @return the shortest double that equals the float when cast back
+     */
+    public static double floatToDouble(float value) {
+        double exact = value;
+        if (value == 0 || Float.isNaN(value) || Float.isInfinite(value)) {
+            return exact;
+        }
+
+        int exponent = (int) Math.floor(Math.log10(Math.abs(exact)));
+        // A float never needs more than nine significant digits
+        for (int digits = 1; digits <= 9; digits++) {
+            int scale = digits - 1 - exponent;
+            if (Math.abs(scale) >= POWERS_OF_TEN.length) {
+                break;
+            }
+            // Dividing by an exact power of ten rounds correctly, just like parsing the decimal would
+            double rounded = scale >= 0 ? Math.rint(exact * POWERS_OF_TEN[scale]) / POWERS_OF_TEN[scale] :
+                    Math.rint(exact / POWERS_OF_TEN[-scale]) * POWERS_OF_TEN[-scale];
+            if ((float) rounded == value) {
+                return rounded;
+            }
+        }
+        return exact;
+    }
+
+    /**
+     * Rounds a number to the given amount of decimal places, rounding halves to the nearest even number.
+     *
+     * @param value the number to round
+     * @param places the amount of decimal places to keep, from 0 to 22
+     * @return the rounded number
+     */
+    public static double round(double value, int places) {
+        return Math.rint(value * POWERS_OF_TEN[places]) / POWERS_OF_TEN[places];
+    }
 }
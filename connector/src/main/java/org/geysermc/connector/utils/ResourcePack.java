@@ -25,12 +25,26 @@
 
 package org.geysermc.connector.utils;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
 import org.geysermc.connector.GeyserConnector;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.stream.Stream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -46,18 +60,34 @@ public class ResourcePack {
     /**
      * The size of each chunk to use when sending the resource packs to clients in bytes
      */
-    public static final int CHUNK_SIZE = 102400;
+    public static final int CHUNK_SIZE = Math.max(1, GeyserConnector.getInstance().getConfig().getResourcePackChunkSize()) * 1024;
+
+    /**
+     * Remembers the hash and manifest of each pack in the packs directory, so packs that haven't changed since the
+     * last start don't have to be hashed and read again
+     */
+    private static final String INDEX_FILE_NAME = "resource-pack-index.json";
 
     private byte[] sha256;
     private File file;
     private ResourcePackManifest manifest;
     private ResourcePackManifest.Version version;
 
+    /**
+     * The contents of the pack file, mapped into memory so sending a chunk doesn't need to read from disk
+     */
+    private ByteBuffer data;
+    /**
+     * The chunks that have been sent before. They are shared between every player that downloads this pack.
+     */
+    private AtomicReferenceArray<byte[]> chunks;
+
     /**
      * Loop through the packs directory and locate valid resource pack files
      */
     public static void loadPacks() {
-        File directory = GeyserConnector.getInstance().getBootstrap().getConfigFolder().resolve("packs").toFile();
+        Path configFolder = GeyserConnector.getInstance().getBootstrap().getConfigFolder();
+        File directory = configFolder.resolve("packs").toFile();
 
         if (!directory.exists()) {
             //noinspection ResultOfMethodCallIgnored
@@ -67,56 +97,169 @@ public class ResourcePack {
             return;
         }
 
-        for (File file : directory.listFiles()) {
-            if (file.getName().endsWith(".zip") || file.getName().endsWith(".mcpack")) {
-                ResourcePack pack = loadPack(file);
-                if (pack != null) {
-                    PACKS.put(pack.getManifest().getHeader().getUuid().toString(), pack);
+        long startTime = System.currentTimeMillis();
+        File indexFile = configFolder.resolve("cache").resolve(INDEX_FILE_NAME).toFile();
+        Map<String, IndexEntry> index = readIndex(indexFile);
+        Map<String, IndexEntry> newIndex = new ConcurrentHashMap<>();
+        AtomicInteger indexedPacks = new AtomicInteger();
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".zip") || name.endsWith(".mcpack"));
+        if (files == null) {
+            return;
+        }
+
+        // Hashing and reading packs is slow for large packs, so load them all at the same time
+        List<ResourcePack> packs = Arrays.stream(files).parallel().map(file -> {
+            IndexEntry entry = index.get(file.getName());
+            if (entry == null || entry.size != file.length() || entry.lastModified != file.lastModified()) {
+                entry = indexPack(file);
+                if (entry == null) {
+                    return null;
                 }
+                indexedPacks.incrementAndGet();
             }
+            ResourcePack pack = fromIndexEntry(file, entry);
+            if (pack != null) {
+                newIndex.put(file.getName(), entry);
+            }
+            return pack;
+        }).filter(Objects::nonNull).collect(Collectors.toList());
+
+        for (ResourcePack pack : packs) {
+            PACKS.put(pack.getManifest().getHeader().getUuid().toString(), pack);
+        }
+
+        if (!newIndex.equals(index)) {
+            writeIndex(indexFile, newIndex);
+        }
+
+        if (!packs.isEmpty()) {
+            GeyserConnector.getInstance().getLogger().info("Loaded " + packs.size() + " resource pack(s) in " +
+                    (System.currentTimeMillis() - startTime) + "ms (" + indexedPacks.get() + " new or changed)");
         }
     }
 
     public static ResourcePack loadPack(File file) {
-        ResourcePack pack = new ResourcePack();
-
-        pack.sha256 = FileUtils.calculateSHA256(file);
+        IndexEntry entry = indexPack(file);
+        return entry != null ? fromIndexEntry(file, entry) : null;
+    }
 
-        Stream<? extends ZipEntry> stream = null;
-        try {
-            ZipFile zip = new ZipFile(file);
+    /**
+     * Hash the pack and find its manifest
+     *
+     * @return null if the pack has no valid manifest
+     */
+    private static IndexEntry indexPack(File file) {
+        // Read these first, so a pack that is changed while we read it is read again next time
+        long size = file.length();
+        long lastModified = file.lastModified();
 
-            stream = zip.stream();
-            stream.forEach((x) -> {
+        String manifest = null;
+        try (ZipFile zip = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry x = entries.nextElement();
                 if (x.getName().contains("manifest.json")) {
-                    try {
-                        ResourcePackManifest manifest = FileUtils.loadJson(zip.getInputStream(x), ResourcePackManifest.class);
+                    try (InputStream stream = zip.getInputStream(x)) {
+                        String json = new String(FileUtils.readAllBytes(stream), StandardCharsets.UTF_8);
+                        ResourcePackManifest packManifest = GeyserConnector.JSON_MAPPER.readValue(json, ResourcePackManifest.class);
                         // Sometimes a pack_manifest file is present and not in a valid format,
                         // but a manifest file is, so we null check through that one
-                        if (manifest.getHeader().getUuid() != null) {
-                            pack.file = file;
-                            pack.manifest = manifest;
-                            pack.version = ResourcePackManifest.Version.fromArray(manifest.getHeader().getVersion());
-
-                            PACKS.put(pack.getManifest().getHeader().getUuid().toString(), pack);
+                        if (packManifest.getHeader().getUuid() != null) {
+                            manifest = json;
                         }
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
                 }
-            });
+            }
         } catch (Exception e) {
             GeyserConnector.getInstance().getLogger().error(LanguageUtils.getLocaleStringLog("geyser.resource_pack.broken", file.getName()));
             e.printStackTrace();
-        } finally {
-            if (stream != null) {
-                stream.close();
+            return null;
+        }
+
+        if (manifest == null) {
+            return null;
+        }
+        return new IndexEntry(size, lastModified, Base64.getEncoder().encodeToString(FileUtils.calculateSHA256(file)), manifest);
+    }
+
+    private static ResourcePack fromIndexEntry(File file, IndexEntry entry) {
+        ResourcePack pack = new ResourcePack();
+        try {
+            pack.file = file;
+            pack.sha256 = Base64.getDecoder().decode(entry.sha256);
+            pack.manifest = GeyserConnector.JSON_MAPPER.readValue(entry.manifest, ResourcePackManifest.class);
+            pack.version = ResourcePackManifest.Version.fromArray(pack.manifest.getHeader().getVersion());
+            pack.mapFile();
+        } catch (Exception e) {
+            GeyserConnector.getInstance().getLogger().error(LanguageUtils.getLocaleStringLog("geyser.resource_pack.broken", file.getName()), e);
+            return null;
+        }
+        return pack;
+    }
+
+    private static Map<String, IndexEntry> readIndex(File indexFile) {
+        if (indexFile.exists()) {
+            try {
+                return GeyserConnector.JSON_MAPPER.readValue(indexFile, new TypeReference<Map<String, IndexEntry>>() {});
+            } catch (IOException e) {
+                GeyserConnector.getInstance().getLogger().debug("Could not read the resource pack index: " + e.getMessage());
             }
         }
-        if (pack.file != null) {
-            return pack;
+        return Collections.emptyMap();
+    }
+
+    private static void writeIndex(File indexFile, Map<String, IndexEntry> index) {
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            indexFile.getParentFile().mkdirs();
+            GeyserConnector.JSON_MAPPER.writeValue(indexFile, new TreeMap<>(index));
+        } catch (IOException e) {
+            GeyserConnector.getInstance().getLogger().debug("Could not write the resource pack index: " + e.getMessage());
+        }
+    }
+
+    private void mapFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
-        return null;
+        chunks = new AtomicReferenceArray<>((int) ((data.capacity() + CHUNK_SIZE - 1) / (long) CHUNK_SIZE));
+    }
+
+    /**
+     * @return the data of this chunk of the pack file, which must not be modified
+     */
+    public byte[] getChunk(int index) {
+        if (index < 0 || index >= chunks.length()) {
+            return new byte[0];
+        }
+        byte[] chunk = chunks.get(index);
+        if (chunk == null) {
+            int offset = index * CHUNK_SIZE;
+            chunk = new byte[Math.min(CHUNK_SIZE, data.capacity() - offset)];
+            ByteBuffer slice = data.duplicate();
+            slice.position(offset);
+            slice.get(chunk);
+            if (!chunks.compareAndSet(index, null, chunk)) {
+                // Another player got this chunk at the same time
+                chunk = chunks.get(index);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * @return the size of the pack file in bytes
+     */
+    public long getSize() {
+        return data.capacity();
+    }
+
+    public int getChunkCount() {
+        return chunks.length();
     }
 
     public byte[] getSha256() {
@@ -134,4 +277,24 @@ public class ResourcePack {
     public ResourcePackManifest.Version getVersion() {
         return version;
     }
+
+    /**
+     * What is remembered of a pack file between starts
+     */
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class IndexEntry {
+        @JsonProperty("size")
+        private long size;
+        @JsonProperty("last-modified")
+        private long lastModified;
+        @JsonProperty("sha256")
+        private String sha256;
+        /**
+         * The contents of the manifest file of the pack
+         */
+        @JsonProperty("manifest")
+        private String manifest;
+    }
 }
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+package org.geysermc.connector.utils;
+
+/**
+ * A plain Java implementation of the 64-bit xxHash algorithm, which Bedrock uses to identify cached chunk blobs.
+ */
+public class XXHash64 {
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * Hash a region of a byte array with a seed of 0
+     *
+     * @param data the array to read from
+     * @param offset the index of the first byte to hash
+     * @param length the amount of bytes to hash
+     * @return the 64-bit hash of the region
+     */
+    public static long hash(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int index = offset;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = PRIME_1 + PRIME_2;
+            long v2 = PRIME_2;
+            long v3 = 0;
+            long v4 = -PRIME_1;
+            int limit = end - 32;
+            do {
+                v1 = round(v1, readLong(data, index));
+                v2 = round(v2, readLong(data, index + 8));
+                v3 = round(v3, readLong(data, index + 16));
+                v4 = round(v4, readLong(data, index + 24));
+                index += 32;
+            } while (index <= limit);
+
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = mergeRound(hash, v1);
+            hash = mergeRound(hash, v2);
+            hash = mergeRound(hash, v3);
+            hash = mergeRound(hash, v4);
+        } else {
+            hash = PRIME_5;
+        }
+
+        hash += length;
+
+        while (index + 8 <= end) {
+            hash ^= round(0, readLong(data, index));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+            index += 8;
+        }
+
+        if (index + 4 <= end) {
+            hash ^= (readInt(data, index) & 0xFFFFFFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            index += 4;
+        }
+
+        while (index < end) {
+            hash ^= (data[index] & 0xFF) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+            index++;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME_2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME_1;
+    }
+
+    private static long mergeRound(long accumulator, long value) {
+        accumulator ^= round(0, value);
+        return accumulator * PRIME_1 + PRIME_4;
+    }
+
+    private static long readLong(byte[] data, int index) {
+        return (data[index] & 0xFFL)
+                | (data[index + 1] & 0xFFL) << 8
+                | (data[index + 2] & 0xFFL) << 16
+                | (data[index + 3] & 0xFFL) << 24
+                | (data[index + 4] & 0xFFL) << 32
+                | (data[index + 5] & 0xFFL) << 40
+                | (data[index + 6] & 0xFFL) << 48
+                | (data[index + 7] & 0xFFL) << 56;
+    }
+
+    private static int readInt(byte[] data, int index) {
+        return (data[index] & 0xFF)
+                | (data[index + 1] & 0xFF) << 8
+                | (data[index + 2] & 0xFF) << 16
+                | (data[index + 3] & 0xFF) << 24;
+    }
+}
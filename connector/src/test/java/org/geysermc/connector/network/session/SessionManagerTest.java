@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.session;
+
+import org.geysermc.connector.entity.player.SessionPlayerEntity;
+import org.geysermc.connector.network.session.auth.AuthData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SessionManagerTest {
+    private static final int SESSIONS = 200;
+    private static final int WRITERS = 4;
+    private static final int READERS = 4;
+
+    private final SessionManager sessionManager = new SessionManager();
+    private final List<GeyserSession> sessions = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < SESSIONS; i++) {
+            sessions.add(createSession(new UUID(0, i), "Player" + i, Integer.toString(i), 10000 + i));
+        }
+    }
+
+    @Test
+    public void lookupsFindTheRightSession() {
+        sessions.forEach(sessionManager::addSession);
+        // Adding a session twice does nothing
+        sessionManager.addSession(sessions.get(0));
+        Assert.assertEquals(SESSIONS, sessionManager.size());
+
+        for (int i = 0; i < SESSIONS; i++) {
+            assertFound(sessions.get(i), i);
+        }
+
+        sessionManager.removeSession(sessions.get(5));
+        Assert.assertEquals(SESSIONS - 1, sessionManager.size());
+        Assert.assertFalse(sessionManager.getSessions().contains(sessions.get(5)));
+        Assert.assertNull(sessionManager.getSessionByUuid(new UUID(0, 5)));
+        Assert.assertNull(sessionManager.getSessionByName("player5"));
+        Assert.assertNull(sessionManager.getSessionByXuid("5"));
+        Assert.assertNull(sessionManager.getSessionByAddress(new InetSocketAddress("127.0.0.1", 10005)));
+    }
+
+    @Test
+    public void updatedKeysAreIndexed() {
+        GeyserSession session = sessions.get(0);
+        sessionManager.addSession(session);
+
+        AuthData authData = new AuthData("Renamed", null, "xuid", null, null);
+        when(session.getAuthData()).thenReturn(authData);
+        sessionManager.updateSession(session);
+
+        Assert.assertSame(session, sessionManager.getSessionByName("renamed"));
+        Assert.assertSame(session, sessionManager.getSessionByXuid("xuid"));
+        Assert.assertNull(sessionManager.getSessionByName("player0"));
+        Assert.assertNull(sessionManager.getSessionByXuid("0"));
+    }
+
+    @Test
+    public void newestSessionKeepsSharedKeys() {
+        GeyserSession reconnected = createSession(new UUID(0, 0), "Player0", "0", 20000);
+        sessionManager.addSession(sessions.get(0));
+        sessionManager.addSession(reconnected);
+        Assert.assertSame(reconnected, sessionManager.getSessionByUuid(new UUID(0, 0)));
+
+        // The old session disconnecting must not remove the new one
+        sessionManager.removeSession(sessions.get(0));
+        Assert.assertSame(reconnected, sessionManager.getSessionByUuid(new UUID(0, 0)));
+        Assert.assertSame(reconnected, sessionManager.getSessionByName("player0"));
+        Assert.assertSame(reconnected, sessionManager.getSessionByXuid("0"));
+    }
+
+    @Test
+    public void concurrentAddRemoveAndLookup() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int first = writer;
+            threads.add(new Thread(() -> {
+                try {
+                    // Every writer joins and leaves with its own share of the sessions
+                    for (int round = 0; round < 500; round++) {
+                        for (int i = first; i < SESSIONS; i += WRITERS) {
+                            sessionManager.addSession(sessions.get(i));
+                        }
+                        for (int i = first; i < SESSIONS; i += WRITERS) {
+                            if ((i + round) % 3 != 0) {
+                                sessionManager.removeSession(sessions.get(i));
+                            }
+                        }
+                    }
+                    for (int i = first; i < SESSIONS; i += WRITERS) {
+                        sessionManager.addSession(sessions.get(i));
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                } finally {
+                    writersDone.countDown();
+                }
+            }));
+        }
+
+        for (int reader = 0; reader < READERS; reader++) {
+            threads.add(new Thread(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (running.get()) {
+                        int i = random.nextInt(SESSIONS);
+                        GeyserSession expected = sessions.get(i);
+                        // A session is either found under all of its keys or not found at all, never another session
+                        assertNullOrSame(expected, sessionManager.getSessionByUuid(new UUID(0, i)));
+                        assertNullOrSame(expected, sessionManager.getSessionByName("PLAYER" + i));
+                        assertNullOrSame(expected, sessionManager.getSessionByXuid(Integer.toString(i)));
+                        assertNullOrSame(expected, sessionManager.getSessionByAddress(new InetSocketAddress("127.0.0.1", 10000 + i)));
+
+                        for (GeyserSession session : sessionManager.getSessions()) {
+                            Assert.assertNotNull(session);
+                        }
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        Assert.assertTrue("Writers didn't finish in time", writersDone.await(1, TimeUnit.MINUTES));
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        if (!errors.isEmpty()) {
+            AssertionError error = new AssertionError("Errors while sessions joined and left: " + errors.size());
+            errors.forEach(error::addSuppressed);
+            throw error;
+        }
+
+        Assert.assertEquals(SESSIONS, sessionManager.size());
+        for (int i = 0; i < SESSIONS; i++) {
+            assertFound(sessions.get(i), i);
+        }
+    }
+
+    private void assertFound(GeyserSession session, int i) {
+        Assert.assertSame(session, sessionManager.getSessionByUuid(new UUID(0, i)));
+        Assert.assertSame(session, sessionManager.getSessionByName("player" + i));
+        Assert.assertSame(session, sessionManager.getSessionByXuid(Integer.toString(i)));
+        Assert.assertSame(session, sessionManager.getSessionByAddress(new InetSocketAddress("127.0.0.1", 10000 + i)));
+    }
+
+    private static void assertNullOrSame(GeyserSession expected, GeyserSession actual) {
+        if (actual != null) {
+            Assert.assertSame(expected, actual);
+        }
+    }
+
+    private static GeyserSession createSession(UUID uuid, String name, String xuid, int port) {
+        SessionPlayerEntity playerEntity = mock(SessionPlayerEntity.class);
+        when(playerEntity.getUuid()).thenReturn(uuid);
+
+        GeyserSession session = mock(GeyserSession.class);
+        when(session.getPlayerEntity()).thenReturn(playerEntity);
+        when(session.getAuthData()).thenReturn(new AuthData(name, uuid, xuid, null, null));
+        when(session.getSocketAddress()).thenReturn(new InetSocketAddress("127.0.0.1", port));
+        return session;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.translators.collision;
+
+import com.nukkitx.math.vector.Vector3d;
+import com.nukkitx.math.vector.Vector3i;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class CollisionManagerTest {
+
+    @Test
+    public void collidableBlocksMatchPreviousImplementation() {
+        CollisionManager collisionManager = new CollisionManager(null);
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            // Players, crouching players and fishing hooks, close to block edges as well
+            double sizeX = i % 3 == 0 ? 0.25 : 0.6;
+            double sizeY = i % 3 == 0 ? 0.25 : (i % 3 == 1 ? 1.5 : 1.8);
+            double x = (random.nextInt(2000) - 1000) + (i % 5 == 0 ? sizeX / 2 - random.nextDouble() * 0.00002 : random.nextDouble());
+            double y = random.nextInt(256) + (i % 7 == 0 ? sizeY / 2 + 0.5 : random.nextDouble());
+            double z = (random.nextInt(2000) - 1000) + random.nextDouble();
+            BoundingBox box = new BoundingBox(x, y, z, sizeX, sizeY, sizeX);
+
+            Assert.assertEquals(box.toString(), getCollidableBlocksPrevious(box), collisionManager.getCollidableBlocks(box));
+        }
+    }
+
+    /**
+     * How the blocks were found before the bounds were calculated without a vector
+     */
+    private static List<Vector3i> getCollidableBlocksPrevious(BoundingBox box) {
+        List<Vector3i> blocks = new ArrayList<>();
+
+        Vector3d position = Vector3d.from(box.getMiddleX(),
+                box.getMiddleY() - (box.getSizeY() / 2),
+                box.getMiddleZ());
+
+        // Loop through all blocks that could collide
+        int minCollisionX = (int) Math.floor(position.getX() - ((box.getSizeX() / 2) + CollisionManager.COLLISION_TOLERANCE));
+        int maxCollisionX = (int) Math.floor(position.getX() + (box.getSizeX() / 2) + CollisionManager.COLLISION_TOLERANCE);
+
+        // Y extends 0.5 blocks down because of fence hitboxes
+        int minCollisionY = (int) Math.floor(position.getY() - 0.5);
+
+        int maxCollisionY = (int) Math.floor(position.getY() + box.getSizeY());
+
+        int minCollisionZ = (int) Math.floor(position.getZ() - ((box.getSizeZ() / 2) + CollisionManager.COLLISION_TOLERANCE));
+        int maxCollisionZ = (int) Math.floor(position.getZ() + (box.getSizeZ() / 2) + CollisionManager.COLLISION_TOLERANCE);
+
+        for (int y = minCollisionY; y < maxCollisionY + 1; y++) {
+            for (int x = minCollisionX; x < maxCollisionX + 1; x++) {
+                for (int z = minCollisionZ; z < maxCollisionZ + 1; z++) {
+                    blocks.add(Vector3i.from(x, y, z));
+                }
+            }
+        }
+
+        return blocks;
+    }
+}
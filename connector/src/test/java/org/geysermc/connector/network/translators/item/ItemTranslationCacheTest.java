@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.translators.item;
+
+import com.github.steveice10.opennbt.tag.builtin.*;
+import com.nukkitx.protocol.bedrock.data.inventory.ItemData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ItemTranslationCacheTest {
+
+    private final List<CompoundTag> menuItems = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // Roughly what a server menu sends: enchanted items with a name and several lines of lore
+        for (int i = 0; i < 54; i++) {
+            menuItems.add(createMenuItem(i));
+        }
+    }
+
+    @Test
+    public void hashIgnoresTagOrder() {
+        CompoundTag first = new CompoundTag("");
+        first.put(new IntTag("Damage", 3));
+        first.put(new StringTag("Name", "test"));
+        CompoundTag second = new CompoundTag("");
+        second.put(new StringTag("Name", "test"));
+        second.put(new IntTag("Damage", 3));
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(ItemTranslationCache.hashNbt(first), ItemTranslationCache.hashNbt(second));
+    }
+
+    @Test
+    public void hashChangesWithInPlaceChanges() {
+        CompoundTag nbt = createMenuItem(0);
+        int hash = ItemTranslationCache.hashNbt(nbt);
+
+        // What the compass translator does to lodestone compasses
+        nbt.put(new IntTag("trackingHandle", 1));
+        Assert.assertNotEquals(hash, ItemTranslationCache.hashNbt(nbt));
+
+        nbt.remove("trackingHandle");
+        Assert.assertEquals(hash, ItemTranslationCache.hashNbt(nbt));
+
+        ((CompoundTag) nbt.get("display")).put(new StringTag("Name", "changed"));
+        Assert.assertNotEquals(hash, ItemTranslationCache.hashNbt(nbt));
+    }
+
+    @Test
+    public void cachedKeyIsNotChangedByItsTag() {
+        CompoundTag nbt = createMenuItem(1);
+        ItemData itemData = ItemData.builder().id(1).count(1).build();
+        ItemTranslationCache.put(ItemTranslationCache.createKey(1, nbt, "en_us", null), itemData);
+
+        Assert.assertSame(itemData, ItemTranslationCache.get(ItemTranslationCache.createKey(1, createMenuItem(1), "en_us", null)));
+        Assert.assertNull(ItemTranslationCache.get(ItemTranslationCache.createKey(1, createMenuItem(1), "de_de", null)));
+
+        // Changing the tag that was used to store the item must not change the stored key
+        nbt.put(new IntTag("trackingHandle", 1));
+        Assert.assertNull(ItemTranslationCache.get(ItemTranslationCache.createKey(1, nbt, "en_us", null)));
+        Assert.assertSame(itemData, ItemTranslationCache.get(ItemTranslationCache.createKey(1, createMenuItem(1), "en_us", null)));
+    }
+
+    @Test
+    public void menuRefreshIsCached() {
+        for (int i = 0; i < menuItems.size(); i++) {
+            ItemTranslationCache.put(ItemTranslationCache.createKey(i, menuItems.get(i), "en_us", null),
+                    ItemData.builder().id(i).count(1).build());
+        }
+
+        // A refreshed menu sends new, but equal, tags for every slot
+        for (int i = 0; i < menuItems.size(); i++) {
+            ItemData itemData = ItemTranslationCache.get(ItemTranslationCache.createKey(i, createMenuItem(i), "en_us", null));
+            Assert.assertNotNull(itemData);
+            Assert.assertEquals(i, itemData.getId());
+        }
+
+        // Slots only match the items that were in them
+        Assert.assertNull(ItemTranslationCache.get(ItemTranslationCache.createKey(0, createMenuItem(1), "en_us", null)));
+    }
+
+    private static CompoundTag createMenuItem(int slot) {
+        CompoundTag nbt = new CompoundTag("");
+        CompoundTag display = new CompoundTag("display");
+        display.put(new StringTag("Name", "{\"text\":\"Menu item " + slot + "\",\"color\":\"gold\",\"bold\":true}"));
+        List<Tag> lore = new ArrayList<>();
+        for (int line = 0; line < 8; line++) {
+            lore.add(new StringTag("", "{\"text\":\"Line " + line + " of the description\",\"color\":\"gray\"}"));
+        }
+        display.put(new ListTag("Lore", lore));
+        nbt.put(display);
+
+        List<Tag> enchantments = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CompoundTag enchantment = new CompoundTag("");
+            enchantment.put(new StringTag("id", "minecraft:unbreaking"));
+            enchantment.put(new ShortTag("lvl", (short) (i + 1)));
+            enchantments.add(enchantment);
+        }
+        nbt.put(new ListTag("Enchantments", enchantments));
+        nbt.put(new IntTag("HideFlags", 63));
+        return nbt;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.network.translators.world.chunk;
+
+import com.github.steveice10.mc.protocol.data.game.chunk.BitStorage;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.GlobalPalette;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.ListPalette;
+import com.github.steveice10.mc.protocol.data.game.chunk.palette.Palette;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArray;
+import org.geysermc.connector.network.translators.world.chunk.bitarray.BitArrayVersion;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+/**
+ * Checks the word-at-a-time remapping against the per-block translation it replaced.
+ */
+public class ChunkSectionRemapperTest {
+    private static final int GLOBAL_BITS = 15;
+
+    private final Random random = new Random(0x6E7365);
+
+    private static int indexYZXtoXZY(int yzx) {
+        return (yzx >> 8) | (yzx & 0x0F0) | ((yzx & 0x00F) << 8);
+    }
+
+    @Test
+    public void sectionPalette() {
+        for (int bits = 1; bits <= 8; bits++) {
+            int paletteSize = 1 << bits;
+            Palette palette = new ListPalette(bits);
+            for (int i = 0; i < paletteSize; i++) {
+                palette.stateToId(random.nextInt(1 << GLOBAL_BITS));
+            }
+            BitStorage storage = createStorage(bits, palette.size());
+            checkSection(storage, palette);
+        }
+    }
+
+    @Test
+    public void globalPalette() {
+        // A handful of blocks, as in most sections, and every block different, as in the worst case
+        for (int blockCount : new int[] {1, 5, 300, BlockStorage.SIZE}) {
+            BitStorage storage = new BitStorage(GLOBAL_BITS, BlockStorage.SIZE);
+            int[] states = new int[blockCount];
+            for (int i = 0; i < states.length; i++) {
+                states[i] = random.nextInt(1 << GLOBAL_BITS);
+            }
+            for (int i = 0; i < BlockStorage.SIZE; i++) {
+                storage.set(i, states[random.nextInt(states.length)]);
+            }
+            checkSection(storage, new GlobalPalette());
+        }
+    }
+
+    @Test
+    public void runsOfBlocks() {
+        // Runs are special cased for the global palette
+        BitStorage storage = new BitStorage(GLOBAL_BITS, BlockStorage.SIZE);
+        int state = 1;
+        for (int i = 0; i < BlockStorage.SIZE; i++) {
+            if (random.nextInt(64) == 0) {
+                state = random.nextInt(1 << GLOBAL_BITS);
+            }
+            storage.set(i, state);
+        }
+        checkSection(storage, new GlobalPalette());
+    }
+
+    @Test
+    public void waterlogLayer() {
+        BitStorage storage = createStorage(4, 16);
+        BitSet waterloggedPaletteIds = new BitSet();
+        for (int i = 0; i < 16; i += 3) {
+            waterloggedPaletteIds.set(i);
+        }
+
+        int[] values = ChunkSectionRemapper.unpack(storage);
+        BitArray layer = BitArrayVersion.V1.createArray(BlockStorage.SIZE, ChunkSectionRemapper.createWaterlogLayer(values, waterloggedPaletteIds));
+        for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
+            int expected = waterloggedPaletteIds.get(storage.get(yzx)) ? 1 : 0;
+            Assert.assertEquals("Waterlogged block at " + yzx + " is incorrect", expected, layer.get(indexYZXtoXZY(yzx)));
+        }
+    }
+
+    private void checkSection(BitStorage storage, Palette palette) {
+        int[] values = ChunkSectionRemapper.unpack(storage);
+        for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
+            Assert.assertEquals("Unpacked value at " + yzx + " is incorrect", storage.get(yzx), values[yzx]);
+        }
+
+        IntList javaPalette = ChunkSectionRemapper.createJavaPalette(palette, values);
+        BitArray bitArray = ChunkSectionRemapper.remap(values, javaPalette.size());
+        for (int yzx = 0; yzx < BlockStorage.SIZE; yzx++) {
+            int expectedState = palette.idToState(storage.get(yzx));
+            int actualState = javaPalette.getInt(bitArray.get(indexYZXtoXZY(yzx)));
+            Assert.assertEquals("Block state at " + yzx + " is incorrect", expectedState, actualState);
+        }
+    }
+
+    private BitStorage createStorage(int bits, int paletteSize) {
+        BitStorage storage = new BitStorage(bits, BlockStorage.SIZE);
+        for (int i = 0; i < BlockStorage.SIZE; i++) {
+            storage.set(i, random.nextInt(paletteSize));
+        }
+        return storage;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.scoreboard;
+
+import com.github.steveice10.mc.protocol.data.game.scoreboard.ScoreboardPosition;
+import com.nukkitx.protocol.bedrock.BedrockPacket;
+import com.nukkitx.protocol.bedrock.packet.SetScorePacket;
+import org.geysermc.connector.GeyserLogger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ScoreboardTest {
+    private static final int TEAMS = 1000;
+    private static final int SCORES = 2000;
+
+    private Scoreboard scoreboard;
+    private Objective objective;
+
+    private int setScores;
+    private int removedScores;
+    /**
+     * Changes are only seen if they are newer than the last update, so they are given their own, later, timestamps
+     */
+    private long updateTime = System.currentTimeMillis() + 60000;
+
+    @Before
+    public void setUp() {
+        scoreboard = new Scoreboard(null, new TestLogger(), this::onPacket);
+        // Like nametag plugins: every player has a team of their own or shares it with one other player
+        for (int i = 0; i < TEAMS; i++) {
+            scoreboard.registerNewTeam("team" + i, new HashSet<>(Arrays.asList("player" + (2 * i), "player" + (2 * i + 1))))
+                    .setPrefix("[" + i + "] ")
+                    .setSuffix("");
+        }
+        objective = scoreboard.displayObjective("sidebar", ScoreboardPosition.SIDEBAR);
+        for (int i = 0; i < SCORES; i++) {
+            objective.setScore("player" + i, i);
+        }
+
+        scoreboard.onUpdate();
+        Assert.assertEquals(SCORES, setScores);
+        resetCounts();
+    }
+
+    @Test
+    public void onlyChangedScoresAreSent() {
+        setScore("player5", 100);
+        setScore("player1500", 100);
+        scoreboard.onUpdate();
+        Assert.assertEquals(2, setScores);
+        Assert.assertEquals(2, removedScores);
+
+        resetCounts();
+        scoreboard.onUpdate();
+        Assert.assertEquals(0, setScores);
+        Assert.assertEquals(0, removedScores);
+    }
+
+    @Test
+    public void entitiesAreOnOneTeam() {
+        Assert.assertSame(scoreboard.getTeam("team0"), scoreboard.getTeamFor("player0"));
+
+        scoreboard.getTeam("team3").addEntities("player0");
+        Assert.assertSame(scoreboard.getTeam("team3"), scoreboard.getTeamFor("player0"));
+        Assert.assertFalse(scoreboard.getTeam("team0").hasEntity("player0"));
+
+        scoreboard.getTeam("team3").removeEntities("player0");
+        Assert.assertNull(scoreboard.getTeamFor("player0"));
+    }
+
+    @Test
+    public void teamChangesResendTheirScores() {
+        Team team = scoreboard.getTeam("team3").setPrefix("[changed] ").setUpdateType(UpdateType.UPDATE);
+        team.getCurrentData().updateTime = ++updateTime;
+        scoreboard.onUpdate();
+        Assert.assertEquals(2, setScores);
+        Assert.assertEquals(2, removedScores);
+
+        resetCounts();
+        scoreboard.removeTeam("team10");
+        Assert.assertNull(scoreboard.getTeamFor("player20"));
+        scoreboard.onUpdate();
+        Assert.assertEquals(2, setScores);
+        Assert.assertEquals(2, removedScores);
+        Assert.assertNull(scoreboard.getTeam("team10"));
+    }
+
+    @Test
+    public void onlyChangedScoresAreChecked() {
+        for (int i = 0; i < 10; i++) {
+            setScore("player" + i, -i);
+        }
+        // player4 and player5 are on this team, and are checked only once
+        Set<String> changedEntities = scoreboard.getTeam("team2").getEntities();
+        Assert.assertEquals(10, objective.pollChangedScores(changedEntities).size());
+        Assert.assertEquals(0, objective.pollChangedScores(Collections.emptySet()).size());
+
+        changedEntities = scoreboard.getTeam("team500").getEntities();
+        Assert.assertEquals(2, objective.pollChangedScores(changedEntities).size());
+    }
+
+    private void setScore(String name, int score) {
+        objective.setScore(name, score);
+        objective.getScores().get(name).getCurrentData().updateTime = ++updateTime;
+    }
+
+    private void onPacket(BedrockPacket packet) {
+        if (packet instanceof SetScorePacket) {
+            SetScorePacket setScorePacket = (SetScorePacket) packet;
+            if (setScorePacket.getAction() == SetScorePacket.Action.SET) {
+                setScores += setScorePacket.getInfos().size();
+            } else {
+                removedScores += setScorePacket.getInfos().size();
+            }
+        }
+    }
+
+    private void resetCounts() {
+        setScores = 0;
+        removedScores = 0;
+    }
+
+    private static class TestLogger implements GeyserLogger {
+        @Override
+        public void severe(String message) {
+        }
+
+        @Override
+        public void severe(String message, Throwable error) {
+        }
+
+        @Override
+        public void error(String message) {
+        }
+
+        @Override
+        public void error(String message, Throwable error) {
+        }
+
+        @Override
+        public void warning(String message) {
+        }
+
+        @Override
+        public void info(String message) {
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+
+        @Override
+        public void setDebug(boolean debug) {
+        }
+
+        @Override
+        public boolean isDebug() {
+            return false;
+        }
+    }
+}
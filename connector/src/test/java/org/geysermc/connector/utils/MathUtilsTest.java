@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019-2021 GeyserMC. http://geysermc.org
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ * @author GeyserMC
+ * @link https://github.com/GeyserMC/Geyser
+ */
+
+
+package org.geysermc.connector.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Random;
+
+public class MathUtilsTest {
+
+    @Test
+    public void floatToDoubleMatchesStringConversion() {
+        // Only coordinates within the world matter; tiny subnormal floats aren't converted the same way
+        float[] values = {0, -0f, 0.1f, -0.1f, 0.3f, 1, 0.5f, 1.62f, 0.41999998f, 100.00001f, 29999984.5f, -29999984.5f,
+                Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (float value : values) {
+            assertSameDouble(parseFloatString(value), MathUtils.floatToDouble(value), value);
+        }
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            // Positions near spawn, within a few thousand blocks, and anywhere in the world
+            float value;
+            switch (i % 3) {
+                case 0:
+                    value = (random.nextFloat() - 0.5f) * 100;
+                    break;
+                case 1:
+                    value = (random.nextFloat() - 0.5f) * 20000;
+                    break;
+                default:
+                    value = (random.nextFloat() - 0.5f) * 60_000_000;
+                    break;
+            }
+            assertSameDouble(parseFloatString(value), MathUtils.floatToDouble(value), value);
+        }
+    }
+
+    @Test
+    public void roundMatchesDecimalFormat() {
+        // What the collision manager used to trim Y coordinates with
+        DecimalFormat decimalFormat = new DecimalFormat("#.#####", new DecimalFormatSymbols(Locale.ENGLISH));
+
+        double[] values = {0, 1, -1, 0.000005, 0.000015, 1.123455, 64.41999998688698, 70.24813599859094, -12.3456789};
+        for (double value : values) {
+            Assert.assertEquals(String.valueOf(value), Double.parseDouble(decimalFormat.format(value)), MathUtils.round(value, 5), 0);
+        }
+
+        Random random = new Random(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            // Heights while jumping, either any double or a float offset from a block
+            double value = i % 2 == 0 ? (random.nextDouble() - 0.5) * 640 : Math.floor(random.nextDouble() * 320) + random.nextFloat();
+            Assert.assertEquals(String.valueOf(value), Double.parseDouble(decimalFormat.format(value)), MathUtils.round(value, 5), 0);
+        }
+    }
+
+    private static double parseFloatString(float value) {
+        return Double.parseDouble(Float.toString(value));
+    }
+
+    private static void assertSameDouble(double expected, double actual, float value) {
+        // Also tells 0.0 and -0.0 apart, and compares NaN
+        Assert.assertEquals(Float.toString(value), Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+    }
+}